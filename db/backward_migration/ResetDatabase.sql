@@ -3,6 +3,9 @@
 -- Run this script if unable to troubleshoot migrations
 
 -- Drop all tables created during migrations
+drop table if exists image_upload_job;
+drop table if exists replica_heartbeat;
+drop table if exists appointment_slot;
 drop table if exists provided_service_content;
 drop table if exists appointment;
 drop table if exists provided_service;
@@ -0,0 +1,36 @@
+
+-- PURPOSE: Creates a new table to store every 15 minute slot claimed by an appointment,
+-- one row is stored for the employee and one for the client, so the primary key
+-- prevents any person from being booked into two appointments at the same time
+CREATE TABLE appointment_slot(
+    user_id BIGINT NOT NULL,
+    -- all entries should be associated with a user in the user_account table
+    FOREIGN KEY (user_id) REFERENCES user_account (user_id) ON DELETE CASCADE,
+    slot_time TIMESTAMP NOT NULL,
+    appointment_id BIGINT NOT NULL,
+    -- slots are released when their appointment is removed
+    FOREIGN KEY (appointment_id) REFERENCES appointment (appointment_id) ON DELETE CASCADE,
+    PRIMARY KEY (user_id, slot_time)
+);
+
+-- claim slots for all upcoming appointments
+insert ignore into appointment_slot (user_id, slot_time, appointment_id)
+with recursive slot (n) as (
+    select 0
+    union all
+    select n + 1 from slot where n < 31
+)
+select claimant.user_id, claimant.appointment_time + interval (slot.n * 15) minute, claimant.appointment_id
+from (
+    select ps.employee_id as user_id, apt.appointment_time, apt.appointment_id, apt.length
+    from appointment apt
+    join provided_service ps on apt.service_id = ps.service_id
+    where apt.status <> 'CANCEL'
+    and apt.appointment_time >= current_timestamp
+    union all
+    select apt.client_id, apt.appointment_time, apt.appointment_id, apt.length
+    from appointment apt
+    where apt.status <> 'CANCEL'
+    and apt.appointment_time >= current_timestamp
+) claimant
+join slot on slot.n < claimant.length;
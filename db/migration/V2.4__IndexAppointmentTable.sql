@@ -0,0 +1,23 @@
+-- PURPOSE: Stores the employee providing each appointment directly on the appointment,
+-- so schedules can be searched by employee without joining through provided_service,
+-- and adds indexes covering every schedule lookup
+alter table appointment
+add column employee_id BIGINT after client_id;
+
+-- a service never changes employees, so every appointment belongs to its service's employee
+update appointment apt
+join provided_service ps on apt.service_id = ps.service_id
+set apt.employee_id = ps.employee_id;
+
+alter table appointment
+modify column employee_id BIGINT NOT NULL,
+-- all entries should be associated with an employee in the table
+add foreign key (employee_id) references employee (employee_id) on delete cascade;
+
+-- schedules are always searched by person and time range,
+-- remaining columns allow schedules to be built from the index alone
+create index appointment_employee_time_idx
+on appointment (employee_id, appointment_time, length, client_id);
+
+create index appointment_client_time_idx
+on appointment (client_id, appointment_time, length, employee_id);
@@ -0,0 +1,5 @@
+
+-- PURPOSE: Numbers the access tokens issued to each user, tokens carry the number they were issued with
+-- and are rejected once it changes, so changing a password revokes every token issued before
+alter table user_account
+add column token_version INT NOT NULL DEFAULT 0;
@@ -0,0 +1,9 @@
+
+-- PURPOSE: Creates a single row table the service writes the current time to on the primary,
+-- reading the row back from a read replica shows how far the replica is behind the primary
+CREATE TABLE replica_heartbeat(
+    id TINYINT PRIMARY KEY,
+    beat TIMESTAMP(3) NOT NULL
+);
+
+insert into replica_heartbeat (id, beat) values (1, current_timestamp(3));
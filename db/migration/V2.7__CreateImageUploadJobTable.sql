@@ -0,0 +1,15 @@
+-- PURPOSE: Creates a table recording the progress of images scaled and uploaded in the background,
+-- so the status of an upload can be polled through any instance of the service
+CREATE TABLE image_upload_job(
+    job_id VARCHAR(36) PRIMARY KEY,
+    owner_id BIGINT NOT NULL,
+    FOREIGN KEY (owner_id) REFERENCES user_account (user_id) ON DELETE CASCADE,
+    content_id VARCHAR(64) NOT NULL,
+    status VARCHAR(10) NOT NULL,
+    CONSTRAINT upload_status_values CHECK ( status IN ('Queued', 'Processing', 'Complete', 'Failed') ),
+    error VARCHAR(128),
+    updated_at TIMESTAMP(3) NOT NULL
+);
+
+-- finished jobs are removed once they can no longer be polled
+CREATE INDEX image_upload_job_updated_idx ON image_upload_job(updated_at);
@@ -3,10 +3,18 @@ package org.morriswa.salon.config;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
 
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 /**
  * will provide a Hikari Datasource to be used by JDBC
  *
@@ -17,6 +25,16 @@ import org.springframework.context.annotation.Profile;
 @Profile("!test") //Indicates to the scanner that this class should be ignored during unit testing
 public class DatasourceConfig {  //will provide all mysql config for the application
 
+    /**
+     * name of the application's connection pool, published as the pool tag of all hikaricp metrics
+     */
+    public static final String POOL_NAME = "salon-pool";
+
+    /**
+     * name of the read replica's connection pool
+     */
+    public static final String REPLICA_POOL_NAME = "salon-replica-pool";
+
     private final MySQLProperties mysql;
 
     @Autowired public DatasourceConfig(MySQLProperties config) {
@@ -24,6 +42,33 @@ public class DatasourceConfig {  //will provide all mysql config for the applica
     }
 
 
+    /**
+     * builds a jdbc connection string using the configured protocol, database and connection params
+     *
+     * @param hostname of the database server
+     * @param port of the database server
+     * @return the jdbc connection string
+     */
+    private String buildJdbcUrl(String hostname, String port) {
+        // using provided protocol, hostname, port and database
+        var connectionString = new StringBuilder(String.format("%s://%s:%s/%s",
+                mysql.getProtocol(),
+                hostname,
+                port,
+                mysql.getDatabase()));
+
+        // if no additional connection params are required, return as is
+        if (mysql.getConnectionProperties().isEmpty()) return connectionString.toString();
+
+        // otherwise add all params
+        connectionString.append("?");
+        for (String prop : mysql.getConnectionProperties())
+            connectionString.append(String.format("%s&", prop));
+
+        // and remove tailing &
+        return connectionString.substring(0, connectionString.length() - 1);
+    }
+
     /**
      * Attempts to build the Hikari Datasource to be used by the application for data-access
      * If datasource cannot be configured, service will halt
@@ -33,42 +78,120 @@ public class DatasourceConfig {  //will provide all mysql config for the applica
     @Bean
     public HikariDataSource provideHikariDataSource() {
 
-        // retrieve database username and password from application config
-        final var dbUsername = mysql.getUsername();
-        final var dbPassword = mysql.getPassword();
-
-        // build jdbc connection string
-        final String jdbcUrl;
-        {
-            // using provided protocol, hostname, port and database
-            var connectionString = new StringBuilder(String.format("%s://%s:%s/%s",
-                    mysql.getProtocol(),
-                    mysql.getHostname(),
-                    mysql.getPort(),
-                    mysql.getDatabase()));
-
-            // if additional connection params are required by application
-            if (!mysql.getConnectionProperties().isEmpty()) {
-
-                // add all params
-                connectionString.append("?");
-                for (String prop : mysql.getConnectionProperties())
-                    connectionString.append(String.format("%s&", prop));
-
-                // and remove tailing &
-                jdbcUrl = connectionString.substring(0, connectionString.length() - 1);
-            } else { // if no additional connection params are required, return as is
-                jdbcUrl = connectionString.toString();
-            }
-        }
-
         // input retrieved properties into Hikari Config model
         var databaseConfig = new HikariConfig();
-        databaseConfig.setUsername(dbUsername);
-        databaseConfig.setPassword(dbPassword);
-        databaseConfig.setJdbcUrl(jdbcUrl);
+        databaseConfig.setUsername(mysql.getUsername());
+        databaseConfig.setPassword(mysql.getPassword());
+        databaseConfig.setJdbcUrl(buildJdbcUrl(mysql.getHostname(), mysql.getPort()));
+        applyPoolPolicy(databaseConfig, mysql);
+        applyDriverProperties(databaseConfig, mysql);
 
         // build and return configured datasource
         return new HikariDataSource(databaseConfig);
     }
+
+    /**
+     * Builds a second connection pool for the read replica, only if a replica hostname is configured.
+     * Any connection detail not provided for the replica is taken from the primary
+     *
+     * @return a HikariDataSource connected to the read replica
+     */
+    @Bean @ConditionalOnProperty("mysql.replica.hostname")
+    public HikariDataSource provideReplicaDataSource() {
+        final var replica = mysql.getReplica();
+
+        var databaseConfig = new HikariConfig();
+        databaseConfig.setUsername(replica.getUsername() == null? mysql.getUsername() : replica.getUsername());
+        databaseConfig.setPassword(replica.getPassword() == null? mysql.getPassword() : replica.getPassword());
+        databaseConfig.setJdbcUrl(buildJdbcUrl(replica.getHostname(),
+                replica.getPort() == null? mysql.getPort() : replica.getPort()));
+        applyPoolPolicy(databaseConfig, mysql);
+        applyDriverProperties(databaseConfig, mysql);
+        databaseConfig.setPoolName(REPLICA_POOL_NAME);
+
+        return new HikariDataSource(databaseConfig);
+    }
+
+    /**
+     * Routes read-only transactions to the read replica while it is within max lag of the primary,
+     * how far it is behind is measured on a schedule
+     *
+     * @param primary connection pool for the primary database
+     * @param replica connection pool for the read replica
+     * @param executor used to measure replica lag
+     * @return the datasource choosing between primary and replica
+     */
+    @Bean @ConditionalOnProperty("mysql.replica.hostname")
+    public ReplicaRoutingDataSource provideReplicaRouting(@Qualifier("provideHikariDataSource") DataSource primary,
+                                                          @Qualifier("provideReplicaDataSource") DataSource replica,
+                                                          @Qualifier("replicaLagProbeExecutor") ScheduledExecutorService executor) {
+        final var routing = new ReplicaRoutingDataSource(primary, replica,
+                mysql.getReplica().getMaxLag(), mysql.getReplica().getMaxTrackedUsers());
+
+        // reads stay on the primary until the first measurement shows the replica has caught up
+        final var interval = mysql.getReplica().getLagProbeInterval();
+        executor.scheduleWithFixedDelay(routing::measureReplicaLag, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+        return routing;
+    }
+
+    /**
+     * Register the datasource used by JDBC when a read replica is configured.
+     * Read-only transactions are served by the replica, everything else by the primary
+     *
+     * @param routing datasource choosing between primary and replica
+     * @return the routing datasource used for all data access
+     * @throws SQLException if the primary database cannot be reached
+     */
+    @Bean @Primary @ConditionalOnProperty("mysql.replica.hostname")
+    public DataSource provideRoutingDataSource(ReplicaRoutingDataSource routing) throws SQLException {
+        return routing.lazily();
+    }
+
+    /**
+     * sizes a connection pool for the database rather than for the number of request threads,
+     * so that any number of (virtual) request threads share a fixed set of connections
+     * and give up after a short wait instead of queueing without limit
+     *
+     * @param databaseConfig to apply pool settings to
+     * @param mysql database config
+     */
+    static void applyPoolPolicy(HikariConfig databaseConfig, MySQLProperties mysql) {
+        // name the pool so its metrics can be told apart from any other pool
+        databaseConfig.setPoolName(POOL_NAME);
+
+        // default to two connections per core plus one, more connections than that only add contention
+        final int configuredSize = mysql.getMaximumPoolSize() == null ? 0 : mysql.getMaximumPoolSize();
+        final int poolSize = configuredSize > 0 ? configuredSize : Runtime.getRuntime().availableProcessors() * 2 + 1;
+
+        // keep the pool at a fixed size unless told otherwise, so bursts never wait on new connections being opened
+        databaseConfig.setMaximumPoolSize(poolSize);
+        databaseConfig.setMinimumIdle(mysql.getMinimumIdle() == null ?
+                poolSize : Math.min(mysql.getMinimumIdle(), poolSize));
+
+        // any timeout left out of the config keeps hikari's default
+        if (mysql.getConnectionTimeout() != null)
+            databaseConfig.setConnectionTimeout(mysql.getConnectionTimeout().toMillis());
+        if (mysql.getValidationTimeout() != null)
+            databaseConfig.setValidationTimeout(mysql.getValidationTimeout().toMillis());
+        if (mysql.getIdleTimeout() != null)
+            databaseConfig.setIdleTimeout(mysql.getIdleTimeout().toMillis());
+        if (mysql.getMaxLifetime() != null)
+            databaseConfig.setMaxLifetime(mysql.getMaxLifetime().toMillis());
+        if (mysql.getKeepaliveTime() != null)
+            databaseConfig.setKeepaliveTime(mysql.getKeepaliveTime().toMillis());
+        if (mysql.getLeakDetectionThreshold() != null)
+            databaseConfig.setLeakDetectionThreshold(mysql.getLeakDetectionThreshold().toMillis());
+    }
+
+    /**
+     * passes driver specific settings, ie the mysql prepared statement cache, to every pooled connection
+     *
+     * @param databaseConfig to apply driver settings to
+     * @param mysql database config
+     */
+    static void applyDriverProperties(HikariConfig databaseConfig, MySQLProperties mysql) {
+        if (mysql.getDriverProperties() == null) return;
+
+        mysql.getDriverProperties().forEach(databaseConfig::addDataSourceProperty);
+    }
 }
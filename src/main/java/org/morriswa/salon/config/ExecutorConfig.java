@@ -0,0 +1,117 @@
+package org.morriswa.salon.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * provides thread pools used to perform work outside of request threads
+ */
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * creates a thread factory which names threads after their pool
+     *
+     * @param poolName prefix for thread names
+     * @return the thread factory
+     */
+    private static ThreadFactory namedThreads(String poolName) {
+        final var threadCount = new AtomicInteger();
+        return runnable -> {
+            final var thread = new Thread(runnable, poolName + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Register an executor to scale and upload images in the background.
+     * The executor's queue is bounded, once full new jobs are rejected
+     * with a RejectedExecutionException instead of piling up in memory.
+     * Scaling is cpu bound, so these stay platform threads even when virtual threads are enabled
+     *
+     * @param e environment containing image processing config
+     * @return the image processing executor
+     */
+    @Bean(destroyMethod = "shutdown") @Autowired
+    public ThreadPoolExecutor imageProcessingExecutor(Environment e) {
+        // default to one worker per core, as scaling images is cpu bound
+        final int configuredWorkers = e.getRequiredProperty("salon.images.workers", Integer.class);
+        final int workers = configuredWorkers > 0 ? configuredWorkers : Runtime.getRuntime().availableProcessors();
+
+        return new ThreadPoolExecutor(
+                workers, workers,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(e.getRequiredProperty("salon.images.queue-capacity", Integer.class)),
+                namedThreads("image-worker"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Register an executor used to sign and batch requests to S3 in parallel.
+     * When virtual threads are enabled every task gets its own virtual thread,
+     * as S3 calls spend nearly all of their time waiting on the network
+     *
+     * @param e environment containing s3 config
+     * @return the s3 executor
+     */
+    @Bean(destroyMethod = "shutdown") @Autowired
+    public ExecutorService s3Executor(Environment e) {
+        if (e.getProperty("spring.threads.virtual.enabled", Boolean.class, false))
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("s3-worker-", 1).factory());
+
+        final int configuredWorkers = e.getRequiredProperty("aws.s3.workers", Integer.class);
+        final int workers = configuredWorkers > 0 ? configuredWorkers : Runtime.getRuntime().availableProcessors();
+
+        // callers wait for all of their tasks, so when the queue is full run the task on the caller's thread
+        return new ThreadPoolExecutor(
+                workers, workers,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(e.getRequiredProperty("aws.s3.queue-capacity", Integer.class)),
+                namedThreads("s3-worker"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Register an executor used to rebuild cached values in the background,
+     * refreshes requested while the queue is full are skipped and retried on a later read
+     *
+     * @return the cache refresh executor
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor cacheRefreshExecutor() {
+        return new ThreadPoolExecutor(
+                1, 1,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(16),
+                namedThreads("cache-refresh"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Register a single thread used to probe the health of the service's dependencies on a schedule,
+     * probes run one after another so a slow dependency never causes probes to pile up
+     *
+     * @return the health probe executor
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService healthProbeExecutor() {
+        return Executors.newSingleThreadScheduledExecutor(namedThreads("health-probe"));
+    }
+
+    /**
+     * Register a single thread used to measure how far the read replica is behind the primary,
+     * kept apart from health probes so a slow dependency never delays a measurement
+     *
+     * @return the replica lag probe executor
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService replicaLagProbeExecutor() {
+        return Executors.newSingleThreadScheduledExecutor(namedThreads("replica-lag-probe"));
+    }
+}
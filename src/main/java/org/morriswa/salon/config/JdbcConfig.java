@@ -0,0 +1,47 @@
+package org.morriswa.salon.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * provides the jdbc templates used by data-access objects
+ */
+@Configuration
+@Profile("!test | h2test") // only needed when a datasource is available
+public class JdbcConfig {
+
+    /**
+     * Register the template used for all regular queries,
+     * results are read completely before being handed to the caller
+     *
+     * @param jdbcTemplate provided by spring
+     * @return the default jdbc template
+     */
+    @Bean @Primary @Autowired
+    public NamedParameterJdbcTemplate namedParameterJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        return new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * Register a template for queries whose rows are written straight to a response.
+     * Rows are read from the database in batches of the configured fetch size,
+     * so only one batch is held in memory no matter how large the result is
+     *
+     * @param dataSource provided by spring
+     * @param mysql database config
+     * @return the streaming jdbc template
+     */
+    @Bean @Autowired
+    public NamedParameterJdbcTemplate streamingJdbcTemplate(DataSource dataSource, MySQLProperties mysql) {
+        final var jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(mysql.getStreamFetchSize());
+        return new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+}
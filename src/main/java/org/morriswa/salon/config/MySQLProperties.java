@@ -5,7 +5,9 @@ import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 
 @Configuration
 @ConfigurationProperties(prefix = "mysql")
@@ -18,4 +20,29 @@ public class MySQLProperties {
     private String username;
     private String password;
     private List<String> connectionProperties;
+    private Integer streamFetchSize;
+    private Integer maximumPoolSize;
+    private Integer minimumIdle;
+    private Duration connectionTimeout;
+    private Duration validationTimeout;
+    private Duration idleTimeout;
+    private Duration maxLifetime;
+    private Duration keepaliveTime;
+    private Duration leakDetectionThreshold;
+    private Map<String, String> driverProperties;
+    private Replica replica = new Replica();
+
+    /**
+     * optional read replica, any connection detail left out is taken from the primary
+     */
+    @Getter @Setter
+    public static class Replica {
+        private String hostname;
+        private String port;
+        private String username;
+        private String password;
+        private Duration maxLag;
+        private Duration lagProbeInterval;
+        private Integer maxTrackedUsers;
+    }
 }
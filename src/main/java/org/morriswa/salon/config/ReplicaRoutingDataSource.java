@@ -0,0 +1,205 @@
+package org.morriswa.salon.config;
+
+import org.morriswa.salon.model.UserAccount;
+import org.morriswa.salon.utility.ExpiringCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * sends connections requested within read-only transactions to a read replica and all others to the primary,
+ * use {@link #lazily} so a database is only chosen once a transaction has declared whether it is read-only.
+ * the replica is only used while {@link #measureReplicaLag} has recently found it within max lag of the primary
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    /**
+     * database a connection may be routed to
+     */
+    public enum Route { PRIMARY, REPLICA }
+
+    /**
+     * result of the most recent replica lag measurement
+     *
+     * @param lag how far the replica was behind the primary, or null if it could not be measured
+     * @param measuredAt System.nanoTime() when the measurement completed
+     * @param failure why the lag could not be measured, if it could not
+     */
+    private record Measurement(Duration lag, long measuredAt, String failure) { }
+
+    private final DataSource primary;
+    private final JdbcTemplate primaryHeartbeat;
+    private final JdbcTemplate replicaHeartbeat;
+    private final Duration maxLag;
+
+    // users who recently wrote to the primary, their reads stay on the primary until the replica has caught up
+    private final ExpiringCache<Long, Boolean> recentWriters;
+
+    // nothing is known about the replica until it has been measured
+    private volatile Measurement latest = new Measurement(null, System.nanoTime(), "replica lag has not been measured yet");
+
+    /**
+     * @param primary database that receives all writes
+     * @param replica copy of the primary that serves read-only transactions
+     * @param maxLag furthest the replica may be behind the primary while serving reads,
+     *               also how long a user's reads stay on the primary after they last wrote
+     * @param maxTrackedUsers maximum number of recent writers remembered at any time
+     */
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, Duration maxLag, int maxTrackedUsers) {
+        this.primary = primary;
+        this.primaryHeartbeat = new JdbcTemplate(primary);
+        this.replicaHeartbeat = new JdbcTemplate(replica);
+        this.maxLag = maxLag;
+        this.recentWriters = new ExpiringCache<>(maxLag, maxTrackedUsers);
+
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /**
+     * builds a datasource that picks the primary or replica when a connection is first used rather than when it is
+     * requested, since transactions request their connection before declaring themselves read-only
+     *
+     * @return the lazily routing datasource
+     * @throws SQLException if the primary cannot be reached
+     */
+    public DataSource lazily() throws SQLException {
+        final var lazy = new LazyConnectionDataSourceProxy();
+        lazy.setTargetDataSource(this);
+
+        // learn connection defaults from the primary directly,
+        // otherwise the first connection requested would be routed only to be inspected
+        try (var connection = primary.getConnection()) {
+            lazy.setDefaultAutoCommit(connection.getAutoCommit());
+            lazy.setDefaultTransactionIsolation(connection.getTransactionIsolation());
+        }
+
+        lazy.afterPropertiesSet();
+        return lazy;
+    }
+
+    /**
+     * writes the current time to the primary's heartbeat row and reads it back from the replica,
+     * the replica is as far behind as the time it last received. should run on a schedule well within max lag,
+     * as the replica may be found up to one interval further behind than it is
+     */
+    public void measureReplicaLag() {
+        Measurement measured;
+        try {
+            primaryHeartbeat.update("update replica_heartbeat set beat = current_timestamp(3) where id = 1");
+
+            // compare against the replica's clock so neither this instance's clock nor its time zone matter
+            measured = replicaHeartbeat.query(
+                    "select beat, current_timestamp(3) as measured from replica_heartbeat where id = 1", rs -> {
+                if (!rs.next()) return new Measurement(null, System.nanoTime(), "replica has no heartbeat row");
+
+                final Timestamp beat = rs.getTimestamp("beat");
+                final Timestamp now = rs.getTimestamp("measured");
+                final var lag = Duration.ofMillis(Math.max(0L, now.getTime() - beat.getTime()));
+                return new Measurement(lag, System.nanoTime(), null);
+            });
+        } catch (RuntimeException ex) {
+            measured = new Measurement(null, System.nanoTime(),
+                    String.format("replica lag could not be measured: %s", ex.getClass().getSimpleName()));
+        }
+
+        // only log changes, measurements run every few hundred milliseconds
+        final boolean wasUsable = isReplicaUsable();
+        latest = measured;
+        final boolean usable = isReplicaUsable();
+        if (usable && !wasUsable) log.info("Read replica has caught up, reads are served by the replica again");
+        else if (!usable && wasUsable) log.warn("Read replica is unavailable, reads are served by the primary: {}",
+                measured.failure() != null ? measured.failure() : measured.lag().toMillis() + "ms behind");
+    }
+
+    /**
+     * @return furthest the replica may now be behind the primary, or null if unknown
+     */
+    public Duration replicaLag() {
+        final var measurement = latest;
+        if (measurement.lag() == null) return null;
+
+        // the replica may have fallen further behind at most by the time passed since it was measured
+        return measurement.lag().plusNanos(System.nanoTime() - measurement.measuredAt());
+    }
+
+    /**
+     * @return why the replica's lag is unknown, or null if it was measured
+     */
+    public String replicaFailure() {
+        return latest.failure();
+    }
+
+    /**
+     * @return furthest the replica may be behind the primary while serving reads
+     */
+    public Duration maxLag() {
+        return maxLag;
+    }
+
+    /**
+     * @return true if the replica is known to be within max lag of the primary
+     */
+    public boolean isReplicaUsable() {
+        final var lag = replicaLag();
+        return lag != null && lag.compareTo(maxLag) <= 0;
+    }
+
+    /**
+     * @return id of the user making the current request, or null if not making a request on a user's behalf
+     */
+    private static Long currentUserId() {
+        final var authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserAccount user)
+            return user.getUserId();
+        return null;
+    }
+
+    /**
+     * @return the database the next connection should be opened on
+     */
+    public Route currentRoute() {
+        final var userId = currentUserId();
+
+        // read-only work goes to the replica, unless it has fallen behind or the user could miss their own changes there
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly())
+            return isReplicaUsable() && (userId == null || recentWriters.get(userId) == null)
+                    ? Route.REPLICA : Route.PRIMARY;
+
+        // a read-write transaction may change the user's data,
+        // so remember them until the replica is guaranteed to have caught up with the change
+        if (userId != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+            recentWriters.put(userId, Boolean.TRUE);
+
+            // changes only reach the replica once committed, so the user is held on the primary from then on
+            if (TransactionSynchronizationManager.isSynchronizationActive())
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        recentWriters.put(userId, Boolean.TRUE);
+                    }
+                });
+        }
+
+        return Route.PRIMARY;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return currentRoute();
+    }
+}
@@ -1,11 +1,19 @@
 package org.morriswa.salon.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletResponse;
+import org.morriswa.salon.utility.AccessTokenFilter;
+import org.morriswa.salon.utility.AccessTokenService;
+import org.morriswa.salon.utility.CachingAuthenticationProvider;
+import org.morriswa.salon.utility.PrincipalCache;
 import org.morriswa.salon.utility.ServiceInfoFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.ProviderManager;
@@ -13,14 +21,20 @@ import org.springframework.security.authentication.dao.DaoAuthenticationProvider
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.AccessDeniedHandler;
+import org.springframework.security.web.authentication.AnonymousAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.io.IOException;
 import java.util.List;
 
 
@@ -54,15 +68,18 @@ public class WebSecurityConfig {
      * @param userService an implementation of spring's User Detail Service
      *                    for this application org.morriswa.salon.utility.JdbcAuthenticationService
      * @param passwordEncoder an implementation of Password Encoder
+     * @param principalCache used to remember recently authenticated users between requests
      * @return the final configured application Authentication Manager
      */
     @Bean @Autowired
     public AuthenticationManager authenticationManager(UserDetailsService userService,
-                                                       PasswordEncoder passwordEncoder) {
+                                                       PasswordEncoder passwordEncoder,
+                                                       PrincipalCache principalCache) {
         DaoAuthenticationProvider authenticationProvider = new DaoAuthenticationProvider();
         authenticationProvider.setUserDetailsService(userService);
         authenticationProvider.setPasswordEncoder(passwordEncoder);
-        return new ProviderManager(authenticationProvider);
+        // skip the db lookup and password hash for users who recently logged in with the same credentials
+        return new ProviderManager(new CachingAuthenticationProvider(authenticationProvider, principalCache));
     }
 
     /**
@@ -103,35 +120,194 @@ public class WebSecurityConfig {
 
         // register user registration route with appropriate config
         sources.registerCorsConfiguration("/health", publicEndpointCors);
+        sources.registerCorsConfiguration("/health/deep", publicEndpointCors);
 
         // return fully configured cors source
         return sources;
     }
 
     /**
-     * Register a Security Filter Chain bean to secure all web requests
+     * writes a formatted error response from within the security filter chain
+     *
+     * @param response to write to
+     * @param status of the error response
+     * @param exception encountered in the filter chain
+     * @param description of the error to include in response
+     */
+    private static void writeErrorResponse(HttpServletResponse response,
+                                           ServiceInfoFactory responseFactory,
+                                           ObjectMapper objectMapper,
+                                           HttpStatus status,
+                                           Exception exception,
+                                           String description) throws IOException {
+        // create a formatted Http Response
+        var customErrorResponse = responseFactory.getHttpErrorResponse(
+                status,
+                // error should be the exception encountered in the filter chain
+                exception.getClass().getSimpleName(),
+                description);
+
+        // write the body of the generated Http Response to actual Response
+        response.getOutputStream().println(
+                objectMapper.writeValueAsString(customErrorResponse.getBody()));
+        // content type of response will be json
+        response.setContentType("application/json");
+        // status of response should match the error
+        response.setStatus(customErrorResponse.getStatusCode().value());
+    }
+
+    /**
+     * @return exception handler for requests with bad credentials (401)
+     */
+    private static AuthenticationEntryPoint badCredentialsEntryPoint(ServiceInfoFactory responseFactory,
+                                                                     ObjectMapper objectMapper) {
+        return (request, response, authException) -> writeErrorResponse(
+                response, responseFactory, objectMapper, HttpStatus.UNAUTHORIZED, authException,
+                """
+                Could not authenticate with provided credentials. \
+                If you believe this is a mistake, check your login information.""");
+    }
+
+    /**
+     * @return exception handler for requests without authentication (401)
+     */
+    private static AuthenticationEntryPoint missingCredentialsEntryPoint(ServiceInfoFactory responseFactory,
+                                                                         ObjectMapper objectMapper) {
+        return (request, response, authException) -> writeErrorResponse(
+                response, responseFactory, objectMapper, HttpStatus.UNAUTHORIZED, authException,
+                """
+                YOU SHALL NOT PASS! \
+                This endpoint requires authentication, which you did not bother to provide...""");
+    }
+
+    /**
+     * @return exception handler for requests without proper scope (403)
+     */
+    private static AccessDeniedHandler accessDeniedHandler(ServiceInfoFactory responseFactory,
+                                                           ObjectMapper objectMapper) {
+        return (request, response, accessException) -> writeErrorResponse(
+                response, responseFactory, objectMapper, HttpStatus.FORBIDDEN, accessException,
+                """
+                YOU SHALL NOT PASS! \
+                You do not have permission to access this endpoint. \
+                If you believe this is a mistake, please contact your system administrator.""");
+    }
+
+    /**
+     * Register a Security Filter Chain bean to secure the login endpoint,
+     * the only endpoint which accepts a username and password.
+     * A successful login returns an access token to be used for all other requests
      * REQUIRED AUTOWIRED DEPENDENCIES:
      * @param http Spring's Http Security object, used for security configuration
      * @param responseFactory Used to generate formatted error responses for HTTP consumption
+     * @return the final configured login Security Filter
+     * @throws Exception if the Security Filter cannot be configured for any reason
+     */
+    @Bean @Autowired @Order(1)
+    public SecurityFilterChain configureLogin(HttpSecurity http,
+                                              ServiceInfoFactory responseFactory,
+                                              ObjectMapper objectMapper) throws Exception {
+
+        http    // only requests to the login endpoint will...
+                .securityMatcher("/login")
+                // Be stateless
+                .sessionManagement(session->session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                // only authenticated accounts can access login endpoint
+                .authorizeHttpRequests(authorize -> authorize
+                        .anyRequest().hasAnyAuthority("NUSER", "USER"))
+                // disable cross site protections
+                .csrf(csrf->csrf.disable())
+                // use custom cors config
+                .cors(cors->cors.configurationSource(corsConfigurationSource()))
+                // use default http basic authorization token, provided in http headers
+                .httpBasic(basic->basic.authenticationEntryPoint(
+                        badCredentialsEntryPoint(responseFactory, objectMapper)))
+                .exceptionHandling(exceptions->exceptions
+                        .authenticationEntryPoint(missingCredentialsEntryPoint(responseFactory, objectMapper))
+                        .accessDeniedHandler(accessDeniedHandler(responseFactory, objectMapper)));
+
+        // build http security object, and return if no errors are encountered
+        return http.build();
+    }
+
+    /**
+     * Register a Security Filter Chain bean to secure the prometheus scrape endpoint,
+     * which is read by a metrics collector using its own http basic credentials rather than a user account
+     * REQUIRED AUTOWIRED DEPENDENCIES:
+     * @param http Spring's Http Security object, used for security configuration
+     * @param responseFactory Used to generate formatted error responses for HTTP consumption
+     * @param passwordEncoder used to store the configured scrape password
+     * @param e used to retrieve the configured scrape credentials
+     * @return the final configured metrics Security Filter
+     * @throws Exception if the Security Filter cannot be configured for any reason
+     */
+    @Bean @Autowired @Order(0)
+    public SecurityFilterChain configureMetricsScrape(HttpSecurity http,
+                                                     ServiceInfoFactory responseFactory,
+                                                     ObjectMapper objectMapper,
+                                                     PasswordEncoder passwordEncoder,
+                                                     Environment e) throws Exception {
+
+        // the scrape account only exists once a password has been configured
+        final var scrapeAccounts = new InMemoryUserDetailsManager();
+        final var scrapePassword = e.getProperty("salon.security.metrics-password", "");
+        if (!scrapePassword.isBlank())
+            scrapeAccounts.createUser(User.withUsername(e.getRequiredProperty("salon.security.metrics-username"))
+                    .password(passwordEncoder.encode(scrapePassword))
+                    .authorities("METRICS")
+                    .build());
+
+        final var scrapeAuthentication = new DaoAuthenticationProvider();
+        scrapeAuthentication.setUserDetailsService(scrapeAccounts);
+        scrapeAuthentication.setPasswordEncoder(passwordEncoder);
+
+        http    // only requests to the prometheus endpoint will...
+                .securityMatcher("/actuator/prometheus")
+                // Be stateless
+                .sessionManagement(session->session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                // only the scrape account can read metrics
+                .authorizeHttpRequests(authorize -> authorize
+                        .anyRequest().hasAuthority("METRICS"))
+                // disable cross site protections
+                .csrf(csrf->csrf.disable())
+                // authenticate with the scrape credentials instead of user accounts
+                .authenticationManager(new ProviderManager(scrapeAuthentication))
+                .httpBasic(basic->basic.authenticationEntryPoint(
+                        badCredentialsEntryPoint(responseFactory, objectMapper)))
+                .exceptionHandling(exceptions->exceptions
+                        .authenticationEntryPoint(missingCredentialsEntryPoint(responseFactory, objectMapper))
+                        .accessDeniedHandler(accessDeniedHandler(responseFactory, objectMapper)));
+
+        // build http security object, and return if no errors are encountered
+        return http.build();
+    }
+
+    /**
+     * Register a Security Filter Chain bean to secure all other web requests
+     * REQUIRED AUTOWIRED DEPENDENCIES:
+     * @param http Spring's Http Security object, used for security configuration
+     * @param responseFactory Used to generate formatted error responses for HTTP consumption
+     * @param accessTokens used to verify access tokens issued at login
      * @return the final configured application Security Filter
      * @throws Exception if the Security Filter cannot be configured for any reason
      */
-    @Bean @Autowired
+    @Bean @Autowired @Order(2)
     public SecurityFilterChain configure(HttpSecurity http,
                                          ServiceInfoFactory responseFactory,
-                                         ObjectMapper objectMapper) throws Exception {
+                                         ObjectMapper objectMapper,
+                                         AccessTokenService accessTokens) throws Exception {
 
         http    // All http requests will...
                 // Be stateless
                 .sessionManagement(session->session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 // Be authorized only by following below rules
                 .authorizeHttpRequests(authorize -> authorize
+                        // streamed responses are written after the original request was authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // requests to user registration endpoint shall be allowed
-                        .requestMatchers("/register", "/health", "/public/**").permitAll()
+                        .requestMatchers("/register", "/health", "/health/deep", "/public/**").permitAll()
                         // only new user accounts should have access to account registration endpoints
                         .requestMatchers("/newUser/**").hasAuthority("NUSER")
-                        // only authenticated accounts can access login endpoint
-                        .requestMatchers("/login").hasAnyAuthority("NUSER", "USER")
                         // only complete user accounts can access user management endpoints
                         .requestMatchers("/user/**").hasAuthority("USER")
                         // only employees can access biz management endpoints
@@ -140,6 +316,8 @@ public class WebSecurityConfig {
                         .requestMatchers("/client/**").hasAuthority("CLIENT")
                         // clients and employees have accessed to shared endpoints
                         .requestMatchers("/shared/**").hasAnyAuthority("CLIENT","EMPLOYEE")
+                        // only employees can read operational metrics
+                        .requestMatchers("/actuator/**").hasAuthority("EMPLOYEE")
                         // employees and clients may have access to remaining endpoints
                         .anyRequest().denyAll()
                 )
@@ -147,83 +325,17 @@ public class WebSecurityConfig {
                 .csrf(csrf->csrf.disable())
                 // use custom cors config
                 .cors(cors->cors.configurationSource(corsConfigurationSource()))
-                // use default http basic authorization token, provided in http headers
-                // and register exception handler for requests with bad credentials (401)
-                .httpBasic(basic->basic.authenticationEntryPoint((request, response, authException) -> {
-                    // create a formatted Http Response
-                    var customErrorResponse =
-                        responseFactory.getHttpErrorResponse(
-                            // status should be 401
-                            HttpStatus.UNAUTHORIZED,
-                            // error should be the exception encountered in the filter chain
-                            authException.getClass().getSimpleName(),
-                            // error description to include in response
-                            """
-                            Could not authenticate with provided credentials. \
-                            If you believe this is a mistake, check your login information."""
-                        );
-
-                    // write the body of the generated Http Response to actual Response
-                    response.getOutputStream().println(
-                            objectMapper.writeValueAsString(customErrorResponse.getBody()));
-                    // content type of response will be json
-                    response.setContentType("application/json");
-                    // status of response should be 401
-                    response.setStatus(customErrorResponse.getStatusCode().value());
-                    // continue response chain
-                }))
-                // register exception handler for requests without authentication (401)
+                // authenticate requests with the Bearer access token issued at login,
+                // tokens are verified with a signature check only, no db or password work is needed
+                .addFilterBefore(
+                        new AccessTokenFilter(accessTokens, badCredentialsEntryPoint(responseFactory, objectMapper)),
+                        AnonymousAuthenticationFilter.class)
+                // register exception handlers for requests without authentication (401) or proper scope (403)
                 .exceptionHandling(exceptions->exceptions
-                .authenticationEntryPoint((request, response, authException) -> {
-                    // create a formatted Http Response
-                    var customErrorResponse =
-                        responseFactory.getHttpErrorResponse(
-                            // status should be 401
-                            HttpStatus.UNAUTHORIZED,
-                            // error should be the exception encountered in the filter chain
-                            authException.getClass().getSimpleName(),
-                            // error description to include in response
-                            """ 
-                            YOU SHALL NOT PASS! \
-                            This endpoint requires authentication, which you did not bother to provide..."""
-                        );
-
-                    // write the body of the generated Http Response to actual Response
-                    response.getOutputStream().println(
-                            objectMapper.writeValueAsString(customErrorResponse.getBody()));
-                    // content type of response will be json
-                    response.setContentType("application/json");
-                    // status of response should be 401
-                    response.setStatus(customErrorResponse.getStatusCode().value());
-                    // continue response chain
-                })
-                // register exception handler for requests without proper scope (403)
-                .accessDeniedHandler((request, response, authException) -> {
-                    // create a formatted Http Response
-                    var customErrorResponse =
-                        responseFactory.getHttpErrorResponse(
-                            // status should be 401
-                            HttpStatus.FORBIDDEN,
-                            // error should be the exception encountered in the filter chain
-                            authException.getClass().getSimpleName(),
-                            // error description to include in response
-                            """ 
-                            YOU SHALL NOT PASS! \
-                            You do not have permission to access this endpoint. \
-                            If you believe this is a mistake, please contact your system administrator."""
-                        );
-
-                    // write the body of the generated Http Response to actual Response
-                    response.getOutputStream().println(
-                            objectMapper.writeValueAsString(customErrorResponse.getBody()));
-                    // content type of response will be json
-                    response.setContentType("application/json");
-                    // status of response should be 401
-                    response.setStatus(customErrorResponse.getStatusCode().value());
-                    // continue response chain
-                }));
+                        .authenticationEntryPoint(missingCredentialsEntryPoint(responseFactory, objectMapper))
+                        .accessDeniedHandler(accessDeniedHandler(responseFactory, objectMapper)));
 
         // build http security object, and return if no errors are encountered
         return http.build();
     }
-}
\ No newline at end of file
+}
@@ -46,6 +46,24 @@ public class ClientController {
         return ResponseEntity.ok(book);
     }
 
+    /**
+     * HTTP Post endpoint to search appointment openings over several days with several employees,
+     * replacing one request per employee per day
+     *
+     * @param principal currently authenticated client
+     * @param request search parameters
+     * @return a page of appointment openings, earliest first
+     * @throws Exception return error response if appointment openings could not be retrieved
+     */
+    @PostMapping("/schedule/search")
+    public ResponseEntity<ServiceOpeningPage> searchAppointmentOpenings(
+            @AuthenticationPrincipal UserAccount principal,
+            @RequestBody AppointmentSearchRequest request
+    ) throws Exception {
+        var openings = schedule.searchAppointmentOpenings(principal, request);
+        return ResponseEntity.ok(openings);
+    }
+
     /**
      * Http Post endpoint to book an appointment
      *
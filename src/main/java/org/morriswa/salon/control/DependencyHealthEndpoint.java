@@ -0,0 +1,32 @@
+package org.morriswa.salon.control;
+
+import org.morriswa.salon.model.HealthReport;
+import org.morriswa.salon.utility.HealthProbe;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * operational endpoint detailing the health of every dependency, served at /actuator/dependencies to employees only
+ * as probe results describe failures and connection pools
+ */
+@Component
+@Endpoint(id = "dependencies")
+public class DependencyHealthEndpoint {
+
+    private final HealthProbe healthProbe;
+
+    @Autowired
+    public DependencyHealthEndpoint(HealthProbe healthProbe) {
+        this.healthProbe = healthProbe;
+    }
+
+    /**
+     * @return the most recent background probe results
+     */
+    @ReadOperation
+    public HealthReport dependencies() {
+        return healthProbe.report();
+    }
+}
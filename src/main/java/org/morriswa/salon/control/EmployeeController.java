@@ -4,12 +4,15 @@ import org.morriswa.salon.model.*;
 import org.morriswa.salon.service.ProfileService;
 import org.morriswa.salon.service.ProvidedServiceService;
 import org.morriswa.salon.service.SchedulingService;
+import org.morriswa.salon.utility.JsonStreamWriter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.net.URL;
 import java.time.LocalDate;
@@ -29,12 +32,16 @@ public class EmployeeController {
     private final SchedulingService schedule;
     private final ProvidedServiceService providedServices;
     private final ProfileService profileService;
+    private final JsonStreamWriter json;
+
+    private static final String NDJSON = "application/x-ndjson";
 
     @Autowired
-    public EmployeeController(SchedulingService schedule, ProvidedServiceService providedServices, ProfileService profileService) {
+    public EmployeeController(SchedulingService schedule, ProvidedServiceService providedServices, ProfileService profileService, JsonStreamWriter json) {
         this.schedule = schedule;
         this.providedServices = providedServices;
         this.profileService = profileService;
+        this.json = json;
     }
 
     /**
@@ -54,20 +61,38 @@ public class EmployeeController {
     }
 
     /**
-     * Http GET endpoint used to retrieve all stored information about the currently authenticated user
+     * Http POST endpoint used to upload a new profile image for the currently authenticated employee,
+     * the image is scaled and stored in the background
      *
      * @param principal currently authenticated User Account
-     * @return profile and contact information about the user if operation was successful, else error response
+     * @param image new profile image
+     * @return accepted upload, which can be polled for progress
      */
     @PostMapping("/profile/image")
-    public ResponseEntity<Void> updateProfileImage(
+    public ResponseEntity<ImageUploadJob> updateProfileImage(
             @AuthenticationPrincipal UserAccount principal,
             @RequestPart MultipartFile image
     ) throws Exception{
-        // using the user profile service, retrieve the current users profile
-        profileService.updateEmployeeProfileImage(principal, image);
-        // and return it to them in JSON format
-        return ResponseEntity.noContent().build();
+        // using the user profile service, queue the new profile image
+        var upload = profileService.updateEmployeeProfileImage(principal, image);
+        // and return the queued upload in JSON format
+        return ResponseEntity.accepted().body(upload);
+    }
+
+    /**
+     * Http GET endpoint used to poll the progress of an image upload
+     *
+     * @param principal currently authenticated User Account
+     * @param jobId returned when the image was uploaded
+     * @return current state of the upload
+     */
+    @GetMapping("/image/{jobId}")
+    public ResponseEntity<ImageUploadJob> getImageUpload(
+            @AuthenticationPrincipal UserAccount principal,
+            @PathVariable String jobId
+    ) throws Exception{
+        var upload = profileService.retrieveImageUpload(principal, jobId);
+        return ResponseEntity.ok(upload);
     }
 
     /**
@@ -92,12 +117,14 @@ public class EmployeeController {
      * HTTP Get endpoint for employees to view all the services they are providing to users
      *
      * @param principal currently authenticated employee
-     * @return an array of provided services
+     * @return an array of provided services, written as services are retrieved
      */
     @GetMapping("/services")
-    public ResponseEntity<List<ProvidedService>> retrieveAllProvidedServices(@AuthenticationPrincipal UserAccount principal) {
-        var services = providedServices.retrieveEmployeesServices(principal.getUserId());
-        return ResponseEntity.ok(services);
+    public ResponseEntity<StreamingResponseBody> retrieveAllProvidedServices(@AuthenticationPrincipal UserAccount principal) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(json.<ProvidedService>array(services ->
+                        providedServices.streamEmployeesServices(principal.getUserId(), services)));
     }
 
     /**
@@ -142,17 +169,17 @@ public class EmployeeController {
      * @param principal currently authenticated employee
      * @param serviceId associated with the service to modify
      * @param image an image to add to service's profile
-     * @return no content
-     * @throws Exception return error response if the image could not be stored
+     * @return accepted upload, which can be polled for progress
+     * @throws Exception return error response if the image could not be queued
      */
     @PostMapping("/service/{serviceId}")
-    public ResponseEntity<Void> uploadProvidedServiceImage(
+    public ResponseEntity<ImageUploadJob> uploadProvidedServiceImage(
         @AuthenticationPrincipal UserAccount principal,
         @PathVariable Long serviceId,
         @RequestPart MultipartFile image
     ) throws Exception {
-        providedServices.uploadProvidedServiceImage(principal, serviceId, image);
-        return ResponseEntity.noContent().build();
+        var upload = providedServices.uploadProvidedServiceImage(principal, serviceId, image);
+        return ResponseEntity.accepted().body(upload);
     }
 
     /**
@@ -203,23 +230,70 @@ public class EmployeeController {
     }
 
     /**
-     * HTTP Get endpoint to retrieve an employee's currently scheduled appointments
+     * HTTP Get endpoint to retrieve all of an employee's currently scheduled appointments
      *
      * @param principal currently authenticated employee
      * @param untilDate last date to retrieve appointments for
      * @return all scheduled appointments if successful, else error response
+     * @throws Exception return error response if the timeframe is too long
      */
     @GetMapping("/schedule")
     public ResponseEntity<List<Appointment>> retrieveSchedule(
             @AuthenticationPrincipal UserAccount principal,
             @RequestParam Optional<LocalDate> untilDate
-    ) {
+    ) throws Exception {
         final var retrieved = schedule.retrieveEmployeeSchedule(principal,
             // if the user doesn't provide a date, only get the schedule for the next 2 weeks
             untilDate.orElse(LocalDate.now().plusWeeks(2L)));
         return ResponseEntity.ok(retrieved);
     }
 
+    /**
+     * HTTP Get endpoint to retrieve a page of an employee's currently scheduled appointments
+     *
+     * @param principal currently authenticated employee
+     * @param untilDate last date to retrieve appointments for
+     * @param after cursor returned with the previous page, omit to retrieve the first page
+     * @param pageSize maximum number of appointments to retrieve
+     * @return a page of scheduled appointments if successful, else error response
+     * @throws Exception return error response if the cursor or page size is invalid
+     */
+    @GetMapping("/schedule/page")
+    public ResponseEntity<AppointmentPage> retrieveSchedulePage(
+            @AuthenticationPrincipal UserAccount principal,
+            @RequestParam Optional<LocalDate> untilDate,
+            @RequestParam Optional<String> after,
+            @RequestParam Optional<Integer> pageSize
+    ) throws Exception {
+        final var retrieved = schedule.retrieveEmployeeSchedulePage(principal,
+            // if the user doesn't provide a date, only get the schedule for the next 2 weeks
+            untilDate.orElse(LocalDate.now().plusWeeks(2L)),
+            after.orElse(null), pageSize.orElse(null));
+        return ResponseEntity.ok(retrieved);
+    }
+
+    /**
+     * HTTP Get endpoint to export all of an employee's currently scheduled appointments,
+     * appointments are streamed as newline delimited JSON while they are read
+     *
+     * @param principal currently authenticated employee
+     * @param untilDate last date to export appointments for
+     * @return every scheduled appointment, one JSON object per line
+     */
+    @GetMapping(path = "/schedule/export", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportSchedule(
+            @AuthenticationPrincipal UserAccount principal,
+            @RequestParam Optional<LocalDate> untilDate
+    ) {
+        // if the user doesn't provide a date, only export the schedule for the next 2 weeks
+        final var lastDay = untilDate.orElse(LocalDate.now().plusWeeks(2L));
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(json.<Appointment>lines(appointments ->
+                        schedule.exportEmployeeSchedule(principal, lastDay, appointments)));
+    }
+
     /**
      * HTTP Patch endpoint to modify details of a scheduled appointment
      *
@@ -1,5 +1,8 @@
 package org.morriswa.salon.control;
 
+import org.morriswa.salon.enumerated.HealthStatus;
+import org.morriswa.salon.model.HealthReport;
+import org.morriswa.salon.utility.HealthProbe;
 import org.morriswa.salon.utility.ServiceInfoFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -18,10 +21,12 @@ import org.springframework.web.bind.annotation.RestController;
 public class HealthController {
 
     private final ServiceInfoFactory response;
+    private final HealthProbe healthProbe;
 
     @Autowired
-    public HealthController(ServiceInfoFactory response) {
+    public HealthController(ServiceInfoFactory response, HealthProbe healthProbe) {
         this.response = response;
+        this.healthProbe = healthProbe;
     }
 
     /**
@@ -32,4 +37,20 @@ public class HealthController {
     public ResponseEntity<ServiceInfoFactory.ServiceInfoResponse> getServiceHealth() {
         return response.getHttpResponseWithServiceInfo(HttpStatus.OK, "All is good on our end!");
     }
+
+    /**
+     * Public HTTP Get method used by load balancers to stop routing to an instance whose dependencies are failing.
+     * Reports the most recent background probes, so answering makes no calls to the database or S3.
+     * Details of each dependency are only available to employees at /actuator/dependencies
+     * @return the overall health of the database, its connection pools and S3, with 503 if any of them are unhealthy
+     */
+    @GetMapping("/health/deep")
+    public ResponseEntity<HealthReport> getDeepServiceHealth() {
+        final var status = healthProbe.report().status();
+
+        // degraded instances can still serve requests, only unhealthy instances should be taken out of rotation
+        return ResponseEntity
+                .status(status == HealthStatus.Unhealthy? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.OK)
+                .body(new HealthReport(status, null));
+    }
 }
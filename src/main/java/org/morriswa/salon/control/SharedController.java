@@ -2,14 +2,20 @@ package org.morriswa.salon.control;
 
 import org.morriswa.salon.model.ProvidedService;
 import org.morriswa.salon.model.ProvidedServiceDetails;
+import org.morriswa.salon.model.ProvidedServiceSummary;
 import org.morriswa.salon.model.PublicEmployeeProfile;
+import org.morriswa.salon.model.SearchSuggestion;
 import org.morriswa.salon.service.ProfileService;
 import org.morriswa.salon.service.ProvidedServiceService;
+import org.morriswa.salon.utility.JsonStreamWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * provides a REST API for performing client and employee tasks
@@ -22,25 +28,28 @@ import java.util.List;
 public class SharedController {
 
     private final ProvidedServiceService providedServices;
+    private final JsonStreamWriter json;
 
     @Autowired
-    public SharedController(ProvidedServiceService providedServices) {
+    public SharedController(ProvidedServiceService providedServices, JsonStreamWriter json) {
         this.providedServices = providedServices;
+        this.json = json;
     }
 
 
     /**
      * HTTP Get endpoint for employees to view all the services they are providing to users
      *
-     * @return an array of provided services
-     * @throws Exception return error response if employee's services could not be retrieved
+     * @return an array of provided services, written as services are retrieved
      */
     @GetMapping("/employee/{employeeId}/services")
-    public ResponseEntity<List<ProvidedService>> retrieveAllProvidedServices(
+    public ResponseEntity<StreamingResponseBody> retrieveAllProvidedServices(
             @PathVariable Long employeeId
-    ) throws Exception {
-        var services = providedServices.retrieveEmployeesServices(employeeId);
-        return ResponseEntity.ok(services);
+    ) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(json.<ProvidedService>array(services ->
+                        providedServices.streamEmployeesServices(employeeId, services)));
     }
 
     /**
@@ -61,13 +70,34 @@ public class SharedController {
      * HTTP Get endpoint to search available services
      *
      * @param searchText to return results for
-     * @return list of provided services
+     * @param offset number of best matches to skip
+     * @param limit most matches to return
+     * @return a page of provided services, best matches first
+     * @throws Exception if the request was not valid
      */
     @GetMapping("/services")
-    public ResponseEntity<List<ProvidedServiceDetails>> searchAvailableService(
-            @RequestParam String searchText
-    ) {
-        final var services = providedServices.searchAvailableService(searchText);
-        return ResponseEntity.ok(services);
+    public ResponseEntity<List<ProvidedServiceSummary>> searchAvailableService(
+            @RequestParam String searchText,
+            @RequestParam Optional<Integer> offset,
+            @RequestParam Optional<Integer> limit
+    ) throws Exception {
+        return ResponseEntity.ok(providedServices.searchAvailableService(
+                searchText, offset.orElse(null), limit.orElse(null)));
+    }
+
+    /**
+     * HTTP Get endpoint to complete search text as it is typed
+     *
+     * @param prefix search text typed so far
+     * @param limit most suggestions to return
+     * @return service and employee names starting with the prefix, with only the ids needed to open them
+     * @throws Exception if the request was not valid
+     */
+    @GetMapping("/services/suggest")
+    public ResponseEntity<List<SearchSuggestion>> suggestAvailableServices(
+            @RequestParam String prefix,
+            @RequestParam Optional<Integer> limit
+    ) throws Exception {
+        return ResponseEntity.ok(providedServices.suggestAvailableServices(prefix, limit.orElse(null)));
     }
 }
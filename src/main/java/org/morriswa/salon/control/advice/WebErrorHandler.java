@@ -1,6 +1,7 @@
 package org.morriswa.salon.control.advice;
 
 import org.morriswa.salon.exception.BadRequestException;
+import org.morriswa.salon.exception.ServiceUnavailableException;
 import org.morriswa.salon.exception.ValidationException;
 import org.morriswa.salon.utility.ServiceInfoFactory;
 import org.slf4j.Logger;
@@ -11,6 +12,8 @@ import org.springframework.dao.DataAccessException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
@@ -74,6 +77,29 @@ public class WebErrorHandler {
             e.getMessage());
     }
 
+    @ExceptionHandler(ServiceUnavailableException.class) // exception handler for temporarily overloaded resources
+    public ResponseEntity<?> serviceUnavailable(Exception e, WebRequest r) {
+        // and ask the user to try again later [503]
+        return responseFactory.getHttpErrorResponse(
+            HttpStatus.SERVICE_UNAVAILABLE,
+            e.getClass().getSimpleName(),
+            e.getMessage());
+    }
+
+    @ExceptionHandler({ // exception handlers for requests that timed out waiting on the connection pool
+        CannotGetJdbcConnectionException.class,
+        CannotCreateTransactionException.class
+    })
+    public ResponseEntity<?> databaseUnavailable(Exception e, WebRequest r) {
+        log.warn("Could not acquire a database connection: {}", e.getMessage());
+
+        // and ask the user to try again later [503]
+        return responseFactory.getHttpErrorResponse(
+            HttpStatus.SERVICE_UNAVAILABLE,
+            ServiceUnavailableException.class.getSimpleName(),
+            "Service is busy, please try again later");
+    }
+
     @ExceptionHandler(ValidationException.class) // exception handler for expected validation errors
     public ResponseEntity<?> validationErrors(Exception e, WebRequest r) {
         ValidationException ve = (ValidationException) e;
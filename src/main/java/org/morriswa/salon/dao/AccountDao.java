@@ -20,6 +20,21 @@ public interface AccountDao {
      */
     UserAccount findUser(String username);
 
+    /**
+     * retrieves a user by id, used when a request was authenticated without loading the user from the database
+     *
+     * @param userId of the user to retrieve
+     * @return the requested user, including their encoded password
+     */
+    UserAccount findUser(Long userId);
+
+    /**
+     * @param userId of the user
+     * @return version carried by access tokens issued to the user, tokens with any other version are revoked,
+     * or null if the user does not exist
+     */
+    Integer retrieveTokenVersion(Long userId);
+
     /**
      * puts a new user in the database
      *
@@ -29,7 +44,7 @@ public interface AccountDao {
     void register(String username, String password) throws Exception;
 
     /**
-     * updates a user's account password
+     * updates a user's account password, revoking every access token issued to the user
      *
      * @param userId of the authenticated user
      * @param currentEncodedPassword from the database
@@ -14,7 +14,10 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.ZoneId;
 import java.util.*;
 
@@ -37,10 +40,9 @@ public class AccountDaoImpl implements AccountDao {
         this.encoder = encoder;
     }
 
-    @Override
-    public UserAccount findUser(String username) {
-        // defn query, inject params, query database and return the result
-        final var query = """
+    // selects a user account and every flag required to determine its authorities,
+    // must be completed with a where clause
+    private static final String FIND_USER_QUERY = """
             select
                     uac.user_id,
                     uac.username,
@@ -52,53 +54,81 @@ public class AccountDaoImpl implements AccountDao {
                     as registered_employee,
                         IFNULL((select 1 from client where client_id=uac.user_id), 0)
                     as registered_client
-                from user_account uac where username=:username""";
+                from user_account uac""";
+
+    @Override
+    public UserAccount findUser(String username) {
+        // defn query, inject params, query database and return the result
+        final var query = FIND_USER_QUERY + " where username=:username";
 
         final var params = Map.of("username",username);
         return database.query(query, params, rs->{
             // check that a database record exists
-            if (rs.next()) {
-
-                final boolean isRegistered = rs.getLong("registered_user")==1;
-                final boolean isClient = rs.getLong("registered_client")==1;
-                final boolean isEmployee = rs.getLong("registered_employee")==1;
-
-                var perms = new HashSet<SimpleGrantedAuthority>();
-
-                // if user has neither client nor employee privileges
-                // they are considered a new user
-                if (!(isClient||isEmployee))
-                    perms.add(new SimpleGrantedAuthority("NUSER"));
-
-                // if user is registered in contact info table, they are considered a user
-                if (isRegistered) perms.add(new SimpleGrantedAuthority("USER"));
-
-                // if user is registered in employee table, they are considered an employee
-                if (isEmployee) perms.add(new SimpleGrantedAuthority("EMPLOYEE"));
-
-                // if user is registered in client table, they are considered a client
-
-                if (isClient) perms.add(new SimpleGrantedAuthority("CLIENT"));
-
-                // and return the requested user, formatted for compatibility with Spring Security Filter
-                return new UserAccount(
-                    // retrieve column "user_id" from result set as Long
-                    rs.getLong("user_id"),
-                    // retrieve column "username" from result set as String
-                    rs.getString("username"),
-                    // retrieve column "password" from result set as String
-                    rs.getString("password"),
-                    // retrieve column "date_created" from result set as Timestamp
-                    rs.getTimestamp("date_created")
-                        // and cast to Zoned Date Time at System Date.
-                        .toLocalDateTime().atZone(ZoneId.systemDefault()),
-                    perms);
-            }
+            if (rs.next()) return toUserAccount(rs);
             // if a record is not found, throw an exception. This will trigger a 401 Http Response.
             throw new UsernameNotFoundException(String.format("Could not locate user %s", username));
         });
     }
 
+    @Override
+    public UserAccount findUser(Long userId) {
+        final var query = FIND_USER_QUERY + " where user_id=:userId";
+
+        final var params = Map.of("userId", userId);
+        return database.query(query, params, rs->{
+            if (rs.next()) return toUserAccount(rs);
+            throw new UsernameNotFoundException(String.format("Could not locate user %d", userId));
+        });
+    }
+
+    @Override
+    public Integer retrieveTokenVersion(Long userId) {
+        final var query = "select token_version from user_account where user_id=:userId";
+
+        final var params = Map.of("userId", userId);
+        return database.query(query, params, rs->{
+            if (rs.next()) return rs.getInt("token_version");
+            return null;
+        });
+    }
+
+    private UserAccount toUserAccount(ResultSet rs) throws SQLException {
+        final boolean isRegistered = rs.getLong("registered_user")==1;
+        final boolean isClient = rs.getLong("registered_client")==1;
+        final boolean isEmployee = rs.getLong("registered_employee")==1;
+
+        var perms = new HashSet<SimpleGrantedAuthority>();
+
+        // if user has neither client nor employee privileges
+        // they are considered a new user
+        if (!(isClient||isEmployee))
+            perms.add(new SimpleGrantedAuthority("NUSER"));
+
+        // if user is registered in contact info table, they are considered a user
+        if (isRegistered) perms.add(new SimpleGrantedAuthority("USER"));
+
+        // if user is registered in employee table, they are considered an employee
+        if (isEmployee) perms.add(new SimpleGrantedAuthority("EMPLOYEE"));
+
+        // if user is registered in client table, they are considered a client
+
+        if (isClient) perms.add(new SimpleGrantedAuthority("CLIENT"));
+
+        // and return the requested user, formatted for compatibility with Spring Security Filter
+        return new UserAccount(
+            // retrieve column "user_id" from result set as Long
+            rs.getLong("user_id"),
+            // retrieve column "username" from result set as String
+            rs.getString("username"),
+            // retrieve column "password" from result set as String
+            rs.getString("password"),
+            // retrieve column "date_created" from result set as Timestamp
+            rs.getTimestamp("date_created")
+                // and cast to Zoned Date Time at System Date.
+                .toLocalDateTime().atZone(ZoneId.systemDefault()),
+            perms);
+    }
+
     private void expectDuplicateError(
             String table,
             String column,
@@ -118,6 +148,7 @@ public class AccountDaoImpl implements AccountDao {
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void register(String username, String password) throws Exception {
         // database should always store an encrypted password
         final String encPassword = encoder.encode(password);
@@ -135,6 +166,7 @@ public class AccountDaoImpl implements AccountDao {
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void updateUserPassword(Long userId, String currentEncodedPassword, String currentPassword, String newPassword) throws Exception {
         //Checking to see if the current password coming from the form matches the encoded password in our table
         if(!encoder.matches(currentPassword, currentEncodedPassword)){
@@ -144,8 +176,9 @@ public class AccountDaoImpl implements AccountDao {
 
         //Encode the newPassword set by the user
         final var newEncodedPassword = encoder.encode(newPassword);
-        //Query the user_account table to set the password to the newEncodedPassword by userID
-        final var query = "UPDATE user_account SET password = :newPassword WHERE user_id = :userId";
+        //Query the user_account table to set the password to the newEncodedPassword by userID,
+        //moving to a new token version so access tokens issued with the old password are rejected
+        final var query = "UPDATE user_account SET password = :newPassword, token_version = token_version + 1 WHERE user_id = :userId";
         //Mapping
         final var params = Map.of("userId",userId, "newPassword",newEncodedPassword); 
 
@@ -154,6 +187,7 @@ public class AccountDaoImpl implements AccountDao {
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void changeUsername(Long userId, String newUsername) throws Exception {
         final var query = "UPDATE user_account SET username = :newUsername WHERE user_id = :userId";
         final var params = Map.of("newUsername", newUsername, "userId", userId);
@@ -168,6 +202,7 @@ public class AccountDaoImpl implements AccountDao {
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void enterContactInfo(Long userId, UserInfo request) throws Exception {
 
         final var query = """
@@ -217,6 +252,7 @@ public class AccountDaoImpl implements AccountDao {
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void completeClientRegistration(Long userId) {
         final var query = "insert into client (client_id) values (:userId)";
         final var params = Map.of("userId", userId);
@@ -224,6 +260,7 @@ public class AccountDaoImpl implements AccountDao {
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void completeEmployeeRegistration(Long userId) {
         final var query = "insert into employee (employee_id) values (:userId)";
         final var params = Map.of("userId", userId);
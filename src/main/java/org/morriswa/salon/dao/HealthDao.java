@@ -0,0 +1,14 @@
+package org.morriswa.salon.dao;
+
+/**
+ * provides an interface for checking that the database is reachable
+ */
+public interface HealthDao {
+
+    /**
+     * runs the cheapest possible query against the database
+     *
+     * @throws org.springframework.dao.DataAccessException if the database could not be reached
+     */
+    void ping();
+}
@@ -0,0 +1,23 @@
+package org.morriswa.salon.dao;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+@Component
+public class HealthDaoImpl implements HealthDao {
+
+    private final NamedParameterJdbcTemplate database;
+
+    @Autowired
+    public HealthDaoImpl(NamedParameterJdbcTemplate database) {
+        this.database = database;
+    }
+
+    @Override
+    public void ping() {
+        database.queryForObject("select 1", Map.of(), Integer.class);
+    }
+}
@@ -0,0 +1,43 @@
+package org.morriswa.salon.dao;
+
+import org.morriswa.salon.model.ImageUploadJob;
+
+import java.time.Instant;
+
+/**
+ * provides an interface for recording the progress of images scaled and uploaded in the background,
+ * so the status of an upload can be polled through any instance of the service
+ */
+public interface ImageUploadDao {
+
+    /**
+     * records a newly queued upload
+     *
+     * @param ownerId of the user uploading the image
+     * @param job to record
+     */
+    void createJob(Long ownerId, ImageUploadJob job);
+
+    /**
+     * @param job with its latest status
+     */
+    void updateJob(ImageUploadJob job);
+
+    /**
+     * @param ownerId of the user who uploaded the image
+     * @param jobId returned when the image was submitted
+     * @param updatedSince oldest status that may be returned
+     * @return the job, or null if it does not exist, was last updated before the cutoff or belongs to another user
+     */
+    ImageUploadJob retrieveJob(Long ownerId, String jobId, Instant updatedSince);
+
+    /**
+     * @param jobId of an upload which will never be processed
+     */
+    void deleteJob(String jobId);
+
+    /**
+     * @param cutoff jobs last updated before this time are removed
+     */
+    void deleteJobsUpdatedBefore(Instant cutoff);
+}
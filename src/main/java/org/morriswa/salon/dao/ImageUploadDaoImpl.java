@@ -0,0 +1,91 @@
+package org.morriswa.salon.dao;
+
+import org.morriswa.salon.enumerated.ImageUploadStatus;
+import org.morriswa.salon.model.ImageUploadJob;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+public class ImageUploadDaoImpl implements ImageUploadDao {
+
+    private final NamedParameterJdbcTemplate database;
+
+    @Autowired
+    public ImageUploadDaoImpl(NamedParameterJdbcTemplate database) {
+        this.database = database;
+    }
+
+    @Override
+    public void createJob(Long ownerId, ImageUploadJob job) {
+        final var query = """
+            insert into image_upload_job (job_id, owner_id, content_id, status, error, updated_at)
+                values (:jobId, :ownerId, :contentId, :status, :error, :updatedAt)""";
+
+        final var params = new HashMap<String, Object>(){{
+            put("jobId", job.jobId());
+            put("ownerId", ownerId);
+            put("contentId", job.contentId());
+            put("status", job.status().name());
+            put("error", job.error());
+            put("updatedAt", Timestamp.from(Instant.now()));
+        }};
+
+        database.update(query, params);
+    }
+
+    @Override
+    public void updateJob(ImageUploadJob job) {
+        final var query = """
+            update image_upload_job
+                set status = :status, error = :error, updated_at = :updatedAt
+                where job_id = :jobId""";
+
+        final var params = new HashMap<String, Object>(){{
+            put("jobId", job.jobId());
+            put("status", job.status().name());
+            put("error", job.error());
+            put("updatedAt", Timestamp.from(Instant.now()));
+        }};
+
+        database.update(query, params);
+    }
+
+    @Override
+    public ImageUploadJob retrieveJob(Long ownerId, String jobId, Instant updatedSince) {
+        final var query = """
+            select job_id, content_id, status, error
+                from image_upload_job
+                where job_id = :jobId and owner_id = :ownerId and updated_at >= :updatedSince""";
+
+        final var params = Map.of(
+                "jobId", jobId,
+                "ownerId", ownerId,
+                "updatedSince", Timestamp.from(updatedSince));
+
+        return database.query(query, params, rs -> {
+            if (!rs.next()) return null;
+            return new ImageUploadJob(
+                    rs.getString("job_id"),
+                    rs.getString("content_id"),
+                    ImageUploadStatus.valueOf(rs.getString("status")),
+                    rs.getString("error"));
+        });
+    }
+
+    @Override
+    public void deleteJob(String jobId) {
+        database.update("delete from image_upload_job where job_id = :jobId", Map.of("jobId", jobId));
+    }
+
+    @Override
+    public void deleteJobsUpdatedBefore(Instant cutoff) {
+        database.update("delete from image_upload_job where updated_at < :cutoff",
+                Map.of("cutoff", Timestamp.from(cutoff)));
+    }
+}
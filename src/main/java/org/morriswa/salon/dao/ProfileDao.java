@@ -3,6 +3,9 @@ package org.morriswa.salon.dao;
 import org.morriswa.salon.model.ClientInfo;
 import org.morriswa.salon.model.EmployeeInfo;
 
+import java.util.Collection;
+import java.util.Map;
+
 
 /**
  * provides an interface for interacting with the database to perform essential Client/Employee Profile actions
@@ -39,6 +42,14 @@ public interface ProfileDao {
      */
     EmployeeInfo getEmployeeInfo(Long employeeId) throws Exception;
 
+    /**
+     * retrieves stored employee info for many employees in a single query
+     *
+     * @param employeeIds to retrieve info about
+     * @return all stored employee info keyed by employee id, employees who could not be found are omitted
+     */
+    Map<Long, EmployeeInfo> getEmployeeInfo(Collection<Long> employeeIds);
+
     /**
      * updates an employee's stored info in mysql
      *
@@ -10,7 +10,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -76,6 +80,7 @@ public class ProfileDaoImpl implements ProfileDao {
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void updateClientInfo(Long userId, ClientInfo request) throws Exception {
 
         final var query = """
@@ -142,6 +147,23 @@ public class ProfileDaoImpl implements ProfileDao {
         }
     }
 
+    private static EmployeeInfo toEmployeeInfo(ResultSet resultSet) throws SQLException {
+        return new EmployeeInfo(
+                //Grabbing cols as a string
+                resultSet.getString("first_name"),
+                resultSet.getString("last_name"),
+                Pronouns.getPronounStr(resultSet.getString("pronouns")),
+                resultSet.getString("phone_num"),
+                resultSet.getString("email"),
+                resultSet.getString("addr_one"),
+                resultSet.getString("addr_two"),
+                resultSet.getString("city"),
+                resultSet.getString("state_code"),
+                resultSet.getString("zip_code"),
+                ContactPreference.getEnum(resultSet.getString("contact_pref")).description,
+                resultSet.getString("bio"));
+    }
+
     @Override
     public EmployeeInfo getEmployeeInfo(Long employeeId) throws BadRequestException {
 
@@ -155,26 +177,8 @@ public class ProfileDaoImpl implements ProfileDao {
         final var params = Map.of("employeeId",employeeId);
 
         Optional<EmployeeInfo> retrievedRecord = database.query(query, params, resultSet ->{
-            //Checking if the record exists
-            if(resultSet.next()) {
-
-
-                //If it does, return the Contact Info
-                return Optional.of(new EmployeeInfo(
-                        //Grabbing cols as a string
-                        resultSet.getString("first_name"),
-                        resultSet.getString("last_name"),
-                        Pronouns.getPronounStr(resultSet.getString("pronouns")),
-                        resultSet.getString("phone_num"),
-                        resultSet.getString("email"),
-                        resultSet.getString("addr_one"),
-                        resultSet.getString("addr_two"),
-                        resultSet.getString("city"),
-                        resultSet.getString("state_code"),
-                        resultSet.getString("zip_code"),
-                        ContactPreference.getEnum(resultSet.getString("contact_pref")).description,
-                        resultSet.getString("bio")));
-            }
+            //Checking if the record exists, if it does, return the Contact Info
+            if(resultSet.next()) return Optional.of(toEmployeeInfo(resultSet));
 
             return Optional.empty(); //If it doesn't exist, return empty object
         });
@@ -183,6 +187,30 @@ public class ProfileDaoImpl implements ProfileDao {
     }
 
     @Override
+    public Map<Long, EmployeeInfo> getEmployeeInfo(Collection<Long> employeeIds) {
+
+        // an empty IN list is not valid sql, and there is nothing to look up anyway
+        if (employeeIds.isEmpty()) return new HashMap<>();
+
+        // retrieve every requested employee in a single round trip
+        final var query = """
+            select *
+            from employee emp
+            left join contact_info ci on emp.employee_id = ci.user_id
+            where emp.employee_id in (:employeeIds)""";
+
+        final var params = Map.of("employeeIds", employeeIds);
+
+        return database.query(query, params, resultSet -> {
+            final var employees = new HashMap<Long, EmployeeInfo>();
+            while (resultSet.next())
+                employees.put(resultSet.getLong("employee_id"), toEmployeeInfo(resultSet));
+            return employees;
+        });
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
     public void updateEmployeeProfile(Long employeeId, EmployeeInfo request) throws ValidationException {
         final var query = """
             UPDATE contact_info
@@ -3,8 +3,10 @@ package org.morriswa.salon.dao;
 import org.morriswa.salon.exception.BadRequestException;
 import org.morriswa.salon.model.ProvidedService;
 import org.morriswa.salon.model.ProvidedServiceDetails;
+import org.morriswa.salon.model.ProvidedServiceSummary;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * provides an interface to manage provided service data in mysql
@@ -26,12 +28,19 @@ public interface ProvidedServiceDao {
 // RETRIEVE
 
     /**
-     * searches all provided services
+     * retrieves every offered service, passing each to a consumer as it is read from the database
      *
-     * @param searchText to find related records
-     * @return matching services with details
+     * @param consumer to receive all offered services with their employee's name
      */
-    List<ProvidedServiceDetails> searchAvailableServices(String searchText);
+    void streamAvailableServices(Consumer<ProvidedServiceSummary> consumer);
+
+    /**
+     * retrieves every service offered by a specific employee, along with the employee's name
+     *
+     * @param employeeId to retrieve services for
+     * @return all offered services with their employee's name
+     */
+    List<ProvidedServiceSummary> retrieveAvailableServices(Long employeeId);
 
     /**
      * retrieves all services provided by a specific employee
@@ -41,6 +50,15 @@ public interface ProvidedServiceDao {
      */
     List<ProvidedService> retrieveEmployeesServices(Long employeeId);
 
+    /**
+     * retrieves all services provided by a specific employee,
+     * passing each service to a consumer as it is read from the database
+     *
+     * @param employeeId to retrieve services for
+     * @param consumer to receive provided services
+     */
+    void streamEmployeesServices(Long employeeId, Consumer<ProvidedService> consumer);
+
     /**
      * @param serviceId to retrieve details for
      * @return all details about provided service
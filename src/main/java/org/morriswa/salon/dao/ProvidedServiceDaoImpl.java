@@ -5,73 +5,115 @@ import org.morriswa.salon.enumerated.Pronouns;
 import org.morriswa.salon.exception.BadRequestException;
 import org.morriswa.salon.model.ProvidedService;
 import org.morriswa.salon.model.ProvidedServiceDetails;
+import org.morriswa.salon.model.ProvidedServiceSummary;
+import org.morriswa.salon.utility.ProvidedServiceCatalog;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Component
 public class ProvidedServiceDaoImpl implements ProvidedServiceDao {
 
     private final NamedParameterJdbcTemplate database;
+    private final NamedParameterJdbcTemplate streamingDatabase;
+    private final ProvidedServiceCatalog catalog;
 
     @Autowired
-    public ProvidedServiceDaoImpl(NamedParameterJdbcTemplate database) {
+    public ProvidedServiceDaoImpl(
+            NamedParameterJdbcTemplate database,
+            @Qualifier("streamingJdbcTemplate") NamedParameterJdbcTemplate streamingDatabase,
+            ProvidedServiceCatalog catalog) {
         this.database = database;
+        this.streamingDatabase = streamingDatabase;
+        this.catalog = catalog;
     }
 
-    @Override
-    public List<ProvidedServiceDetails> searchAvailableServices(String searchText) {
-
-        var tokens = searchText.split(" ");
-        var sqlTokens = String.join(" ", Arrays.stream(tokens).map(token->String.format(
-                "%%%s%% *%s*", token, token
-        )).toList());
-
-        final var query = """
-                SELECT *
+    // every offered service along with its employee's name,
+    // results are searched by every user so no employee contact info is selected
+    private static final String AVAILABLE_SERVICES_QUERY = """
+                SELECT ps.service_id, ps.employee_id, ps.provided_service_name, ps.default_cost, ps.default_length,
+                       ci.first_name, ci.last_name
                 FROM provided_service ps
                 JOIN contact_info ci ON ps.employee_id = ci.user_id
-                WHERE
-                    ps.offered = 'Y'
-                    AND (
-                        MATCH (ps.provided_service_name)
-                        AGAINST ((:searchText) IN BOOLEAN MODE)
-                        OR
-                        MATCH (ci.first_name, ci.last_name)
-                        AGAINST ((:searchText) IN BOOLEAN MODE)
-                    )
+                WHERE ps.offered = 'Y'
             """;
 
-        final var params = new HashMap<String, Object>(){{
-            put("searchText", sqlTokens);
-        }};
+    private static final String EMPLOYEES_SERVICES_QUERY = """
+            select *
+            from provided_service
+            where employee_id=:employeeId
+            and   offered='Y'
+            order by offered desc""";
 
-        return database.query(query, params, rs -> {
-            var services = new ArrayList<ProvidedServiceDetails>();
+    private static ProvidedServiceDetails toProvidedServiceDetails(ResultSet rs) throws SQLException {
+        final var employeeInfo = new ProvidedServiceDetails.EmployeeInfo(
+                rs.getLong("employee_id"),
+                rs.getString("first_name"),
+                rs.getString("last_name"),
+                Pronouns.getPronounStr(rs.getString("pronouns")),
+                rs.getString("phone_num"),
+                rs.getString("email"),
+                ContactPreference.getEnum(rs.getString("contact_pref")).description
+        );
+
+        return new ProvidedServiceDetails(
+                rs.getLong("service_id"),
+                rs.getBigDecimal("default_cost"),
+                rs.getInt("default_length")*15,
+                rs.getString("provided_service_name"),
+                employeeInfo
+        );
+    }
 
-            while (rs.next()) {
-                final var employeeInfo = new ProvidedServiceDetails.EmployeeInfo(
+    private static ProvidedServiceSummary toProvidedServiceSummary(ResultSet rs) throws SQLException {
+        return new ProvidedServiceSummary(
+                rs.getLong("service_id"),
+                rs.getBigDecimal("default_cost"),
+                rs.getInt("default_length")*15,
+                rs.getString("provided_service_name"),
+                new ProvidedServiceSummary.EmployeeName(
                         rs.getLong("employee_id"),
                         rs.getString("first_name"),
-                        rs.getString("last_name"),
-                        Pronouns.getPronounStr(rs.getString("pronouns")),
-                        rs.getString("phone_num"),
-                        rs.getString("email"),
-                        ContactPreference.getEnum(rs.getString("contact_pref")).description
-                );
+                        rs.getString("last_name"))
+        );
+    }
 
-                services.add(new ProvidedServiceDetails(
-                        rs.getLong("service_id"),
-                        rs.getBigDecimal("default_cost"),
-                        rs.getInt("default_length")*15,
-                        rs.getString("provided_service_name"),
-                        employeeInfo
-                ));
-            }
+    private static ProvidedService toProvidedService(ResultSet rs) throws SQLException {
+        return new ProvidedService(
+                rs.getLong("service_id"),
+                rs.getBigDecimal("default_cost"),
+                rs.getInt("default_length") * 15,
+                rs.getString("provided_service_name")
+        );
+    }
+
+    @Override
+    public void streamAvailableServices(Consumer<ProvidedServiceSummary> consumer) {
+
+        streamingDatabase.query(AVAILABLE_SERVICES_QUERY, Map.of(),
+                (RowCallbackHandler) rs -> consumer.accept(toProvidedServiceSummary(rs)));
+    }
+
+    @Override
+    public List<ProvidedServiceSummary> retrieveAvailableServices(Long employeeId) {
+
+        final var query = AVAILABLE_SERVICES_QUERY + " AND ps.employee_id = :employeeId";
+
+        final var params = Map.of("employeeId", employeeId);
+
+        return database.query(query, params, rs -> {
+            var services = new ArrayList<ProvidedServiceSummary>();
+
+            while (rs.next()) services.add(toProvidedServiceSummary(rs));
 
             return services;
         });
@@ -122,6 +164,7 @@ public class ProvidedServiceDaoImpl implements ProvidedServiceDao {
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void createProvidedService(Long employeeId, ProvidedService createProvidedServiceRequest) {
 
         final var query = """
@@ -141,6 +184,7 @@ public class ProvidedServiceDaoImpl implements ProvidedServiceDao {
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void deleteProvidedService(Long employeeId, Long serviceId) {
         final var query = """
             update provided_service
@@ -151,9 +195,12 @@ public class ProvidedServiceDaoImpl implements ProvidedServiceDao {
         final var params = Map.of("employeeId",employeeId,"serviceId", serviceId);
 
         database.update(query, params);
+
+        catalog.evict(serviceId);
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void deleteProvidedServiceContent(Long serviceId) {
         final var query = """
             delete from provided_service_content
@@ -165,6 +212,7 @@ public class ProvidedServiceDaoImpl implements ProvidedServiceDao {
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void deleteProvidedServiceContent(Long serviceId, String contentId) {
         final var query = """
             delete from provided_service_content
@@ -177,6 +225,7 @@ public class ProvidedServiceDaoImpl implements ProvidedServiceDao {
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void updateProvidedServiceDetails(Long employeeId, Long serviceId, ProvidedService request) {
         final var query = """
             update provided_service
@@ -195,6 +244,9 @@ public class ProvidedServiceDaoImpl implements ProvidedServiceDao {
         }};
 
         database.update(query, params);
+
+        // scheduling must see the service's new length and cost
+        catalog.evict(serviceId);
     }
 
     @Override
@@ -228,32 +280,33 @@ public class ProvidedServiceDaoImpl implements ProvidedServiceDao {
 
     @Override
     public List<ProvidedService> retrieveEmployeesServices(Long employeeId) {
-        final var query = """
-            select *
-            from provided_service
-            where employee_id=:employeeId
-            and   offered='Y'
-            order by offered desc""";
 
         final var params = new HashMap<String, Object>(){{
             put("employeeId", employeeId);
         }};
 
-        return database.query(query, params, rs -> {
+        return database.query(EMPLOYEES_SERVICES_QUERY, params, rs -> {
             var services = new ArrayList<ProvidedService>();
 
-            while(rs.next()) services.add(new ProvidedService(
-                    rs.getLong("service_id"),
-                    rs.getBigDecimal("default_cost"),
-                    rs.getInt("default_length") * 15,
-                    rs.getString("provided_service_name")
-            ));
+            while(rs.next()) services.add(toProvidedService(rs));
 
             return services;
         });
     }
 
     @Override
+    public void streamEmployeesServices(Long employeeId, Consumer<ProvidedService> consumer) {
+
+        final var params = new HashMap<String, Object>(){{
+            put("employeeId", employeeId);
+        }};
+
+        streamingDatabase.query(EMPLOYEES_SERVICES_QUERY, params,
+                (RowCallbackHandler) rs -> consumer.accept(toProvidedService(rs)));
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
     public void addContentToProvidedService(Long serviceId, String contentId) {
         final var query = """
             insert into provided_service_content (service_id, content_id)
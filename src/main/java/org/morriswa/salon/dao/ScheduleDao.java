@@ -1,11 +1,15 @@
 package org.morriswa.salon.dao;
 
 import org.morriswa.salon.model.Appointment;
+import org.morriswa.salon.model.AppointmentCursor;
 import org.morriswa.salon.model.AppointmentOpening;
 import org.morriswa.salon.model.AppointmentRequest;
+import org.morriswa.salon.model.AppointmentSearchRequest;
+import org.morriswa.salon.model.ServiceOpening;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Provides an interface to maintain the salon's schedule in the database
@@ -36,6 +40,18 @@ public interface ScheduleDao {
      */
     List<AppointmentOpening> retrieveAppointmentOpenings(Long clientId, AppointmentRequest request) throws Exception;
 
+    /**
+     * finds openings with many employees over a range of days
+     *
+     * @param clientId requester
+     * @param request containing validated search params
+     * @param maxEmployees most employees searched when the request names none,
+     *                     employees with the lowest ids offering a matching service are searched first
+     * @param limit most openings to find, no more openings are generated once this many are found
+     * @return the earliest matching openings, earliest first
+     */
+    List<ServiceOpening> retrieveAppointmentOpenings(Long clientId, AppointmentSearchRequest request, int maxEmployees, int limit);
+
     /**
      * @param clientId to retrieve schedule for
      * @return all scheduled appointments
@@ -45,15 +61,27 @@ public interface ScheduleDao {
     List<Appointment> retrieveScheduledAppointments(Long clientId);
 
     /**
-     * retrieves an employees schedule from current time until specified date at end of day
+     * retrieves one page of an employees schedule from current time until specified date at end of day
      *
      * @param employeeId to retrieve schedule for
      * @param untilDate last date to retrieve appointments for
-     * @return all requested appointments, ordered by time
+     * @param after only appointments following this position are retrieved, null to start at current time
+     * @param limit maximum number of appointments to retrieve
+     * @return requested appointments, ordered by time and then appointment id
      *
      * @author Makenna Loewenherz
      */
-    List<Appointment> retrieveEmployeeSchedule(Long employeeId, LocalDate untilDate);
+    List<Appointment> retrieveEmployeeSchedule(Long employeeId, LocalDate untilDate, AppointmentCursor after, int limit);
+
+    /**
+     * retrieves an employees whole schedule from current time until specified date at end of day,
+     * passing each appointment to a consumer as it is read from the database
+     *
+     * @param employeeId to retrieve schedule for
+     * @param untilDate last date to retrieve appointments for
+     * @param consumer to receive appointments, ordered by time and then appointment id
+     */
+    void streamEmployeeSchedule(Long employeeId, LocalDate untilDate, Consumer<Appointment> consumer);
 
     /**
      * @param employeeId attempting to edit an existing appointment
@@ -4,24 +4,36 @@ import org.morriswa.salon.enumerated.AppointmentStatus;
 import org.morriswa.salon.enumerated.ContactPreference;
 import org.morriswa.salon.exception.BadRequestException;
 import org.morriswa.salon.model.Appointment;
+import org.morriswa.salon.model.AppointmentCursor;
 import org.morriswa.salon.model.AppointmentOpening;
 import org.morriswa.salon.model.AppointmentRequest;
+import org.morriswa.salon.model.AppointmentSearchRequest;
 import org.morriswa.salon.model.ProvidedService;
+import org.morriswa.salon.model.ServiceOpening;
+import org.morriswa.salon.utility.AvailabilityCache;
+import org.morriswa.salon.utility.ProvidedServiceCatalog;
+import org.morriswa.salon.utility.ScheduleBitmap;
 import org.morriswa.salon.utility.TimeZoneUtil;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.morriswa.salon.validation.StrTools;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSourceUtils;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.*;
 import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * AUTHOR: William A. Morris, Makenna Loewenherz
@@ -37,27 +49,48 @@ public class ScheduleDaoImpl  implements ScheduleDao{
     private final LocalTime SALON_OPEN;
     private final LocalTime SALON_CLOSE;
     private final ZoneId UTC = ZoneId.of("+00:00");
+    private static final long SLOT_SECONDS = ScheduleBitmap.SLOT_MINUTES * 60L;
 
     private final NamedParameterJdbcTemplate database;
+    private final NamedParameterJdbcTemplate streamingDatabase;
+    private final AvailabilityCache availability;
+    private final ProvidedServiceCatalog services;
+
+    /**
+     * a service that may be booked with an employee, length is stored in slots
+     */
+    private record BookableService(Long serviceId, Long employeeId, String name, int length) { }
 
 
     @Autowired
     public ScheduleDaoImpl(
             TimeZoneUtil time,
-            NamedParameterJdbcTemplate database) {
+            NamedParameterJdbcTemplate database,
+            @Qualifier("streamingJdbcTemplate") NamedParameterJdbcTemplate streamingDatabase,
+            AvailabilityCache availability,
+            ProvidedServiceCatalog services) {
         // initialize time settings
         SALON_TIME_ZONE = time.getZoneOfSalon();
         SALON_OPEN = time.getSalonOpen();
         SALON_CLOSE = time.getSalonClose();
 
         this.database = database;
+        this.streamingDatabase = streamingDatabase;
+        this.availability = availability;
+        this.services = services;
     }
 
 
     private ProvidedService retrieveProvidedService(Long serviceId) throws BadRequestException {
 
+        // services rarely change, so reuse them across searches and bookings
+        return services.retrieve(serviceId, this::readProvidedService);
+    }
+
+    private ProvidedService readProvidedService(Long serviceId) throws BadRequestException {
+
         final var queryLength = """
-            select *
+            select service_id, default_cost, default_length, provided_service_name
             from provided_service
             where service_id=:serviceId
             """;
@@ -81,199 +114,287 @@ public class ScheduleDaoImpl  implements ScheduleDao{
 
     }
 
-    @Override
-    public List<AppointmentOpening> retrieveAppointmentOpenings(Long clientId, AppointmentRequest request) throws BadRequestException {
-
-        // get beginning of day in salon's timezone
-        final var salonOpen = request.searchDate().toInstant()
-                .atZone(SALON_TIME_ZONE)
-                .withHour(SALON_OPEN.getHour())
-                .withMinute(SALON_OPEN.getMinute())
+    /**
+     * @param day in the salon's time zone
+     * @return the instant the salon opens on requested day, in UTC
+     */
+    private ZonedDateTime salonOpenOn(LocalDate day) {
+        return ZonedDateTime.of(day, SALON_OPEN, SALON_TIME_ZONE)
                 .truncatedTo(ChronoUnit.MINUTES)
-                .toInstant().atZone(UTC);
+                .withZoneSameInstant(UTC);
+    }
 
-        // get end of day in salon's timezone, mark as end of search
-        final var salonClose = request.searchDate().toInstant()
-                .atZone(SALON_TIME_ZONE)
-                .withHour(SALON_CLOSE.getHour())
-                .withMinute(SALON_CLOSE.getMinute())
+    /**
+     * @param day in the salon's time zone
+     * @return the instant the salon closes on requested day, in UTC
+     */
+    private ZonedDateTime salonCloseOn(LocalDate day) {
+        return ZonedDateTime.of(day, SALON_CLOSE, SALON_TIME_ZONE)
                 .truncatedTo(ChronoUnit.MINUTES)
-                .toInstant().atZone(UTC);
+                .withZoneSameInstant(UTC);
+    }
+
+    /**
+     * @param salonOpen of the day the slot belongs to
+     * @param time to convert
+     * @return index of the 15 minute slot containing requested time
+     */
+    private static int slotOf(ZonedDateTime salonOpen, Instant time) {
+        return (int) Math.floorDiv(time.getEpochSecond() - salonOpen.toEpochSecond(), SLOT_SECONDS);
+    }
+
+    /**
+     * @param day in the salon's time zone
+     * @return the first slot an appointment may be booked at on requested day
+     */
+    private int firstBookableSlotOn(LocalDate day) {
+
+        // get beginning of day in salon's timezone
+        final var salonOpen = salonOpenOn(day);
 
         // retrieve the current time
         final var currentTime = Instant.now()
                 .atZone(UTC);
 
-        // if the current time is within the day to search,
-        // use current time as start search
-        // else use salon open of day as start of search
-        final var startSearch = salonOpen.isAfter(currentTime)?
-                salonOpen : currentTime;
+        // record first available appointment time
+        // (at least one hour ahead of the present to avoid last minute bookings)
+        final var firstAvailableAppointment = Instant.now()
+                .atZone(UTC)
+                .plusMinutes(61).truncatedTo(ChronoUnit.HOURS);
+
+        // start scanning for available times at first available appointment
+        // or salon open time if search is in the future
+        final var startSearch = currentTime.isAfter(salonOpen)?
+                firstAvailableAppointment :
+                salonOpen;
+
+        // round up to the next full slot
+        final long secondsFromOpen = startSearch.toEpochSecond() - salonOpen.toEpochSecond();
+        return (int) Math.max(0, (secondsFromOpen + SLOT_SECONDS - 1) / SLOT_SECONDS);
+    }
+
+    /**
+     * retrieves the schedules of several employees and/or clients over a range of days,
+     * any schedules that are not cached are loaded with a single query
+     *
+     * @param userIds of the employees and clients to retrieve schedules for
+     * @param firstDay first day to retrieve, in the salon's time zone
+     * @param lastDay last day to retrieve (inclusive), in the salon's time zone
+     * @return every requested user's schedule, grouped by day
+     */
+    private Map<LocalDate, Map<Long, ScheduleBitmap>> retrieveSchedules(
+            Collection<Long> userIds, LocalDate firstDay, LocalDate lastDay
+    ) {
+        final var days = firstDay.datesUntil(lastDay.plusDays(1)).toList();
+
+        // use cached schedules whenever possible
+        final var schedules = new HashMap<LocalDate, Map<Long, ScheduleBitmap>>();
+        final var missing = new HashSet<Long>();
+        for (var day : days) {
+            final var schedulesOnDay = new HashMap<Long, ScheduleBitmap>();
+            for (var userId : userIds) {
+                final var cached = availability.retrieve(userId, day);
+                if (cached != null) schedulesOnDay.put(userId, cached);
+                else missing.add(userId);
+            }
+            schedules.put(day, schedulesOnDay);
+        }
 
-        // defn search query
+        if (missing.isEmpty()) return schedules;
+
+        // every appointment an employee is providing or a client is attending counts against their schedule,
+        // each person is looked up separately so both halves are answered from an index
         final var query = """
             select
                 apt.appointment_time,
-                apt.length
+                apt.length,
+                apt.client_id,
+                apt.employee_id
+            from appointment apt
+            where apt.employee_id in (:userIds)
+            and
+                apt.appointment_time >= :startSearch
+            and
+                apt.appointment_time < :endSearch
+            union all
+            select
+                apt.appointment_time,
+                apt.length,
+                apt.client_id,
+                apt.employee_id
             from appointment apt
-            left join provided_service ps on apt.service_id = ps.service_id
-            where   (ps.employee_id=:employeeId
-                    or
-                    apt.client_id=:clientId)
+            where apt.client_id in (:userIds)
             and
-                appointment_time between :startSearch and :endSearch
-            order by appointment_time
+                apt.appointment_time >= :startSearch
+            and
+                apt.appointment_time < :endSearch
             """;
 
-        // inject params
         final var params = new HashMap<String, Object>(){{
-            put("employeeId", request.employeeId());
-            put("clientId", clientId);
-            put("startSearch", startSearch);
-            put("endSearch", salonClose);
+            put("userIds", missing);
+            put("startSearch", salonOpenOn(firstDay));
+            put("endSearch", salonCloseOn(lastDay));
         }};
 
-        // retrieve all preexisting appointments
-        List<AppointmentOpening> preexistingAppointments = database.query(query, params, rs -> {
-            var appts = new ArrayList<AppointmentOpening>();
+        // create an empty schedule for every missing user on every requested day
+        final var loaded = new HashMap<LocalDate, Map<Long, ScheduleBitmap>>();
+        for (var day : days) {
+            final int slotsInDay = slotOf(salonOpenOn(day), salonCloseOn(day).toInstant());
+            final var loadedOnDay = new HashMap<Long, ScheduleBitmap>();
+            for (var userId : missing) loadedOnDay.put(userId, new ScheduleBitmap(slotsInDay));
+            loaded.put(day, loadedOnDay);
+        }
 
-            while (rs.next()) appts.add(new AppointmentOpening(
-                // retrieve every appointment's time in current time zone
-                rs.getTimestamp("appointment_time")
-                        .toInstant().atZone(UTC),
-                // convert length to minutes
-                rs.getInt("length") * 15
-            ));
+        // read before the query so a booking committed during the load keeps these schedules out of the cache
+        final long loadedVersion = availability.version();
 
-            return appts;
-        });
-        // this list should never be null
-        assert preexistingAppointments != null;
+        database.query(query, params, rs -> {
+            final var time = rs.getTimestamp("appointment_time").toInstant();
+            final var day = time.atZone(SALON_TIME_ZONE).toLocalDate();
+            final var loadedOnDay = loaded.get(day);
+            if (loadedOnDay == null) return;
 
-        // retrieve the length of requested service type
-        int appointmentLength = retrieveProvidedService(request.serviceId()).getLength();
+            final int slot = slotOf(salonOpenOn(day), time);
+            final int length = rs.getInt("length");
 
-        // create list to store available appointment times
-        var availableTimes = new ArrayList<AppointmentOpening>();
+            final var employee = loadedOnDay.get(rs.getLong("employee_id"));
+            if (employee != null) employee.claim(slot, length);
 
-        // record first available appointment time
-        // (at least one hour ahead of the present to avoid last minute bookings)
-        final var firstAvailableAppointment = Instant.now()
-                .atZone(UTC)
-                .plusMinutes(61).truncatedTo(ChronoUnit.HOURS);
+            final var client = loadedOnDay.get(rs.getLong("client_id"));
+            if (client != null) client.claim(slot, length);
+        });
 
-        // define var to keep track of time scanner is currently at
-        ZonedDateTime scanner = null;
+        // cache newly loaded schedules for future searches
+        loaded.forEach((day, loadedOnDay) -> loadedOnDay.forEach((userId, schedule) -> {
+            availability.store(userId, day, schedule, loadedVersion);
+            schedules.get(day).put(userId, schedule);
+        }));
 
-        // if there are no preexisting appointments on requested day
-        if (preexistingAppointments.isEmpty()) {
+        return schedules;
+    }
 
-            // start scanning for available times at first available appointment
-            // or salon open time if search is in the future
-            scanner = currentTime.isAfter(salonOpen)?
-                    firstAvailableAppointment :
-                    salonOpen;
+    @Override
+    public List<AppointmentOpening> retrieveAppointmentOpenings(Long clientId, AppointmentRequest request) throws BadRequestException {
 
-            // find the length between current time and end of day
-            int timeTilEndofDay =
-                    (int) Duration.between(scanner, salonClose).toMinutes();
+        // find requested day in salon's timezone
+        final var day = request.searchDate().toInstant().atZone(SALON_TIME_ZONE).toLocalDate();
 
-            // determine how many slots are available in current day
-            int slots = (timeTilEndofDay / 15) - appointmentLength + 1;
-            for (int i = 0; i < slots; i++) {
+        // get beginning of day in salon's timezone
+        final var salonOpen = salonOpenOn(day);
 
-                // add every open slot to available times
-                availableTimes.add(new AppointmentOpening(
-                        scanner,
-                        appointmentLength * 15)
-                );
+        // retrieve the length of requested service type
+        final int appointmentLength = retrieveProvidedService(request.serviceId()).getLength();
 
-                // and increment by slot length (15 minutes)
-                scanner = scanner.plusMinutes(15);
-            }
-        // if there ARE existing appointments on requested day...
-        // iterate through all existing appointments
-        } else for (int existingAppointmentIdx = 0;
-                    existingAppointmentIdx < preexistingAppointments.size();
-                    existingAppointmentIdx++) {
-
-            // if scanner has not been initialized,
-            if (scanner == null)
-                // start scanning for available times at first available appointment
-                // or salon open time if search day is in the future
-                scanner = currentTime.isAfter(salonOpen)?
-                        firstAvailableAppointment :
-                        salonOpen;
-
-            // find the length in minutes between current time and next taken appointment
-            Integer timeTilNextAppointment = (int)
-                    Duration.between(scanner, preexistingAppointments.get(existingAppointmentIdx).time()).toMinutes();
-
-            // find the length between current time and end of day
-            int timeTilEndofDay =
-                    (int) Duration.between(scanner, salonClose).toMinutes();
-
-            // if current slot will not be long enough to fit requested appointment type
-            if (timeTilNextAppointment < (appointmentLength * 15)) {
-                // move scanner to end of next appointment
-                scanner = preexistingAppointments.get(existingAppointmentIdx)
-                        .time()
-                        .plusMinutes(preexistingAppointments
-                                .get(existingAppointmentIdx)
-                                .length());
-
-            // if current slot will be long enough
-            // and there are more appointments happening before the end of day
-            } else if (timeTilNextAppointment <= timeTilEndofDay) {
-
-                // find number of open slots
-                int slots = (timeTilNextAppointment / 15) - appointmentLength + 1;
-                for (int i = 0; i < slots; i++) {
-
-                    // add every open slot to available times
-                    availableTimes.add(new AppointmentOpening(
-                            scanner,
-                            appointmentLength * 15)
-                    );
-
-                    // and increment by slot length (15 minutes)
-                    scanner = scanner.plusMinutes(15);
-                }
+        // an opening must be free for both the employee and the client
+        final var schedules = retrieveSchedules(List.of(request.employeeId(), clientId), day, day).get(day);
 
-                // move scanner to end of next appointment
-                scanner = preexistingAppointments.get(existingAppointmentIdx).time()
-                        .plusMinutes(preexistingAppointments.get(existingAppointmentIdx).length());
-            }
+        final int[] openSlots = ScheduleBitmap.findOpenings(appointmentLength, firstBookableSlotOn(day),
+                schedules.get(request.employeeId()), schedules.get(clientId));
+
+        // convert every open slot to an appointment opening
+        final var availableTimes = new ArrayList<AppointmentOpening>(openSlots.length);
+        for (int slot : openSlots)
+            availableTimes.add(new AppointmentOpening(
+                    salonOpen.plusMinutes((long) slot * ScheduleBitmap.SLOT_MINUTES),
+                    appointmentLength * ScheduleBitmap.SLOT_MINUTES));
 
-            // if there are no more appointments on the schedule,
-            if (existingAppointmentIdx + 1 == preexistingAppointments.size()) {
+        return availableTimes;
+    }
 
-                // update time til end of day
-                timeTilEndofDay =
-                        (int) Duration.between(scanner, salonClose).toMinutes();
+    @Override
+    public List<ServiceOpening> retrieveAppointmentOpenings(Long clientId, AppointmentSearchRequest request,
+                                                           int maxEmployees, int limit) {
 
-                // record open slot until days end
-                int slots = (timeTilEndofDay / 15) - appointmentLength + 1;
-                for (int i = 0; i < slots; i++) {
+        final boolean anyEmployee = request.employeeIds() == null || request.employeeIds().isEmpty();
+        final boolean anyService = !StrTools.hasValue(request.serviceName());
 
-                    // add every open slot to available times
-                    availableTimes.add(new AppointmentOpening(
-                            scanner,
-                            appointmentLength * 15)
-                    );
+        // find every bookable service matching search criteria,
+        // searching by name alone only reaches a limited number of employees offering a match
+        final var serviceQuery = String.format("""
+            select
+                ps.service_id,
+                ps.employee_id,
+                ps.provided_service_name,
+                ps.default_length
+            from provided_service ps
+            %s
+            where ps.offered = 'Y'
+            %s
+            %s
+            """,
+            anyEmployee? """
+            join (
+                select distinct reachable.employee_id
+                from provided_service reachable
+                where reachable.offered = 'Y'
+                and lower(reachable.provided_service_name) like :serviceName
+                order by reachable.employee_id
+                limit :maxEmployees
+            ) searched on searched.employee_id = ps.employee_id""" : "",
+            anyEmployee? "" : "and ps.employee_id in (:employeeIds)",
+            anyService? "" : "and lower(ps.provided_service_name) like :serviceName");
+
+        final var serviceParams = new HashMap<String, Object>(){{
+            put("employeeIds", request.employeeIds());
+            put("serviceName", anyService? null : "%" + request.serviceName().trim().toLowerCase() + "%");
+            put("maxEmployees", maxEmployees);
+        }};
 
-                    // and increment by slot length (15 minutes)
-                    scanner = scanner.plusMinutes(15);
-                }
-            }
+        final var servicesByEmployee = new HashMap<Long, List<BookableService>>();
+        database.query(serviceQuery, serviceParams, rs -> {
+            servicesByEmployee.computeIfAbsent(rs.getLong("employee_id"), id -> new ArrayList<>())
+                .add(new BookableService(
+                    rs.getLong("service_id"),
+                    rs.getLong("employee_id"),
+                    rs.getString("provided_service_name"),
+                    rs.getInt("default_length")));
+        });
 
+        final var openings = new ArrayList<ServiceOpening>();
+        if (servicesByEmployee.isEmpty()) return openings;
+
+        // load all involved schedules at once
+        final var userIds = new HashSet<>(servicesByEmployee.keySet());
+        userIds.add(clientId);
+        final var schedules = retrieveSchedules(userIds, request.startDate(), request.endDate());
+
+        // every opening on a day is earlier than any opening on the next,
+        // so openings are generated a day at a time until enough have been found
+        for (var day = request.startDate(); !day.isAfter(request.endDate()) && openings.size() < limit; day = day.plusDays(1)) {
+            final var salonOpen = salonOpenOn(day);
+            final int firstSlot = firstBookableSlotOn(day);
+            final var schedulesOnDay = schedules.get(day);
+            final var clientSchedule = schedulesOnDay.get(clientId);
+
+            // each day is a cheap scan of in-memory bitmaps, so openings are generated on the request thread
+            servicesByEmployee.entrySet().stream().flatMap(employeeServices -> {
+                final var employeeOpenings = new ArrayList<ServiceOpening>();
+                final var employeeSchedule = schedulesOnDay.get(employeeServices.getKey());
+
+                for (var service : employeeServices.getValue())
+                    for (int slot : ScheduleBitmap.findOpenings(service.length(), firstSlot, employeeSchedule, clientSchedule))
+                        employeeOpenings.add(new ServiceOpening(
+                            service.employeeId(),
+                            service.serviceId(),
+                            service.name(),
+                            salonOpen.plusMinutes((long) slot * ScheduleBitmap.SLOT_MINUTES),
+                            service.length() * ScheduleBitmap.SLOT_MINUTES));
+
+                return employeeOpenings.stream();
+            })
+            // return earliest openings first
+            .sorted(Comparator.comparing(ServiceOpening::time)
+                    .thenComparing(ServiceOpening::employeeId)
+                    .thenComparing(ServiceOpening::serviceId))
+            .limit(limit - openings.size())
+            .forEachOrdered(openings::add);
         }
 
-        return availableTimes;
-
+        return openings;
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void bookAppointment(Long clientId, AppointmentRequest request) throws BadRequestException {
 
         ProvidedService serviceToSchedule = retrieveProvidedService(request.serviceId());
@@ -301,60 +422,89 @@ public class ScheduleDaoImpl  implements ScheduleDao{
         else if (request.time().isBefore(salonOpen))
             throw new BadRequestException("Appointments should not start before salon opens!");
 
-        final var query = """
-            select
-                apt.appointment_time,
-                apt.length
-            from appointment apt
-            left join provided_service ps on apt.service_id=ps.service_id
-            where   (ps.employee_id = :employeeId
-                    or
-                    apt.client_id = :clientId)
-            and
-                appointment_time between :startSearch and :endSearch
-            """;
-
-        final var startSearch = request.time().truncatedTo(ChronoUnit.MINUTES);
-        final var stopSearch = request.time().truncatedTo(ChronoUnit.MINUTES)
-                .plusMinutes(serviceToSchedule.getLength() * 15L).minusMinutes(1);
-        final var params2 = new HashMap<String, Object>(){{
-            put("employeeId", request.employeeId());
-            put("clientId", clientId);
-            put("startSearch", startSearch);
-            put("endSearch", stopSearch);
-        }};
-
-        boolean allowed = Boolean.TRUE.equals(database.query(query, params2, rs -> !rs.next()));
-        if (!allowed) throw new BadRequestException("Time is unavailable!");
-
+        // the service's own employee is booked, not whichever employee the request named
+        final var employeeId = database.queryForObject(
+                "select employee_id from provided_service where service_id = :serviceId",
+                Map.of("serviceId", request.serviceId()), Long.class);
 
         final var addQuery = """
             insert into appointment
-                (client_id, appointment_time,
+                (client_id, employee_id, appointment_time,
                     service_id, actual_amount, date_due, length)
             values
-                (:clientId, :appointmentTime,
+                (:clientId, :employeeId, :appointmentTime,
                     :serviceId, :actualAmount, :due, :length)
             """;
 
-        final var addParams = new HashMap<String, Object>(){{
+        final var addParams = new MapSqlParameterSource(new HashMap<String, Object>(){{
             put("clientId", clientId);
+            put("employeeId", employeeId);
             put("appointmentTime", request.time().truncatedTo(ChronoUnit.MINUTES));
             put("serviceId", request.serviceId());
             put("actualAmount", serviceToSchedule.getCost());
             put("due", request.time().plusWeeks(2).truncatedTo(ChronoUnit.MINUTES));
             put("length", serviceToSchedule.getLength());
-        }};
+        }});
+
+        final var generatedKeys = new GeneratedKeyHolder();
+        database.update(addQuery, addParams, generatedKeys, new String[]{"appointment_id"});
+        final var appointmentId = Objects.requireNonNull(generatedKeys.getKey()).longValue();
+
+        // claim every slot of the appointment for both the employee providing the service and the client,
+        // the table's primary key makes a second claim on any slot fail,
+        // so two bookings can never overlap even if they are made at the same time
+        final var claimQuery = """
+            insert into appointment_slot
+                (user_id, slot_time, appointment_id)
+            values
+                (:userId, :slotTime, :appointmentId)
+            """;
+
+        final var claims = new ArrayList<Map<String, Object>>();
+        for (var userId : new LinkedHashSet<>(List.of(employeeId, clientId)))
+            for (int slot = 0; slot < serviceToSchedule.getLength(); slot++) {
+                final var slotTime = request.time().truncatedTo(ChronoUnit.MINUTES)
+                        .plusMinutes((long) slot * ScheduleBitmap.SLOT_MINUTES);
+                claims.add(new HashMap<>(){{
+                    put("userId", userId);
+                    put("slotTime", slotTime);
+                    put("appointmentId", appointmentId);
+                }});
+            }
+
+        try {
+            database.batchUpdate(claimQuery, SqlParameterSourceUtils.createBatch(claims));
+        } catch (DuplicateKeyException dpke) {
+            // transaction will be rolled back, removing the new appointment along with any claimed slots
+            throw new BadRequestException("Time is unavailable!");
+        }
 
-        database.update(addQuery, addParams);
+        // keep cached schedules up to date once the appointment is stored
+        final var bookedDay = request.time().toInstant().atZone(SALON_TIME_ZONE).toLocalDate();
+        final int bookedSlot = slotOf(salonOpen, request.time().toInstant());
+        afterCommit(() -> {
+            availability.claim(employeeId, bookedDay, bookedSlot, serviceToSchedule.getLength());
+            availability.claim(clientId, bookedDay, bookedSlot, serviceToSchedule.getLength());
+        });
     }
 
-    @Override
-    public List<Appointment> retrieveEmployeeSchedule(Long employeeId, LocalDate untilDate) {
-        final var currentTime = Instant.now();
-        final var stopSearch = ZonedDateTime.of(untilDate, LocalTime.MIDNIGHT, SALON_TIME_ZONE);
+    /**
+     * runs a task once the current transaction commits, or immediately if there is no transaction
+     *
+     * @param task to run
+     */
+    private static void afterCommit(Runnable task) {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    task.run();
+                }
+            });
+        else task.run();
+    }
 
-        final var query = """
+    private static final String EMPLOYEE_SCHEDULE_QUERY = """
             select
                 appt.appointment_id ,
                 appt.client_id ,
@@ -376,51 +526,84 @@ public class ScheduleDaoImpl  implements ScheduleDao{
             from appointment appt
             LEFT JOIN contact_info ci ON appt.client_id = ci.user_id
             LEFT JOIN provided_service ps ON appt.service_id = ps.service_id
-            where ps.employee_id = :employeeId
+            where appt.employee_id = :employeeId
             and
-                appt.appointment_time between :startSearch and :endSearch
+                appt.appointment_time >= :afterTime
+            and
+                (appt.appointment_time > :afterTime or appt.appointment_id > :afterId)
+            and
+                appt.appointment_time <= :endSearch
 
             ORDER BY
-                appt.appointment_time
+                appt.appointment_time,
+                appt.appointment_id
             """;
 
-        final var params = new HashMap<String, Object>(){{
+    private Map<String, Object> employeeScheduleParams(Long employeeId, LocalDate untilDate, AppointmentCursor after) {
+        final var stopSearch = ZonedDateTime.of(untilDate, LocalTime.MIDNIGHT, SALON_TIME_ZONE);
+
+        // without a cursor start at the current time, anything at exactly that time is included
+        final var startSearch = after == null? new AppointmentCursor(Instant.now(), 0L) : after;
+
+        return new HashMap<>(){{
             put("employeeId", employeeId);
-            put("startSearch", currentTime);
+            put("afterTime", startSearch.time());
+            put("afterId", startSearch.appointmentId());
             put("endSearch", stopSearch);
         }};
+    }
 
-        return database.query(query, params, rs->{ 
+    private Appointment toEmployeeAppointment(ResultSet rs) throws SQLException {
+        final var client = new Appointment.UserInfo(
+            rs.getLong("client_id"),
+            rs.getString("first_name"),
+            rs.getString("last_name"),
+            rs.getString("phone_num"),
+            rs.getString("email"),
+            ContactPreference.getEnum(rs.getString("contact_pref")).description);
+
+        return new Appointment(
+            rs.getLong("appointment_id"),
+            rs.getTimestamp("appointment_time").toInstant().atZone(UTC),
+            rs.getInt("length")*15,
+            rs.getTimestamp("date_created").toInstant().atZone(UTC),
+            rs.getTimestamp("date_due").toInstant().atZone(UTC),
+            rs.getBigDecimal("actual_amount"),
+            rs.getBigDecimal("tip_amount"),
+            AppointmentStatus.getEnum(rs.getString("status")).toString(),
+            rs.getLong("service_id"),
+            rs.getString("provided_service_name"),
+            null,
+            client
+        );
+    }
+
+    @Override
+    public List<Appointment> retrieveEmployeeSchedule(Long employeeId, LocalDate untilDate, AppointmentCursor after, int limit) {
+
+        // keyset pagination, the index on (employee_id, appointment_time) is range scanned from the cursor
+        // so every page costs the same no matter how far into the schedule it is
+        final var query = EMPLOYEE_SCHEDULE_QUERY + "LIMIT :limit";
+
+        final var params = employeeScheduleParams(employeeId, untilDate, after);
+        params.put("limit", limit);
+
+        return database.query(query, params, rs->{
             List<Appointment> result = new ArrayList<>();
 
-            while (rs.next()) {
-                final var client = new Appointment.UserInfo(
-                    rs.getLong("client_id"),
-                    rs.getString("first_name"), 
-                    rs.getString("last_name"),  
-                    rs.getString("phone_num"),
-                    rs.getString("email"), 
-                    ContactPreference.getEnum(rs.getString("contact_pref")).description);
-
-                result.add(new Appointment(
-                    rs.getLong("appointment_id"),
-                    rs.getTimestamp("appointment_time").toInstant().atZone(UTC),
-                    rs.getInt("length")*15,
-                    rs.getTimestamp("date_created").toInstant().atZone(UTC),
-                    rs.getTimestamp("date_due").toInstant().atZone(UTC),
-                    rs.getBigDecimal("actual_amount"),
-                    rs.getBigDecimal("tip_amount"),
-                    AppointmentStatus.getEnum(rs.getString("status")).toString(),
-                    rs.getLong("service_id"),
-                    rs.getString("provided_service_name"),
-                    null,
-                    client 
-                ));
-            }
+            while (rs.next()) result.add(toEmployeeAppointment(rs));
+
             return result;
         });
     }
 
+    @Override
+    public void streamEmployeeSchedule(Long employeeId, LocalDate untilDate, Consumer<Appointment> consumer) {
+
+        streamingDatabase.query(EMPLOYEE_SCHEDULE_QUERY, employeeScheduleParams(employeeId, untilDate, null),
+                (RowCallbackHandler) rs -> consumer.accept(toEmployeeAppointment(rs)));
+    }
+
     @Override
     public List<Appointment> retrieveScheduledAppointments(Long clientId) {
         final var query = """
@@ -433,7 +616,7 @@ public class ScheduleDaoImpl  implements ScheduleDao{
                 appt.actual_amount,
                 appt.tip_amount,
                 appt.status,
-                service.employee_id,
+                appt.employee_id,
                 emply_info.first_name,
                 emply_info.last_name,
                 emply_info.phone_num,
@@ -443,7 +626,7 @@ public class ScheduleDaoImpl  implements ScheduleDao{
                 service.provided_service_name
             from appointment appt
             left join provided_service service on appt.service_id = service.service_id
-            left join contact_info emply_info on service.employee_id = emply_info.user_id
+            left join contact_info emply_info on appt.employee_id = emply_info.user_id
             where appt.client_id = :clientId
             and appt.appointment_time > NOW()
             order by appt.appointment_time""";
@@ -486,8 +669,7 @@ public class ScheduleDaoImpl  implements ScheduleDao{
         final var checkIfExists = """
             select 1
             from appointment apt
-            left join provided_service ps on apt.service_id = ps.service_id
-            where ps.employee_id = :employeeId
+            where apt.employee_id = :employeeId
             and apt.appointment_id = :appointmentId""";
 
 
@@ -501,6 +683,7 @@ public class ScheduleDaoImpl  implements ScheduleDao{
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void updateAppointmentDetails(Long appointmentId, AppointmentRequest request) {
 
         final var query = """
@@ -0,0 +1,8 @@
+package org.morriswa.salon.enumerated;
+
+
+public enum HealthStatus {
+    Healthy,
+    Degraded,
+    Unhealthy
+}
@@ -0,0 +1,9 @@
+package org.morriswa.salon.enumerated;
+
+
+public enum ImageUploadStatus {
+    Queued,
+    Processing,
+    Complete,
+    Failed
+}
@@ -0,0 +1,10 @@
+package org.morriswa.salon.exception;
+
+/**
+ * Exception to throw when the server is temporarily too busy to accept a request
+ */
+public class ServiceUnavailableException extends Exception {
+    public ServiceUnavailableException(String msg) {
+        super(msg);
+    }
+}
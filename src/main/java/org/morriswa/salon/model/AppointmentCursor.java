@@ -0,0 +1,49 @@
+package org.morriswa.salon.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * position of an appointment within a schedule, schedules are ordered by time and then appointment id
+ *
+ * @param time of the appointment
+ * @param appointmentId of the appointment
+ */
+public record AppointmentCursor(Instant time, Long appointmentId) {
+
+    /**
+     * @param appointment to create a cursor for
+     * @return a cursor positioned at the appointment
+     */
+    public static AppointmentCursor of(Appointment appointment) {
+        return new AppointmentCursor(appointment.time().toInstant(), appointment.appointmentId());
+    }
+
+    /**
+     * @return an opaque string that can be handed to clients and decoded later
+     */
+    public String encode() {
+        final var raw = time.toEpochMilli() + ":" + appointmentId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor previously created with {@link #encode()}
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static AppointmentCursor decode(String cursor) {
+        final var raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        final var parts = raw.split(":");
+        if (parts.length != 2) throw new IllegalArgumentException("Malformed cursor");
+
+        try {
+            return new AppointmentCursor(
+                    Instant.ofEpochMilli(Long.parseLong(parts[0])),
+                    Long.parseLong(parts[1]));
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("Malformed cursor", nfe);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package org.morriswa.salon.model;
+
+import java.util.List;
+
+public record AppointmentPage(
+    List<Appointment> appointments,
+    // pass to retrieve the following page, null if this is the last page
+    String nextCursor
+) { }
@@ -0,0 +1,13 @@
+package org.morriswa.salon.model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public record AppointmentSearchRequest(
+    LocalDate startDate,
+    LocalDate endDate,
+    List<Long> employeeIds,
+    String serviceName,
+    Integer page,
+    Integer pageSize
+) { }
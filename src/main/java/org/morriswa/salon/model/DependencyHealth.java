@@ -0,0 +1,22 @@
+package org.morriswa.salon.model;
+
+import org.morriswa.salon.enumerated.HealthStatus;
+
+import java.time.ZonedDateTime;
+
+/**
+ * result of the most recent probe of something the service depends on
+ *
+ * @param name of the dependency
+ * @param status of the dependency
+ * @param latencyMillis how long the probe took, or null if no call was made
+ * @param detail describing why the dependency is not healthy, if it is not
+ * @param checkedAt when the probe completed
+ */
+public record DependencyHealth(
+        String name,
+        HealthStatus status,
+        Long latencyMillis,
+        String detail,
+        ZonedDateTime checkedAt
+) { }
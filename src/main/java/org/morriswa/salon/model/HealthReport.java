@@ -0,0 +1,18 @@
+package org.morriswa.salon.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.morriswa.salon.enumerated.HealthStatus;
+
+import java.util.List;
+
+/**
+ * health of the service and every dependency it was last probed for
+ *
+ * @param status of the service, the worst status of any dependency
+ * @param dependencies most recent probe results, left out when reporting to the public
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record HealthReport(
+        HealthStatus status,
+        List<DependencyHealth> dependencies
+) { }
@@ -0,0 +1,22 @@
+package org.morriswa.salon.model;
+
+import org.morriswa.salon.enumerated.ImageUploadStatus;
+
+/**
+ * progress of an image being scaled and uploaded in the background
+ *
+ * @param jobId used to poll the upload's status
+ * @param contentId the image will be stored under once complete
+ * @param status of the upload
+ * @param error describing why the upload failed, if it did
+ */
+public record ImageUploadJob(
+        String jobId,
+        String contentId,
+        ImageUploadStatus status,
+        String error
+) {
+    public ImageUploadJob withStatus(ImageUploadStatus status, String error) {
+        return new ImageUploadJob(jobId, contentId, status, error);
+    }
+}
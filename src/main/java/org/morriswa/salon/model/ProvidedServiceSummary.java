@@ -0,0 +1,27 @@
+package org.morriswa.salon.model;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * an offered service as shown in search results, its employee is only identified by name
+ * as results are available to every user
+ */
+@Getter
+public class ProvidedServiceSummary extends ProvidedService {
+
+    public record EmployeeName (
+            Long employeeId,
+            String firstName,
+            String lastName
+    ) {  }
+
+    private final EmployeeName employee;
+
+    public ProvidedServiceSummary(Long serviceId, BigDecimal defaultCost, Integer defaultLength, String name,
+                                  EmployeeName employee) {
+        super(serviceId, defaultCost, defaultLength, name);
+        this.employee = employee;
+    }
+}
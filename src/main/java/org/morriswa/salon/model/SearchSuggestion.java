@@ -0,0 +1,14 @@
+package org.morriswa.salon.model;
+
+/**
+ * name suggested while a client is typing a search, carrying only what is needed to open the match
+ *
+ * @param text completed service name or employee name
+ * @param serviceId of the suggested service, or null if an employee is suggested
+ * @param employeeId of the suggested employee, or of the employee providing the suggested service
+ */
+public record SearchSuggestion(
+        String text,
+        Long serviceId,
+        Long employeeId
+) { }
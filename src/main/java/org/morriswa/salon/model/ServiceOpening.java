@@ -0,0 +1,11 @@
+package org.morriswa.salon.model;
+
+import java.time.ZonedDateTime;
+
+public record ServiceOpening(
+    Long employeeId,
+    Long serviceId,
+    String serviceName,
+    ZonedDateTime time,
+    Integer length
+) { }
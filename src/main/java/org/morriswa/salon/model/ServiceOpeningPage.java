@@ -0,0 +1,10 @@
+package org.morriswa.salon.model;
+
+import java.util.List;
+
+public record ServiceOpeningPage(
+    List<ServiceOpening> openings,
+    Integer page,
+    Integer pageSize,
+    Boolean lastPage
+) { }
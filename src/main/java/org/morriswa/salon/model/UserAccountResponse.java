@@ -7,5 +7,6 @@ public record UserAccountResponse(
         Long userId,
         String username,
         ZonedDateTime accountCreationDate,
-        Set<String> authorities
+        Set<String> authorities,
+        String accessToken
 ) { }
@@ -6,6 +6,8 @@ import org.morriswa.salon.model.AccountRequest;
 import org.morriswa.salon.model.UserAccount;
 import org.morriswa.salon.model.UserAccountResponse;
 import org.morriswa.salon.model.UserInfo;
+import org.morriswa.salon.utility.AccessTokenService;
+import org.morriswa.salon.utility.PrincipalCache;
 import org.morriswa.salon.validation.StrTools;
 import org.morriswa.salon.validation.UserProfileValidator;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,11 +21,18 @@ import java.util.stream.Collectors;
 public class AccountServiceImpl implements AccountService {
 
     private final AccountDao accountDao;
+    private final PrincipalCache principalCache;
+    private final AccessTokenService accessTokens;
     private final String employeeAccessCode;
 
     @Autowired
-    public AccountServiceImpl(Environment e, AccountDao accountDao) {
+    public AccountServiceImpl(Environment e,
+                              AccountDao accountDao,
+                              PrincipalCache principalCache,
+                              AccessTokenService accessTokens) {
         this.accountDao = accountDao;
+        this.principalCache = principalCache;
+        this.accessTokens = accessTokens;
         this.employeeAccessCode = e.getRequiredProperty("salon.employee-code");
     }
 
@@ -37,7 +46,9 @@ public class AccountServiceImpl implements AccountService {
                 principal.getDateCreated(),
                 principal.getAuthorities().stream()
                         .map(GrantedAuthority::getAuthority)
-                        .collect(Collectors.toSet()));
+                        .collect(Collectors.toSet()),
+                // token used to authenticate all further requests
+                accessTokens.issue(principal));
     }
 
     @Override
@@ -59,6 +70,10 @@ public class AccountServiceImpl implements AccountService {
 
         // attempt to store provided contact information
         accountDao.enterContactInfo(principal.getUserId(), createProfileRequest);
+
+        // user's permissions have changed, so they must be reloaded on next request
+        principalCache.evict(principal.getUserId());
+        accessTokens.evict(principal.getUserId());
     }
 
     @Override
@@ -69,6 +84,10 @@ public class AccountServiceImpl implements AccountService {
 
         // store change in db
         accountDao.changeUsername(principal.getUserId(), updateUsernameRequest.username());
+
+        // old credentials should no longer be accepted, and tokens should carry the new username
+        principalCache.evict(principal.getUserId());
+        accessTokens.evict(principal.getUserId());
     }
 
     @Override
@@ -79,12 +98,21 @@ public class AccountServiceImpl implements AccountService {
                 updatePasswordRequest.password(),
                 updatePasswordRequest.confirmPassword());
 
+        // requests authenticated with an access token do not carry the user's password
+        final var currentEncodedPassword = principal.getPassword() != null
+                ? principal.getPassword()
+                : accountDao.findUser(principal.getUserId()).getPassword();
+
         // store change in db
         accountDao.updateUserPassword(
                 principal.getUserId(),
-                principal.getPassword(),
+                currentEncodedPassword,
                 updatePasswordRequest.currentPassword(),
                 updatePasswordRequest.password());
+
+        // old credentials and tokens issued with them should no longer be accepted
+        principalCache.evict(principal.getUserId());
+        accessTokens.evict(principal.getUserId());
     }
 
     @Override
@@ -98,6 +126,10 @@ public class AccountServiceImpl implements AccountService {
 
         // register employee in database
         accountDao.completeEmployeeRegistration(principal.getUserId());
+
+        // user's permissions have changed, so they must be reloaded on next request
+        principalCache.evict(principal.getUserId());
+        accessTokens.evict(principal.getUserId());
     }
 
     @Override
@@ -106,6 +138,10 @@ public class AccountServiceImpl implements AccountService {
 
         // register client in database
         accountDao.completeClientRegistration(principal.getUserId());
+
+        // user's permissions have changed, so they must be reloaded on next request
+        principalCache.evict(principal.getUserId());
+        accessTokens.evict(principal.getUserId());
     }
 
 }
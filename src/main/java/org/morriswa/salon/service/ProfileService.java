@@ -68,12 +68,23 @@ public interface ProfileService {
     void updateEmployeeProfile(UserAccount principal, EmployeeInfo request) throws Exception;
 
     /**
-     * updates an employee's profile image
+     * queues an employee's new profile image to be scaled and uploaded
      *
      * @param principal the authenticated employee
      * @param image new profile image
-     * @throws Exception if employee profile image could not be updated
+     * @return the queued upload, which can be polled until complete
+     * @throws Exception if employee profile image could not be queued
      */
-    void updateEmployeeProfileImage(UserAccount principal, MultipartFile image) throws Exception;
+    ImageUploadJob updateEmployeeProfileImage(UserAccount principal, MultipartFile image) throws Exception;
+
+    /**
+     * retrieves the progress of an image upload
+     *
+     * @param principal the authenticated employee who uploaded the image
+     * @param jobId returned when the image was uploaded
+     * @return current state of the upload
+     * @throws Exception if the upload does not exist or belongs to another user
+     */
+    ImageUploadJob retrieveImageUpload(UserAccount principal, String jobId) throws Exception;
 
 }
@@ -1,19 +1,27 @@
 package org.morriswa.salon.service;
 
 import org.morriswa.salon.dao.ProfileDao;
+import org.morriswa.salon.exception.BadRequestException;
 import org.morriswa.salon.model.*;
 import org.morriswa.salon.utility.AmazonS3Client;
-import org.morriswa.salon.utility.ImageScaleUtil;
+import org.morriswa.salon.utility.ImageUploadQueue;
+import org.morriswa.salon.utility.ProvidedServiceIndex;
+import org.morriswa.salon.utility.ProvidedServiceProfileCache;
+import org.morriswa.salon.utility.RefreshAheadValue;
 import org.morriswa.salon.validation.ImageValidator;
 import org.morriswa.salon.validation.UserProfileValidator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 @Service
 public class ProfileServiceImpl implements ProfileService {
@@ -21,17 +29,40 @@ public class ProfileServiceImpl implements ProfileService {
     private final Environment e;
     private final ProfileDao profileDao;
     private final AmazonS3Client s3;
-    private final ImageScaleUtil imageScale;
+    private final ImageUploadQueue imageUploads;
+    private final ProvidedServiceIndex serviceIndex;
+    private final ProvidedServiceProfileCache serviceProfiles;
+    private final List<Long> featuredEmployeeIds;
+    private final RefreshAheadValue<List<PublicEmployeeProfile>> featuredEmployees;
 
     @Autowired
-    public ProfileServiceImpl(Environment e, ProfileDao profileDao, AmazonS3Client s3, ImageScaleUtil imageScale) {
+    public ProfileServiceImpl(Environment e,
+                              ProfileDao profileDao,
+                              AmazonS3Client s3,
+                              ImageUploadQueue imageUploads,
+                              ProvidedServiceIndex serviceIndex,
+                              ProvidedServiceProfileCache serviceProfiles,
+                              @Qualifier("cacheRefreshExecutor") Executor cacheRefreshExecutor) {
         this.e = e;
         this.profileDao = profileDao;
         this.s3 = s3;
-        this.imageScale = imageScale;
+        this.imageUploads = imageUploads;
+        this.serviceIndex = serviceIndex;
+        this.serviceProfiles = serviceProfiles;
+
+        this.featuredEmployeeIds = Arrays.stream(e.getRequiredProperty("salon.featured-employees")
+                .split(",")).map(String::trim).map(Long::parseLong).toList();
+
+        // the featured list is requested by every visitor, so keep it ready
+        // and rebuild it before its profile image urls expire
+        this.featuredEmployees = new RefreshAheadValue<>(
+                this::buildFeaturedEmployees,
+                cacheRefreshExecutor,
+                e.getRequiredProperty("salon.featured-cache.refresh-after", Duration.class),
+                e.getRequiredProperty("salon.featured-cache.expire-after", Duration.class));
     }
 
-    @Override
+    @Override @Transactional(readOnly = true)
     public ClientInfo getClientProfile(UserAccount principal) throws Exception {
 
         // return all client info from db
@@ -48,7 +79,7 @@ public class ProfileServiceImpl implements ProfileService {
         profileDao.updateClientInfo(principal.getUserId(), updateProfileRequest);
     }
 
-    @Override
+    @Override @Transactional(readOnly = true)
     public EmployeeProfile getEmployeeProfile(UserAccount principal) throws Exception {
 
         // get employee info stored in db
@@ -61,7 +92,7 @@ public class ProfileServiceImpl implements ProfileService {
         return new EmployeeProfile(employeeInfo, employeeProfileImage);
     }
 
-    @Override
+    @Override @Transactional(readOnly = true)
     public PublicEmployeeProfile getPublicEmployeeProfile(Long employeeId) throws Exception {
 
         // get stored employee info
@@ -76,27 +107,42 @@ public class ProfileServiceImpl implements ProfileService {
 
     @Override
     public List<PublicEmployeeProfile> retrieveFeaturedEmployees() throws Exception {
+        return featuredEmployees.get();
+    }
 
-        final List<Long> featuredEmployeeIds = new ArrayList<>(){{
-            final var ids = Arrays.stream(e.getRequiredProperty("salon.featured-employees")
-                .split(",")).map(String::trim).map(Long::parseLong).toList();
-            addAll(ids);
-        }};
+    /**
+     * discards the cached featured employee list if it includes an employee
+     *
+     * @param employeeId whose profile has changed
+     */
+    void invalidateFeaturedEmployee(Long employeeId) {
+        if (featuredEmployeeIds.contains(employeeId)) featuredEmployees.invalidate();
+    }
+
+    private List<PublicEmployeeProfile> buildFeaturedEmployees() {
+
+        // sign all profile images at once
+        final var profileImages = s3.getSignedObjectUrls(featuredEmployeeIds.stream()
+                .map(employeeId -> String.format("employeeProfile/%d", employeeId)).toList(), 30);
+
+        // get stored info for every featured employee at once
+        final var employees = profileDao.getEmployeeInfo(featuredEmployeeIds);
 
         List<PublicEmployeeProfile> results = new ArrayList<>();
 
         for (var employeeId : featuredEmployeeIds) {
-            // get stored employee info
-            var employeeInfo = profileDao.getEmployeeInfo(employeeId);
+            // skip featured employees who no longer have a profile
+            var employeeInfo = employees.get(employeeId);
+            if (employeeInfo == null) continue;
 
             // get profile image
-            var employeeProfileImage = s3.getSignedObjectUrl(String.format("employeeProfile/%d", employeeId), 30);
+            var employeeProfileImage = profileImages.get(String.format("employeeProfile/%d", employeeId));
 
             // build and return public profile
             results.add(new PublicEmployeeProfile(employeeId, employeeInfo, employeeProfileImage));
         }
 
-        return results;
+        return List.copyOf(results);
     }
 
     @Override
@@ -107,19 +153,34 @@ public class ProfileServiceImpl implements ProfileService {
 
         // store changes
         profileDao.updateEmployeeProfile(principal.getUserId(), request);
+
+        invalidateFeaturedEmployee(principal.getUserId());
+
+        // services are searched by their employee's name and show their employee's contact info
+        serviceIndex.reindexEmployee(principal.getUserId());
+        serviceProfiles.invalidateEmployee(principal.getUserId());
     }
 
     @Override
-    public void updateEmployeeProfileImage(UserAccount principal, MultipartFile image) throws Exception {
+    public ImageUploadJob updateEmployeeProfileImage(UserAccount principal, MultipartFile image) throws Exception {
 
         // validate uploaded image
         ImageValidator.validateUploadedImage(image);
 
-        // scale image by 80%
-        final var scaledImage = imageScale.getScaledImage(image, 0.8F);
+        // scale and upload image to S3 in the background
+        return imageUploads.submit(principal.getUserId(), image,
+                String.format("employeeProfile/%d", principal.getUserId()),
+                () -> invalidateFeaturedEmployee(principal.getUserId()));
+    }
+
+    @Override
+    public ImageUploadJob retrieveImageUpload(UserAccount principal, String jobId) throws Exception {
+
+        final var job = imageUploads.retrieve(principal.getUserId(), jobId);
+
+        if (job == null) throw new BadRequestException("Could not find image upload!");
 
-        // upload content to S3
-        s3.uploadToS3(scaledImage, image.getContentType(), String.format("employeeProfile/%d", principal.getUserId()));
+        return job;
     }
 
 }
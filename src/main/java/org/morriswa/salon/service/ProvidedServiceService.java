@@ -1,13 +1,16 @@
 package org.morriswa.salon.service;
 
+import org.morriswa.salon.model.ImageUploadJob;
 import org.morriswa.salon.model.ProvidedService;
-import org.morriswa.salon.model.ProvidedServiceDetails;
+import org.morriswa.salon.model.ProvidedServiceSummary;
 import org.morriswa.salon.model.ProvidedServiceProfile;
+import org.morriswa.salon.model.SearchSuggestion;
 import org.morriswa.salon.model.UserAccount;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.net.URL;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.Map;
 
 /**
@@ -36,6 +39,12 @@ public interface ProvidedServiceService {
      */
     List<ProvidedService> retrieveEmployeesServices(Long employeeId);
 
+    /**
+     * @param employeeId to lookup services
+     * @param consumer to receive every service provided by a specified employee, as it is retrieved
+     */
+    void streamEmployeesServices(Long employeeId, Consumer<ProvidedService> consumer);
+
     /**
      * @param serviceId to retrieve
      * @return a service's profile (including all stored content, cost, etc)
@@ -47,9 +56,22 @@ public interface ProvidedServiceService {
      * searches available services for matches
      *
      * @param searchText to match available services with
-     * @return all services and their details that match search criteria
+     * @param offset number of best matches to skip, or null to start from the best match
+     * @param limit most matches to return, or null for the default
+     * @return the requested page of matching services and their employee's name, best matches first
+     * @throws Exception if the request was not valid
+     */
+    List<ProvidedServiceSummary> searchAvailableService(String searchText, Integer offset, Integer limit) throws Exception;
+
+    /**
+     * suggests service and employee names completing partially typed search text
+     *
+     * @param prefix typed so far
+     * @param limit most suggestions to return, or null for the default
+     * @return matching names and their ids, best suggestions first
+     * @throws Exception if the request was not valid
      */
-    List<ProvidedServiceDetails> searchAvailableService(String searchText);
+    List<SearchSuggestion> suggestAvailableServices(String prefix, Integer limit) throws Exception;
 
     /**
      * retrieves all images for a service
@@ -64,14 +86,16 @@ public interface ProvidedServiceService {
 // UPDATE
 
     /**
-     * uploads an image to be displayed on provided service profile
+     * queues an image to be displayed on provided service profile,
+     * the image is added to the service once it has been scaled and uploaded
      *
      * @param principal of the employee who manages the service
      * @param serviceId to update
      * @param image to add to service profile
-     * @throws Exception if image could not be uploaded
+     * @return the queued upload, which can be polled until complete
+     * @throws Exception if image could not be queued
      */
-    void uploadProvidedServiceImage(UserAccount principal, Long serviceId, MultipartFile image) throws Exception;
+    ImageUploadJob uploadProvidedServiceImage(UserAccount principal, Long serviceId, MultipartFile image) throws Exception;
 
 // DELETE
 
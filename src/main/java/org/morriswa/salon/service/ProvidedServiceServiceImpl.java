@@ -2,34 +2,48 @@ package org.morriswa.salon.service;
 
 import org.morriswa.salon.dao.ProvidedServiceDao;
 import org.morriswa.salon.exception.BadRequestException;
+import org.morriswa.salon.model.ImageUploadJob;
 import org.morriswa.salon.model.ProvidedService;
-import org.morriswa.salon.model.ProvidedServiceDetails;
+import org.morriswa.salon.model.ProvidedServiceSummary;
 import org.morriswa.salon.model.ProvidedServiceProfile;
+import org.morriswa.salon.model.SearchSuggestion;
 import org.morriswa.salon.model.UserAccount;
 import org.morriswa.salon.utility.AmazonS3Client;
-import org.morriswa.salon.utility.ImageScaleUtil;
+import org.morriswa.salon.utility.ImageUploadQueue;
+import org.morriswa.salon.utility.ProvidedServiceIndex;
+import org.morriswa.salon.utility.ProvidedServiceProfileCache;
 import org.morriswa.salon.validation.ImageValidator;
 import org.morriswa.salon.validation.ProvidedServiceValidator;
 import org.morriswa.salon.validation.StrTools;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.net.URL;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Service
 public class ProvidedServiceServiceImpl implements ProvidedServiceService {
 
     private final AmazonS3Client s3;
-    private final ImageScaleUtil imageScale;
+    private final ImageUploadQueue imageUploads;
     private final ProvidedServiceDao providedServiceDao;
+    private final ProvidedServiceIndex serviceIndex;
+    private final ProvidedServiceProfileCache profileCache;
 
     @Autowired
-    public ProvidedServiceServiceImpl(AmazonS3Client s3, ImageScaleUtil imageScale, ProvidedServiceDao providedServiceDao) {
+    public ProvidedServiceServiceImpl(AmazonS3Client s3,
+                                      ImageUploadQueue imageUploads,
+                                      ProvidedServiceDao providedServiceDao,
+                                      ProvidedServiceIndex serviceIndex,
+                                      ProvidedServiceProfileCache profileCache) {
         this.s3 = s3;
-        this.imageScale = imageScale;
+        this.imageUploads = imageUploads;
         this.providedServiceDao = providedServiceDao;
+        this.serviceIndex = serviceIndex;
+        this.profileCache = profileCache;
     }
     @Override
     public void createProvidedService(UserAccount principal, ProvidedService createProvidedServiceRequest) throws Exception {
@@ -39,6 +53,9 @@ public class ProvidedServiceServiceImpl implements ProvidedServiceService {
 
         // and execute database operation to save new provided service
         providedServiceDao.createProvidedService(principal.getUserId(), createProvidedServiceRequest);
+
+        // make the new service searchable
+        serviceIndex.reindexEmployee(principal.getUserId());
     }
 
     @Override
@@ -46,11 +63,16 @@ public class ProvidedServiceServiceImpl implements ProvidedServiceService {
 
         final var contentIds = providedServiceDao.retrieveServiceContent(serviceId);
 
-        for (var id : contentIds) s3.deleteObject(id);
+        // delete all content in a single request
+        s3.deleteObjects(contentIds);
 
         providedServiceDao.deleteProvidedServiceContent(serviceId);
 
         providedServiceDao.deleteProvidedService(principal.getUserId(), serviceId);
+
+        // stop returning the service in search results or from its profile
+        serviceIndex.reindexEmployee(principal.getUserId());
+        profileCache.invalidate(serviceId);
     }
 
     @Override
@@ -60,13 +82,7 @@ public class ProvidedServiceServiceImpl implements ProvidedServiceService {
         var contentIds = providedServiceDao.retrieveServiceContent(serviceId);
 
         // use s3 client to generate content URLs for provided content ids
-        Map<String, URL> contentUrls = new HashMap<>();
-        for (var id : contentIds) {
-            final var url = s3.getSignedObjectUrl(id, 30);
-            contentUrls.put(id, url);
-        }
-
-        return contentUrls;
+        return s3.getSignedObjectUrls(contentIds, 30);
     }
 
     @Override
@@ -80,6 +96,8 @@ public class ProvidedServiceServiceImpl implements ProvidedServiceService {
 
         providedServiceDao.deleteProvidedServiceContent(serviceId, contentId);
 
+        profileCache.invalidate(serviceId);
+
         s3.deleteObject(contentId);
     }
 
@@ -89,18 +107,37 @@ public class ProvidedServiceServiceImpl implements ProvidedServiceService {
         ProvidedServiceValidator.validateUpdateOrThrow(request);
 
         providedServiceDao.updateProvidedServiceDetails(principal.getUserId(), serviceId, request);
+
+        // search results and the service's profile should reflect its new name and details
+        serviceIndex.reindexEmployee(principal.getUserId());
+        profileCache.invalidate(serviceId);
     }
 
-    @Override
+    @Override @Transactional(readOnly = true)
     public List<ProvidedService> retrieveEmployeesServices(Long employeeId) {
 
         // return all stored services from db
         return providedServiceDao.retrieveEmployeesServices(employeeId);
     }
 
+    @Override @Transactional(readOnly = true)
+    public void streamEmployeesServices(Long employeeId, Consumer<ProvidedService> consumer) {
+
+        // pass along stored services as they are read from db
+        providedServiceDao.streamEmployeesServices(employeeId, consumer);
+    }
+
     @Override
     public ProvidedServiceProfile retrieveServiceProfile(Long serviceId) throws Exception {
 
+        // serve popular services from memory, only assembling profiles that are not cached.
+        // profiles are assembled outside a read-only transaction so they are read from the primary,
+        // a lagging replica could otherwise have a profile cached from before its latest change
+        return profileCache.get(serviceId, this::assembleServiceProfile);
+    }
+
+    private ProvidedServiceProfile assembleServiceProfile(Long serviceId) throws Exception {
+
         // retrieve all stored details about a service from db
         var providedService = providedServiceDao.retrieveServiceDetails(serviceId);
 
@@ -108,18 +145,14 @@ public class ProvidedServiceServiceImpl implements ProvidedServiceService {
         var contentIds = providedServiceDao.retrieveServiceContent(serviceId);
 
         // use s3 client to generate content URLs for provided content ids
-        List<URL> contentUrls = new ArrayList<>();
-        for (var id : contentIds) {
-            final var url = s3.getSignedObjectUrl(id, 30);
-            contentUrls.add(url);
-        }
+        List<URL> contentUrls = new ArrayList<>(s3.getSignedObjectUrls(contentIds, 30).values());
 
         // build and return complete provided service profile
         return new ProvidedServiceProfile(providedService, contentUrls);
     }
 
     @Override
-    public void uploadProvidedServiceImage(UserAccount principal, Long serviceId, MultipartFile image) throws Exception {
+    public ImageUploadJob uploadProvidedServiceImage(UserAccount principal, Long serviceId, MultipartFile image) throws Exception {
 
         // make sure image file is correctly formatted
         ImageValidator.validateUploadedImage(image);
@@ -128,28 +161,39 @@ public class ProvidedServiceServiceImpl implements ProvidedServiceService {
         if (!providedServiceDao.serviceBelongsTo(serviceId, principal.getUserId()))
             throw new BadRequestException("You are not allowed to edit this service!");
 
-        // scale image by 80%
-        final var scaledImage = imageScale.getScaledImage(image, 0.8F);
-
         // create resource ID for uploaded content
         final UUID newResourceId = UUID.randomUUID();
 
-        // upload content to S3
-        s3.uploadToS3(scaledImage, image.getContentType(), newResourceId.toString());
-
-        // store
-        providedServiceDao.addContentToProvidedService(serviceId, newResourceId.toString());
+        // scale and upload content to S3 in the background,
+        // content is only stored with the service once it is available
+        return imageUploads.submit(principal.getUserId(), image, newResourceId.toString(), () -> {
+            providedServiceDao.addContentToProvidedService(serviceId, newResourceId.toString());
+            profileCache.invalidate(serviceId);
+        });
     }
 
 
     @Override
-    public List<ProvidedServiceDetails> searchAvailableService(String searchText) {
+    public List<ProvidedServiceSummary> searchAvailableService(String searchText, Integer offset, Integer limit) throws Exception {
+
+        ProvidedServiceValidator.validateSearchRequestOrThrow(offset, limit);
 
-        // if search text is valid return all matching services in db
-        if (StrTools.hasValue(searchText)) return providedServiceDao.searchAvailableServices(searchText);
+        // if search text is valid return the requested page of matching services, searched in memory
+        if (StrTools.hasValue(searchText)) return serviceIndex.search(searchText,
+                offset == null ? 0 : offset,
+                limit == null ? ProvidedServiceValidator.DEFAULT_SEARCH_LIMIT : limit);
 
         // else return an empty list
         return new ArrayList<>();
     }
 
+    @Override
+    public List<SearchSuggestion> suggestAvailableServices(String prefix, Integer limit) throws Exception {
+
+        ProvidedServiceValidator.validateSuggestRequestOrThrow(prefix, limit);
+
+        // suggestions are completed in memory, never touching the database
+        return serviceIndex.suggest(prefix, limit == null ? ProvidedServiceValidator.DEFAULT_SUGGESTIONS : limit);
+    }
+
 }
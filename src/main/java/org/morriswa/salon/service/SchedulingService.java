@@ -1,12 +1,16 @@
 package org.morriswa.salon.service;
 
 import org.morriswa.salon.model.Appointment;
+import org.morriswa.salon.model.AppointmentPage;
 import org.morriswa.salon.model.AppointmentOpening;
 import org.morriswa.salon.model.AppointmentRequest;
+import org.morriswa.salon.model.AppointmentSearchRequest;
+import org.morriswa.salon.model.ServiceOpeningPage;
 import org.morriswa.salon.model.UserAccount;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * responsible for validating and maintaining the salon's schedule for employees and clients
@@ -37,6 +41,16 @@ public interface SchedulingService {
      */
     List<AppointmentOpening> retrieveAppointmentOpenings(UserAccount principal, AppointmentRequest request) throws Exception;
 
+    /**
+     * searches for appointment openings over a range of days with several employees or services
+     *
+     * @param principal current user
+     * @param request containing search params
+     * @return requested page of openings, earliest first
+     * @throws Exception if appointment openings could not be retrieved
+     */
+    ServiceOpeningPage searchAppointmentOpenings(UserAccount principal, AppointmentSearchRequest request) throws Exception;
+
     /**
      * @param principal the authenticated client
      * @return all of a client's scheduled appointments
@@ -46,9 +60,30 @@ public interface SchedulingService {
     /**
      * @param principal the authenticated employee
      * @param untilDate the last date to retrieve schedule for
-     * @return all employee's schedule appointments within requested timeframe
+     * @return all of employee's scheduled appointments within requested timeframe
+     * @throws Exception if the timeframe is too long
+     */
+    List<Appointment> retrieveEmployeeSchedule(UserAccount principal, LocalDate untilDate) throws Exception;
+
+    /**
+     * @param principal the authenticated employee
+     * @param untilDate the last date to retrieve schedule for
+     * @param after cursor returned with the previous page, null to retrieve the first page
+     * @param pageSize maximum number of appointments to retrieve, null for default
+     * @return a page of employee's scheduled appointments within requested timeframe
+     * @throws Exception if the cursor or page size is invalid
+     */
+    AppointmentPage retrieveEmployeeSchedulePage(UserAccount principal, LocalDate untilDate, String after, Integer pageSize) throws Exception;
+
+    /**
+     * passes every scheduled appointment within requested timeframe to a consumer,
+     * appointments are passed along as they are read so no part of the schedule is held in memory
+     *
+     * @param principal the authenticated employee
+     * @param untilDate the last date to retrieve schedule for
+     * @param consumer to receive appointments, ordered by time
      */
-    List<Appointment> retrieveEmployeeSchedule(UserAccount principal, LocalDate untilDate);
+    void exportEmployeeSchedule(UserAccount principal, LocalDate untilDate, Consumer<Appointment> consumer);
 
 // UPDATE
 
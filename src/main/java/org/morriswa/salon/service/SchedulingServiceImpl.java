@@ -2,14 +2,21 @@ package org.morriswa.salon.service;
 
 import org.morriswa.salon.dao.ScheduleDao;
 import org.morriswa.salon.model.Appointment;
+import org.morriswa.salon.model.AppointmentCursor;
 import org.morriswa.salon.model.AppointmentOpening;
 import org.morriswa.salon.model.AppointmentRequest;
+import org.morriswa.salon.model.AppointmentPage;
+import org.morriswa.salon.model.AppointmentSearchRequest;
+import org.morriswa.salon.model.ServiceOpeningPage;
 import org.morriswa.salon.model.UserAccount;
 import org.morriswa.salon.validation.ScheduleRequestValidator;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 public class SchedulingServiceImpl implements SchedulingService{
@@ -31,6 +38,28 @@ public class SchedulingServiceImpl implements SchedulingService{
         return scheduleDao.retrieveAppointmentOpenings(principal.getUserId(), request);
     }
 
+    @Override
+    public ServiceOpeningPage searchAppointmentOpenings(UserAccount principal, AppointmentSearchRequest request) throws Exception {
+
+        // validate search params
+        ScheduleRequestValidator.validateAppointmentSearchRequest(request);
+
+        final int page = request.page() == null? 0 : request.page();
+        final int pageSize = request.pageSize() == null?
+                ScheduleRequestValidator.DEFAULT_SEARCH_PAGE_SIZE : request.pageSize();
+
+        // only generate openings up to the end of the requested page,
+        // plus one more to learn whether another page follows
+        final long end = ((long) page + 1) * pageSize;
+        final var openings = scheduleDao.retrieveAppointmentOpenings(principal.getUserId(), request,
+                ScheduleRequestValidator.MAX_SEARCH_EMPLOYEES, (int) Math.min(end + 1, Integer.MAX_VALUE));
+
+        // and return requested page
+        final int from = (int) Math.min((long) page * pageSize, openings.size());
+        final int to = (int) Math.min(end, openings.size());
+        return new ServiceOpeningPage(openings.subList(from, to), page, pageSize, openings.size() <= end);
+    }
+
     @Override
     public void bookAppointment(UserAccount principal, AppointmentRequest request) throws Exception {
 
@@ -41,18 +70,47 @@ public class SchedulingServiceImpl implements SchedulingService{
         scheduleDao.bookAppointment(principal.getUserId(), request);
     }
 
-    @Override
+    @Override @Transactional(readOnly = true)
     public List<Appointment> retrieveScheduledAppointments(UserAccount principal) {
 
         // return all a client's appointments stored in db
         return scheduleDao.retrieveScheduledAppointments(principal.getUserId());
     }
 
-    @Override
-    public List<Appointment> retrieveEmployeeSchedule(UserAccount principal, LocalDate untilDate) {
+    @Override @Transactional(readOnly = true)
+    public List<Appointment> retrieveEmployeeSchedule(UserAccount principal, LocalDate untilDate) throws Exception {
+
+        // validate timeframe, which bounds how many appointments may be returned
+        ScheduleRequestValidator.validateEmployeeScheduleTimeframe(untilDate);
+
+        final List<Appointment> appointments = new ArrayList<>();
+        scheduleDao.streamEmployeeSchedule(principal.getUserId(), untilDate, appointments::add);
+        return appointments;
+    }
+
+    @Override @Transactional(readOnly = true)
+    public AppointmentPage retrieveEmployeeSchedulePage(UserAccount principal, LocalDate untilDate, String after, Integer pageSize) throws Exception {
+
+        // validate paging params, pages stay small however far ahead the schedule reaches
+        ScheduleRequestValidator.validateEmployeeScheduleRequest(after, pageSize);
+
+        final int limit = pageSize == null? ScheduleRequestValidator.DEFAULT_SCHEDULE_PAGE_SIZE : pageSize;
+
+        // retrieve one extra appointment to learn whether another page follows
+        final var appointments = scheduleDao.retrieveEmployeeSchedule(principal.getUserId(), untilDate,
+                after == null? null : AppointmentCursor.decode(after), limit + 1);
+
+        if (appointments.size() <= limit) return new AppointmentPage(appointments, null);
+
+        final var page = appointments.subList(0, limit);
+        return new AppointmentPage(page, AppointmentCursor.of(page.get(limit - 1)).encode());
+    }
+
+    @Override @Transactional(readOnly = true)
+    public void exportEmployeeSchedule(UserAccount principal, LocalDate untilDate, Consumer<Appointment> consumer) {
 
-        // return all an employee's appointments stored in db
-        return scheduleDao.retrieveEmployeeSchedule(principal.getUserId(), untilDate);
+        // pass along appointments as they are read from db, so no part of the schedule is held in memory
+        scheduleDao.streamEmployeeSchedule(principal.getUserId(), untilDate, consumer);
     }
 
     @Override
@@ -0,0 +1,31 @@
+package org.morriswa.salon.utility;
+
+import org.morriswa.salon.model.UserAccount;
+
+/**
+ * issues and verifies signed access tokens, allowing requests to be authenticated
+ * without password verification, the user a token names is cached rather than loaded on every request
+ */
+public interface AccessTokenService {
+
+    /**
+     * @param principal authenticated user to issue a token for
+     * @return signed token carrying the user's id, expiry and token version
+     */
+    String issue(UserAccount principal);
+
+    /**
+     * @param token provided with a request
+     * @return the user named by the token with their current username and authorities,
+     * or null if the token is malformed, tampered with, expired or revoked
+     */
+    UserAccount verify(String token);
+
+    /**
+     * must be called whenever a user's username, authorities or token version change, so this instance
+     * applies the change to their tokens right away, other instances apply it once their cache expires
+     *
+     * @param userId of the user who changed
+     */
+    void evict(Long userId);
+}
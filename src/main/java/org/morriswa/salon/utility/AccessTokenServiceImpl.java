@@ -0,0 +1,159 @@
+package org.morriswa.salon.utility;
+
+import org.morriswa.salon.dao.AccountDao;
+import org.morriswa.salon.model.UserAccount;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.stream.Collectors;
+
+@Component
+public class AccessTokenServiceImpl implements AccessTokenService {
+
+    private static final String SIGNATURE_ALGORITHM = "HmacSHA256";
+    private static final String TOKEN_VERSION = "v3";
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final AccountDao accountDao;
+    private final SecretKeySpec signingKey;
+    private final Duration timeToLive;
+    private final ExpiringCache<Long, TokenSubject> tokenSubjects;
+
+    // the user a token was issued to, as they currently are, and the token version they currently accept
+    private record TokenSubject(UserAccount principal, Integer tokenVersion) { }
+
+    // cached for users that do not exist, so tokens naming them are rejected without reaching the database
+    private static final TokenSubject UNKNOWN_SUBJECT = new TokenSubject(null, null);
+
+    @Autowired
+    public AccessTokenServiceImpl(Environment e, AccountDao accountDao) {
+        this.accountDao = accountDao;
+        this.timeToLive = e.getRequiredProperty("salon.security.token-ttl", Duration.class);
+
+        // a user's account is trusted for as long as their verified credentials are,
+        // so changes made through another instance are only seen here after this long
+        this.tokenSubjects = new ExpiringCache<>(
+                e.getRequiredProperty("salon.security.principal-cache-ttl", Duration.class),
+                e.getRequiredProperty("salon.security.principal-cache-max-entries", Integer.class));
+
+        // if no secret is configured, tokens are only valid on this instance until it restarts,
+        // which is only acceptable while developing or testing
+        final var secret = e.getProperty("salon.security.token-secret", "");
+        final byte[] keyBytes;
+        if (secret.isBlank()) {
+            if (!e.acceptsProfiles(Profiles.of("dev", "test")))
+                throw new IllegalStateException(
+                        "salon.security.token-secret must be set unless running with the dev or test profile");
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+
+        this.signingKey = new SecretKeySpec(keyBytes, SIGNATURE_ALGORITHM);
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            final var mac = Mac.getInstance(SIGNATURE_ALGORITHM);
+            mac.init(signingKey);
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException gse) {
+            // HmacSHA256 is required to be available on every java platform
+            throw new IllegalStateException(gse);
+        }
+    }
+
+    private TokenSubject loadSubject(Long userId) {
+        final var tokenVersion = accountDao.retrieveTokenVersion(userId);
+        if (tokenVersion == null) return UNKNOWN_SUBJECT;
+
+        try {
+            final var user = accountDao.findUser(userId);
+            if (user == null) return UNKNOWN_SUBJECT;
+
+            // the password is never handed out with a token
+            return new TokenSubject(new UserAccount(
+                    user.getUserId(),
+                    user.getUsername(),
+                    null,
+                    user.getDateCreated(),
+                    user.getAuthorities().stream()
+                            .map(authority -> new SimpleGrantedAuthority(authority.getAuthority()))
+                            .collect(Collectors.toSet())),
+                    tokenVersion);
+        } catch (UsernameNotFoundException unfe) {
+            return UNKNOWN_SUBJECT;
+        }
+    }
+
+    private TokenSubject subjectOf(Long userId) {
+        return tokenSubjects.get(userId, this::loadSubject);
+    }
+
+    @Override
+    public String issue(UserAccount principal) {
+        // username and authorities are looked up when the token is used, so changes to them apply right away
+        final var payload = String.join(":",
+                TOKEN_VERSION,
+                principal.getUserId().toString(),
+                String.valueOf(Instant.now().plus(timeToLive).getEpochSecond()),
+                String.valueOf(subjectOf(principal.getUserId()).tokenVersion())
+        ).getBytes(StandardCharsets.UTF_8);
+
+        return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(sign(payload));
+    }
+
+    @Override
+    public UserAccount verify(String token) {
+        if (token == null) return null;
+
+        final int separator = token.indexOf('.');
+        if (separator < 0) return null;
+
+        final byte[] payload;
+        final byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(0, separator));
+            signature = DECODER.decode(token.substring(separator + 1));
+        } catch (IllegalArgumentException iae) {
+            return null;
+        }
+
+        // compare in constant time so the signature can not be guessed byte by byte
+        if (!MessageDigest.isEqual(sign(payload), signature)) return null;
+
+        final var fields = new String(payload, StandardCharsets.UTF_8).split(":");
+        if (fields.length != 4 || !TOKEN_VERSION.equals(fields[0])) return null;
+
+        try {
+            if (Instant.now().getEpochSecond() >= Long.parseLong(fields[2])) return null;
+
+            // tokens of deleted users, or issued before the user's password changed, are revoked
+            final var subject = subjectOf(Long.parseLong(fields[1]));
+            if (subject.principal() == null || subject.tokenVersion() != Integer.parseInt(fields[3])) return null;
+
+            return subject.principal();
+        } catch (NumberFormatException nfe) {
+            return null;
+        }
+    }
+
+    @Override
+    public void evict(Long userId) {
+        tokenSubjects.invalidate(userId);
+    }
+}
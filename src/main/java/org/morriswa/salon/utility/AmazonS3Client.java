@@ -3,6 +3,8 @@ package org.morriswa.salon.utility;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URL;
+import java.util.Collection;
+import java.util.Map;
 
 /**
  * interacts with Amazon S3 bucket to store and retrieve application content
@@ -16,7 +18,38 @@ public interface AmazonS3Client {
 
     boolean doesObjectExist(String path);
 
+    /**
+     * makes a request to the configured bucket, used to verify S3 is reachable
+     *
+     * @throws Exception if the bucket could not be reached
+     */
+    void checkAccess() throws Exception;
+
+    /**
+     * signed urls are cached, so repeated calls for the same content may return the same url
+     * as long as at least half of its lifetime remains
+     *
+     * @param path of the content to sign
+     * @param expirationMinutes how long the url should be valid for
+     * @return url granting temporary access to the content
+     */
     URL getSignedObjectUrl(String path, int expirationMinutes);
 
+    /**
+     * signs urls for many pieces of content in parallel
+     *
+     * @param paths of the content to sign
+     * @param expirationMinutes how long the urls should be valid for
+     * @return each path mapped to its signed url, in the order provided
+     */
+    Map<String, URL> getSignedObjectUrls(Collection<String> paths, int expirationMinutes);
+
     void deleteObject(String path);
+
+    /**
+     * deletes many pieces of content with as few requests as possible
+     *
+     * @param paths of the content to delete
+     */
+    void deleteObjects(Collection<String> paths);
 }
@@ -1,40 +1,59 @@
 package org.morriswa.salon.utility;
 
 import com.amazonaws.HttpMethod;
+import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.model.DeleteObjectRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
 import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.UnsatisfiedDependencyException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
 import java.io.*;
 import java.net.URL;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.Date;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @Component
 public class AmazonS3ClientImpl implements AmazonS3Client {
+
+    private record PresignedUrl(URL url, int expirationMinutes) { }
+
+    // object requested to verify the bucket is reachable, it does not need to exist
+    private static final String ACCESS_CHECK_OBJECT = "eecs447/hello-world.txt";
+
+    // largest number of keys S3 accepts in one delete request
+    private static final int MAX_KEYS_PER_DELETE = 1000;
+
     private final AmazonS3 s3;
+    private final Executor executor;
 
     private final String ACTIVE_BUCKET;
     private final String FILE_DEST_PREFIX;
 
+    // signed urls by path, each expiring from the cache once half of its lifetime has passed
+    private final ExpiringCache<String, PresignedUrl> presignedUrls;
+
     @Autowired
-    AmazonS3ClientImpl(Environment e) {
+    AmazonS3ClientImpl(Environment e, MeterRegistry meters, @Qualifier("s3Executor") Executor executor) {
+        this(e, meters, buildClient(e), executor);
         Logger log = LoggerFactory.getLogger(AmazonS3Client.class);
-        this.s3 = AmazonS3ClientBuilder.standard().withRegion(Regions.US_EAST_1).build();
-        this.ACTIVE_BUCKET = e.getRequiredProperty("aws.s3.bucket");
-        this.FILE_DEST_PREFIX = e.getRequiredProperty("aws.s3.apppath");
         try { // attempt to access test file within S3 bucket
-            s3.doesObjectExist(this.ACTIVE_BUCKET, "eecs447/hello-world.txt");
+            checkAccess();
             log.info("Successfully started Amazon S3 Client!");
         } catch (Exception ex) { // if file is inaccessible, S3 client has not been properly configured
             // report error
@@ -48,6 +67,38 @@ public class AmazonS3ClientImpl implements AmazonS3Client {
         }
     }
 
+    AmazonS3ClientImpl(Environment e, MeterRegistry meters, AmazonS3 s3, Executor executor) {
+        this.s3 = s3;
+        this.executor = executor;
+        this.ACTIVE_BUCKET = e.getRequiredProperty("aws.s3.bucket");
+        this.FILE_DEST_PREFIX = e.getRequiredProperty("aws.s3.apppath");
+        this.presignedUrls = new ExpiringCache<>(
+                e.getRequiredProperty("aws.s3.presign-cache-ttl", Duration.class),
+                e.getRequiredProperty("aws.s3.presign-cache-max-entries", Integer.class));
+
+        // published as salon.s3.presign-cache{result=hit|miss}
+        FunctionCounter.builder("salon.s3.presign-cache", presignedUrls, ExpiringCache::hitCount)
+                .tag("result", "hit")
+                .register(meters);
+        FunctionCounter.builder("salon.s3.presign-cache", presignedUrls, ExpiringCache::missCount)
+                .tag("result", "miss")
+                .register(meters);
+    }
+
+    private static AmazonS3 buildClient(Environment e) {
+        final var endpoint = e.getProperty("aws.s3.endpoint", "");
+
+        if (endpoint.isBlank())
+            return AmazonS3ClientBuilder.standard().withRegion(Regions.US_EAST_1).build();
+
+        // S3 compatible stand-ins are usually addressed by path rather than by bucket subdomain
+        return AmazonS3ClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(
+                        endpoint, Regions.US_EAST_1.getName()))
+                .withPathStyleAccessEnabled(true)
+                .build();
+    }
+
     @Override
     public void uploadToS3(OutputStream content, String contentType, String destination) throws Exception {
 
@@ -68,6 +119,9 @@ public class AmazonS3ClientImpl implements AmazonS3Client {
                 contentAsInputStream, imageInfo));
 
         contentAsInputStream.close();
+
+        // previously signed urls may describe replaced content
+        presignedUrls.invalidate(destination);
     }
 
     @Override
@@ -82,24 +136,75 @@ public class AmazonS3ClientImpl implements AmazonS3Client {
         return objectExists;
     }
 
+    @Override
+    public void checkAccess() {
+        s3.doesObjectExist(this.ACTIVE_BUCKET, ACCESS_CHECK_OBJECT);
+    }
+
     @Override
     public URL getSignedObjectUrl(String path, int expirationMinutes) {
 
-        Date expiration = new Date();
-        long expTimeMillis = Instant.now().toEpochMilli();
-        expTimeMillis += 1000L * 60 * expirationMinutes;
-        expiration.setTime(expTimeMillis);
+        // reuse a cached url while at least half of its lifetime remains,
+        // a url signed for a different lifetime is replaced
+        final var cached = presignedUrls.get(path);
+        if (cached != null && cached.expirationMinutes() == expirationMinutes) return cached.url();
+
+        final var lifetime = Duration.ofMinutes(expirationMinutes);
+        final Instant expiresAt = Instant.now().plus(lifetime);
 
-        return s3.generatePresignedUrl(
+        final URL url = s3.generatePresignedUrl(
                 new GeneratePresignedUrlRequest(
                         ACTIVE_BUCKET,
                         this.FILE_DEST_PREFIX+path)
                         .withMethod(HttpMethod.GET)
-                        .withExpiration(expiration));
+                        .withExpiration(Date.from(expiresAt)));
+
+        presignedUrls.put(path, new PresignedUrl(url, expirationMinutes), lifetime.dividedBy(2));
+
+        return url;
+    }
+
+    @Override
+    public Map<String, URL> getSignedObjectUrls(Collection<String> paths, int expirationMinutes) {
+
+        final var distinctPaths = new LinkedHashSet<>(paths);
+
+        // nothing to gain from switching threads for a single url
+        if (distinctPaths.size() < 2) {
+            final var urls = new LinkedHashMap<String, URL>();
+            for (var path : distinctPaths) urls.put(path, getSignedObjectUrl(path, expirationMinutes));
+            return urls;
+        }
+
+        final var pending = new LinkedHashMap<String, CompletableFuture<URL>>();
+        for (var path : distinctPaths)
+            pending.put(path, CompletableFuture.supplyAsync(
+                    () -> getSignedObjectUrl(path, expirationMinutes), executor));
+
+        final var urls = new LinkedHashMap<String, URL>();
+        for (var entry : pending.entrySet()) urls.put(entry.getKey(), entry.getValue().join());
+        return urls;
     }
 
     @Override
     public void deleteObject(String path) {
         s3.deleteObject(new DeleteObjectRequest(ACTIVE_BUCKET, this.FILE_DEST_PREFIX+path));
+        presignedUrls.invalidate(path);
+    }
+
+    @Override
+    public void deleteObjects(Collection<String> paths) {
+
+        final var keys = paths.stream().distinct()
+                .map(path -> new DeleteObjectsRequest.KeyVersion(this.FILE_DEST_PREFIX+path))
+                .toList();
+
+        // delete in as few requests as S3 allows
+        for (int start = 0; start < keys.size(); start += MAX_KEYS_PER_DELETE)
+            s3.deleteObjects(new DeleteObjectsRequest(ACTIVE_BUCKET)
+                    .withKeys(keys.subList(start, Math.min(keys.size(), start + MAX_KEYS_PER_DELETE)))
+                    .withQuiet(true));
+
+        for (var path : paths) presignedUrls.invalidate(path);
     }
 }
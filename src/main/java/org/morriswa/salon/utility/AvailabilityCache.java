@@ -0,0 +1,61 @@
+package org.morriswa.salon.utility;
+
+import java.time.LocalDate;
+
+/**
+ * keeps recently viewed days of the salon's schedule in memory so appointment openings
+ * can be found without querying the database
+ */
+public interface AvailabilityCache {
+
+    /**
+     * @param userId of the employee or client whose schedule to retrieve
+     * @param day in the salon's time zone
+     * @return the cached schedule, or null if the day is not cached
+     */
+    ScheduleBitmap retrieve(Long userId, LocalDate day);
+
+    /**
+     * @return a number that changes whenever any schedule is claimed, released or evicted,
+     * must be read before loading schedules and passed to {@link #store}
+     */
+    long version();
+
+    /**
+     * caches a freshly loaded schedule, unless a schedule changed while it was loaded
+     *
+     * @param userId of the employee or client who owns the schedule
+     * @param day in the salon's time zone
+     * @param schedule to cache
+     * @param loadedVersion {@link #version()} read before the schedule was loaded
+     */
+    void store(Long userId, LocalDate day, ScheduleBitmap schedule, long loadedVersion);
+
+    /**
+     * marks slots as taken in a cached schedule, does nothing if the day is not cached
+     *
+     * @param userId of the employee or client who owns the schedule
+     * @param day in the salon's time zone
+     * @param fromSlot first slot taken
+     * @param length number of slots taken
+     */
+    void claim(Long userId, LocalDate day, int fromSlot, int length);
+
+    /**
+     * marks slots as open in a cached schedule, does nothing if the day is not cached
+     *
+     * @param userId of the employee or client who owns the schedule
+     * @param day in the salon's time zone
+     * @param fromSlot first slot released
+     * @param length number of slots released
+     */
+    void release(Long userId, LocalDate day, int fromSlot, int length);
+
+    /**
+     * removes a day from the cache, forcing it to be reloaded on next use
+     *
+     * @param userId of the employee or client who owns the schedule
+     * @param day in the salon's time zone
+     */
+    void evict(Long userId, LocalDate day);
+}
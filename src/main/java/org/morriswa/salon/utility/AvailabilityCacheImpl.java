@@ -0,0 +1,70 @@
+package org.morriswa.salon.utility;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class AvailabilityCacheImpl implements AvailabilityCache {
+
+    private record ScheduleKey(Long userId, LocalDate day) { }
+
+    private final ExpiringCache<ScheduleKey, ScheduleBitmap> schedules;
+
+    // incremented on every change, a schedule is only cached if no change happened while it was loaded,
+    // otherwise a booking committed after the schedule was read would be missing from the cached copy
+    private final AtomicLong version = new AtomicLong();
+
+    @Autowired
+    public AvailabilityCacheImpl(Environment e) {
+        // schedules are kept for a short while so that bookings made by other instances are picked up
+        this.schedules = new ExpiringCache<>(
+                e.getRequiredProperty("salon.schedule.availability-ttl", Duration.class),
+                e.getRequiredProperty("salon.schedule.availability-max-days", Integer.class));
+    }
+
+    @Override
+    public ScheduleBitmap retrieve(Long userId, LocalDate day) {
+        return schedules.get(new ScheduleKey(userId, day));
+    }
+
+    @Override
+    public long version() {
+        return version.get();
+    }
+
+    @Override
+    public void store(Long userId, LocalDate day, ScheduleBitmap schedule, long loadedVersion) {
+        if (loadedVersion != version.get()) return;
+
+        final var key = new ScheduleKey(userId, day);
+        schedules.put(key, schedule);
+
+        // a change may have landed between the check and the put
+        if (loadedVersion != version.get()) schedules.invalidate(key);
+    }
+
+    @Override
+    public void claim(Long userId, LocalDate day, int fromSlot, int length) {
+        version.incrementAndGet();
+        final var schedule = schedules.get(new ScheduleKey(userId, day));
+        if (schedule != null) schedule.claim(fromSlot, length);
+    }
+
+    @Override
+    public void release(Long userId, LocalDate day, int fromSlot, int length) {
+        version.incrementAndGet();
+        final var schedule = schedules.get(new ScheduleKey(userId, day));
+        if (schedule != null) schedule.release(fromSlot, length);
+    }
+
+    @Override
+    public void evict(Long userId, LocalDate day) {
+        version.incrementAndGet();
+        schedules.invalidate(new ScheduleKey(userId, day));
+    }
+}
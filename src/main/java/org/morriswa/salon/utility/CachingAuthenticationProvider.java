@@ -0,0 +1,47 @@
+package org.morriswa.salon.utility;
+
+import org.morriswa.salon.model.UserAccount;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+
+/**
+ * authenticates username and password requests with a delegate provider,
+ * remembering successful results so repeated requests skip the database lookup and password verification
+ */
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+
+    private final AuthenticationProvider delegate;
+    private final PrincipalCache principals;
+
+    public CachingAuthenticationProvider(AuthenticationProvider delegate, PrincipalCache principals) {
+        this.delegate = delegate;
+        this.principals = principals;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        final var username = authentication.getName();
+        // copy the password before the delegate has a chance to erase it
+        final var password = authentication.getCredentials() == null
+                ? null : authentication.getCredentials().toString();
+
+        final var cached = principals.retrieve(username, password);
+        if (cached != null)
+            return UsernamePasswordAuthenticationToken.authenticated(cached, password, cached.getAuthorities());
+
+        // any failure is thrown by the delegate and never cached
+        final var result = delegate.authenticate(authentication);
+
+        if (result != null && result.getPrincipal() instanceof UserAccount principal)
+            principals.store(username, password, principal);
+
+        return result;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return UsernamePasswordAuthenticationToken.class.isAssignableFrom(authentication);
+    }
+}
@@ -0,0 +1,216 @@
+package org.morriswa.salon.utility;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * thread-safe, size-bounded key value store whose entries expire after a fixed time to live
+ *
+ * @param <K> type of key
+ * @param <V> type of cached value
+ */
+public class ExpiringCache<K, V> {
+
+    private record Entry<V>(V value, long expiresAt) {
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+
+    /**
+     * an entry as it was stored, replaced or removed entries are left behind in the queue until they reach its head
+     */
+    private record Stored<K, V>(K key, Entry<V> entry) { }
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    // every stored entry, oldest first, so the cache is trimmed without searching it
+    private final Queue<Stored<K, V>> storedOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger storedCount = new AtomicInteger();
+    // loads in progress, so concurrent misses on one key share a single load
+    private final Map<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final long timeToLiveNanos;
+    private final int maxEntries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param timeToLive how long an entry may be served after it was stored
+     * @param maxEntries maximum number of entries held at any time
+     */
+    public ExpiringCache(Duration timeToLive, int maxEntries) {
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @param key to lookup
+     * @return the cached value, or null if the key is absent or expired
+     */
+    public V get(K key) {
+        final var entry = entries.get(key);
+
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        if (entry.isExpired(System.nanoTime())) {
+            // only remove the entry that was observed, a fresh one may have replaced it
+            entries.remove(key, entry);
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return entry.value();
+    }
+
+    /**
+     * retrieves a cached value, loading and storing it on a miss.
+     * Callers missing the same key at the same time wait for one load rather than each loading it
+     *
+     * @param key to lookup
+     * @param loader used to produce the value if it is not cached, null results are not stored
+     * @return the cached or loaded value
+     */
+    public V get(K key, Function<K, V> loader) {
+        final var cached = get(key);
+        if (cached != null) return cached;
+
+        final var load = new CompletableFuture<V>();
+        final var inProgress = loading.putIfAbsent(key, load);
+        if (inProgress != null) return await(inProgress);
+
+        try {
+            // a load finishing between the miss and claiming this one has already stored the value
+            final var entry = entries.get(key);
+            final var loaded = entry != null && !entry.isExpired(System.nanoTime())
+                    ? entry.value()
+                    : loader.apply(key);
+            if (loaded != null) put(key, loaded);
+            load.complete(loaded);
+            return loaded;
+        } catch (RuntimeException | Error ex) {
+            load.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            loading.remove(key, load);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException ce) {
+            // waiting callers fail the same way as the caller that loaded
+            if (ce.getCause() instanceof RuntimeException re) throw re;
+            if (ce.getCause() instanceof Error err) throw err;
+            throw ce;
+        }
+    }
+
+    /**
+     * stores a value, replacing any previous entry
+     *
+     * @param key to store value under
+     * @param value to store
+     */
+    public void put(K key, V value) {
+        store(key, value, timeToLiveNanos);
+    }
+
+    /**
+     * stores a value which must not be served for as long as the cache's usual time to live
+     *
+     * @param key to store value under
+     * @param value to store
+     * @param timeToLive how long the value may be served, capped at the cache's time to live
+     */
+    public void put(K key, V value, Duration timeToLive) {
+        store(key, value, Math.min(timeToLiveNanos, timeToLive.toNanos()));
+    }
+
+    private void store(K key, V value, long lifetimeNanos) {
+        final long now = System.nanoTime();
+
+        // make room before growing past the configured bound
+        if (entries.size() >= maxEntries && !entries.containsKey(key)) makeRoom();
+
+        final var entry = new Entry<>(value, now + lifetimeNanos);
+        entries.put(key, entry);
+        storedOrder.add(new Stored<>(key, entry));
+
+        // replaced and removed entries pile up in the queue while the cache has room,
+        // so drop them once they outnumber live entries, which takes at least maxEntries puts
+        if (storedCount.incrementAndGet() > 2 * maxEntries) forgetRemoved();
+    }
+
+    /**
+     * @param key to remove from the cache
+     */
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * removes all entries matching a condition
+     *
+     * @param condition tested against every key and value
+     */
+    public void invalidateIf(BiPredicate<K, V> condition) {
+        entries.entrySet().removeIf(entry -> condition.test(entry.getKey(), entry.getValue().value()));
+    }
+
+    /**
+     * removes all entries
+     */
+    public void clear() {
+        entries.clear();
+        forgetRemoved();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @param stored entry from the queue
+     * @return true if the entry is still in the cache
+     */
+    private boolean isLive(Stored<K, V> stored) {
+        return entries.get(stored.key()) == stored.entry();
+    }
+
+    private void forgetRemoved() {
+        storedOrder.removeIf(stored -> !isLive(stored));
+        storedCount.set(storedOrder.size());
+    }
+
+    private void makeRoom() {
+        // entries of one cache are stored with the same time to live, so the oldest stored entries
+        // are the first to expire or otherwise the closest to expiring, each is only looked at once here
+        Stored<K, V> oldest;
+        while (entries.size() >= maxEntries && (oldest = storedOrder.poll()) != null) {
+            storedCount.decrementAndGet();
+            entries.remove(oldest.key(), oldest.entry());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.morriswa.salon.utility;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * byte array output stream whose contents can be read back without being copied,
+ * optionally refusing to grow past a maximum size
+ */
+public class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+
+    private final int maxSize;
+
+    public ExposedByteArrayOutputStream() {
+        super();
+        this.maxSize = Integer.MAX_VALUE;
+    }
+
+    /**
+     * @param initialSize expected number of bytes to be written, avoids regrowing the buffer
+     */
+    public ExposedByteArrayOutputStream(int initialSize) {
+        super(initialSize);
+        this.maxSize = Integer.MAX_VALUE;
+    }
+
+    /**
+     * @param initialSize expected number of bytes to be written, avoids regrowing the buffer
+     * @param maxSize largest number of bytes this stream will hold,
+     *                writing past it throws an UncheckedIOException
+     */
+    public ExposedByteArrayOutputStream(int initialSize, int maxSize) {
+        super(Math.min(initialSize, maxSize));
+        this.maxSize = maxSize;
+    }
+
+    private void ensureRoomFor(int length) {
+        if (length > maxSize - count)
+            throw new UncheckedIOException(new IOException(
+                    String.format("Stream content may not exceed %d bytes", maxSize)));
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        ensureRoomFor(1);
+        super.write(b);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+        ensureRoomFor(len);
+        super.write(b, off, len);
+    }
+
+    /**
+     * exposes the bytes written so far as an input stream backed by this stream's own buffer,
+     * this stream should not be written to while the returned input stream is in use
+     *
+     * @return input stream over everything written to this stream
+     */
+    public synchronized InputStream toInputStream() {
+        return new ByteArrayInputStream(buf, 0, count);
+    }
+}
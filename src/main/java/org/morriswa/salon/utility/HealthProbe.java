@@ -0,0 +1,20 @@
+package org.morriswa.salon.utility;
+
+import org.morriswa.salon.model.HealthReport;
+
+/**
+ * probes the database, its connection pools and S3 in the background,
+ * so the health of the service can be reported without making any calls on the request path
+ */
+public interface HealthProbe {
+
+    /**
+     * @return the results of the most recent probes, any result older than the configured limit is reported unhealthy
+     */
+    HealthReport report();
+
+    /**
+     * probes every dependency now, this runs on a schedule and does not need to be called on the request path
+     */
+    void refresh();
+}
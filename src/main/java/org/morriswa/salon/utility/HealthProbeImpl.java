@@ -0,0 +1,224 @@
+package org.morriswa.salon.utility;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.morriswa.salon.config.ReplicaRoutingDataSource;
+import org.morriswa.salon.dao.HealthDao;
+import org.morriswa.salon.enumerated.HealthStatus;
+import org.morriswa.salon.model.DependencyHealth;
+import org.morriswa.salon.model.HealthReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class HealthProbeImpl implements HealthProbe {
+
+    private static final Logger log = LoggerFactory.getLogger(HealthProbe.class);
+
+    /**
+     * a call made to probe a dependency
+     */
+    private interface Probe {
+        void run() throws Exception;
+    }
+
+    private final HealthDao healthDao;
+    private final AmazonS3Client s3;
+    private final ObjectProvider<HikariDataSource> pools;
+    private final ObjectProvider<ReplicaRoutingDataSource> replicas;
+    private final ScheduledExecutorService executor;
+    private final Duration interval;
+
+    private final Duration staleAfter;
+    private final Duration databaseDegradedAfter;
+    private final Duration databaseUnhealthyAfter;
+    private final Duration s3DegradedAfter;
+    private final Duration s3UnhealthyAfter;
+    private final double poolDegradedAt;
+    private final double poolUnhealthyAt;
+
+    // replaced as a whole after every round of probes, so readers never see a partial round
+    private volatile List<DependencyHealth> latest = List.of();
+    private volatile HealthStatus lastStatus = HealthStatus.Healthy;
+
+    @Autowired
+    public HealthProbeImpl(Environment e,
+                           HealthDao healthDao,
+                           AmazonS3Client s3,
+                           ObjectProvider<HikariDataSource> pools,
+                           ObjectProvider<ReplicaRoutingDataSource> replicas,
+                           @Qualifier("healthProbeExecutor") ScheduledExecutorService executor) {
+        this.healthDao = healthDao;
+        this.s3 = s3;
+        this.pools = pools;
+        this.replicas = replicas;
+        this.executor = executor;
+        this.interval = e.getRequiredProperty("salon.health.probe-interval", Duration.class);
+
+        this.staleAfter = e.getRequiredProperty("salon.health.stale-after", Duration.class);
+        this.databaseDegradedAfter = e.getRequiredProperty("salon.health.database.degraded-after", Duration.class);
+        this.databaseUnhealthyAfter = e.getRequiredProperty("salon.health.database.unhealthy-after", Duration.class);
+        this.s3DegradedAfter = e.getRequiredProperty("salon.health.s3.degraded-after", Duration.class);
+        this.s3UnhealthyAfter = e.getRequiredProperty("salon.health.s3.unhealthy-after", Duration.class);
+        this.poolDegradedAt = e.getRequiredProperty("salon.health.pool.degraded-at", Double.class);
+        this.poolUnhealthyAt = e.getRequiredProperty("salon.health.pool.unhealthy-at", Double.class);
+    }
+
+    /**
+     * begins probing once the application has started, so probes never run against a partly built context
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // probe right away, then again after every interval,
+        // an uncaught exception would cancel every later probe so none may escape
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException ex) {
+                log.error("Failed to probe dependencies: ", ex);
+            }
+        }, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * runs a probe, grading it by how long it took
+     *
+     * @param name of the dependency being probed
+     * @param probe call to make
+     * @param degradedAfter latency at which the dependency is degraded
+     * @param unhealthyAfter latency at which the dependency is unhealthy
+     * @return the result of the probe
+     */
+    private static DependencyHealth timed(String name, Probe probe, Duration degradedAfter, Duration unhealthyAfter) {
+        final long start = System.nanoTime();
+        try {
+            probe.run();
+        } catch (Exception ex) {
+            return new DependencyHealth(name, HealthStatus.Unhealthy,
+                    Duration.ofNanos(System.nanoTime() - start).toMillis(),
+                    String.format("%s: %s", ex.getClass().getSimpleName(), ex.getMessage()),
+                    ZonedDateTime.now());
+        }
+
+        final var latency = Duration.ofNanos(System.nanoTime() - start);
+
+        if (latency.compareTo(unhealthyAfter) >= 0)
+            return new DependencyHealth(name, HealthStatus.Unhealthy, latency.toMillis(),
+                    String.format("responded slower than %dms", unhealthyAfter.toMillis()), ZonedDateTime.now());
+
+        if (latency.compareTo(degradedAfter) >= 0)
+            return new DependencyHealth(name, HealthStatus.Degraded, latency.toMillis(),
+                    String.format("responded slower than %dms", degradedAfter.toMillis()), ZonedDateTime.now());
+
+        return new DependencyHealth(name, HealthStatus.Healthy, latency.toMillis(), null, ZonedDateTime.now());
+    }
+
+    /**
+     * @param pool connection pool to inspect
+     * @return the saturation of the pool, or null if the pool has not started yet
+     */
+    private DependencyHealth inspect(HikariDataSource pool) {
+        final var stats = pool.getHikariPoolMXBean();
+        if (stats == null) return null;
+
+        final int active = stats.getActiveConnections();
+        final int waiting = stats.getThreadsAwaitingConnection();
+        final int size = pool.getMaximumPoolSize();
+
+        // requests waiting for a connection count against the pool, a full pool with a queue is worse than a full pool
+        final double saturation = (double) (active + waiting) / size;
+        final var status = saturation >= poolUnhealthyAt ? HealthStatus.Unhealthy
+                : saturation >= poolDegradedAt ? HealthStatus.Degraded
+                : HealthStatus.Healthy;
+
+        return new DependencyHealth(pool.getPoolName(), status, null,
+                String.format("%d of %d connections in use, %d requests waiting", active, size, waiting),
+                ZonedDateTime.now());
+    }
+
+    /**
+     * @param replica routing datasource measuring the read replica's lag
+     * @return how far the replica is behind the primary, a lagging replica only slows the primary down
+     * as reads fall back to it, so the replica is never reported unhealthy
+     */
+    private static DependencyHealth inspect(ReplicaRoutingDataSource replica) {
+        final var lag = replica.replicaLag();
+
+        if (lag == null)
+            return new DependencyHealth("replica", HealthStatus.Degraded, null,
+                    String.format("%s, reads are served by the primary", replica.replicaFailure()), ZonedDateTime.now());
+
+        if (lag.compareTo(replica.maxLag()) > 0)
+            return new DependencyHealth("replica", HealthStatus.Degraded, null,
+                    String.format("%dms behind the primary, reads are served by the primary", lag.toMillis()),
+                    ZonedDateTime.now());
+
+        return new DependencyHealth("replica", HealthStatus.Healthy, null,
+                String.format("%dms behind the primary", lag.toMillis()), ZonedDateTime.now());
+    }
+
+    @Override
+    public void refresh() {
+        final var results = new ArrayList<DependencyHealth>();
+
+        results.add(timed("database", healthDao::ping, databaseDegradedAfter, databaseUnhealthyAfter));
+
+        pools.orderedStream().map(this::inspect).filter(Objects::nonNull).forEach(results::add);
+
+        replicas.ifAvailable(replica -> results.add(inspect(replica)));
+
+        results.add(timed("s3", s3::checkAccess, s3DegradedAfter, s3UnhealthyAfter));
+
+        latest = List.copyOf(results);
+
+        // only log changes, a probe runs every few seconds
+        final var status = worstOf(latest);
+        if (status != lastStatus) {
+            if (status == HealthStatus.Healthy) log.info("Service is healthy again");
+            else log.warn("Service is {}: {}", status, latest.stream()
+                    .filter(dependency -> dependency.status() != HealthStatus.Healthy).toList());
+            lastStatus = status;
+        }
+    }
+
+    private static HealthStatus worstOf(List<DependencyHealth> dependencies) {
+        return dependencies.stream()
+                .map(DependencyHealth::status)
+                .max(Comparator.naturalOrder())
+                .orElse(HealthStatus.Healthy);
+    }
+
+    @Override
+    public HealthReport report() {
+        final var results = latest;
+
+        // nothing can be vouched for before the first round of probes completes
+        if (results.isEmpty())
+            return new HealthReport(HealthStatus.Unhealthy, List.of(new DependencyHealth("probe", HealthStatus.Unhealthy,
+                    null, "dependencies have not been probed yet", null)));
+
+        // a probe stuck waiting on a dependency stops refreshing its result, so old results are not trusted
+        final var oldestTrusted = ZonedDateTime.now().minus(staleAfter);
+        final var dependencies = results.stream().map(dependency -> dependency.checkedAt().isBefore(oldestTrusted)
+                ? new DependencyHealth(dependency.name(), HealthStatus.Unhealthy, dependency.latencyMillis(),
+                        "probe has not completed recently", dependency.checkedAt())
+                : dependency).toList();
+
+        return new HealthReport(worstOf(dependencies), dependencies);
+    }
+}
@@ -4,6 +4,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.Path;
 
 /**
  * Provides an easy Interface to scale images
@@ -33,4 +34,15 @@ public interface ImageScaleUtil {
      * @throws IOException if the image could not be scaled
      */
     OutputStream getScaledImage(MultipartFile imageRequest, float scale) throws IOException;
+
+    /**
+     * Scales an image stored on disk
+     *
+     * @param image path to the file containing the image to scale
+     * @param contentType of the image, output will be in the same format
+     * @param scale to scale the image by
+     * @return a byte array containing the scaled image
+     * @throws IOException if the image could not be scaled
+     */
+    OutputStream getScaledImage(Path image, String contentType, float scale) throws IOException;
 }
@@ -1,12 +1,21 @@
 package org.morriswa.salon.utility;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.imageio.IIOException;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Semaphore;
 
 /**
  * AUTHOR: William A. Morris
@@ -17,52 +26,142 @@ import java.io.*;
 @Component
 public class ImageScaleUtilImpl implements ImageScaleUtil {
 
-    private OutputStream getScaledImage(BufferedImage originalImage, int pxWidth, int pxHeight, String contentType) throws IOException {
+    // limits how many decoded images may be held in memory at once
+    private final Semaphore imageJobs;
+    // largest encoded image that will be buffered before giving up
+    private final int maxEncodedBytes;
+    // largest image that will be decoded, a small upload may still decode to an enormous image
+    private final long maxPixels;
+
+    @Autowired
+    public ImageScaleUtilImpl(Environment e) {
+        this.imageJobs = new Semaphore(
+                e.getRequiredProperty("salon.images.max-concurrent-jobs", Integer.class), true);
+        this.maxEncodedBytes = (int) e.getRequiredProperty("spring.servlet.multipart.max-file-size",
+                DataSize.class).toBytes();
+        this.maxPixels = e.getRequiredProperty("salon.images.max-pixels", Long.class);
+        // encode straight into memory rather than through a temporary cache file
+        ImageIO.setUseCache(false);
+    }
+
+    /**
+     * functional interface used to decide output size once the original image's size is known
+     */
+    private interface TargetSize {
+        Dimension of(int originalWidth, int originalHeight);
+    }
 
-        Image scaledImage = originalImage.getScaledInstance(
-                pxWidth,
-                pxHeight,
-                Image.SCALE_FAST);
-        BufferedImage outputImage = new BufferedImage(
-                pxWidth,
-                pxHeight,
-                BufferedImage.TYPE_INT_RGB);
-        outputImage.getGraphics().drawImage(scaledImage, 0, 0, null);
+    /**
+     * functional interface used to open the image to scale
+     */
+    private interface ImageSource {
+        InputStream open() throws IOException;
+    }
+
+    private OutputStream getScaledImage(ImageSource source,
+                                        String contentType,
+                                        long sourceSize,
+                                        TargetSize targetSize) throws IOException {
 
         assert contentType != null;
         final String imageFormat = contentType.substring(
                 contentType.indexOf("/") + 1
         );
 
-        // open bytestream
-        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-        // write image to bytestream in original format
-        ImageIO.write(outputImage, imageFormat, byteStream);
-        // close bytestream
-        byteStream.close();
+        try {
+            imageJobs.acquire();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to scale image");
+        }
+
+        try (InputStream sourceStream = source.open();
+             ImageInputStream imageStream = ImageIO.createImageInputStream(sourceStream)) {
+
+            final var readers = ImageIO.getImageReaders(imageStream);
+            if (!readers.hasNext()) throw new IIOException("Unsupported image format");
+            final ImageReader reader = readers.next();
+
+            try {
+                reader.setInput(imageStream, true, true);
+
+                // only the image header is read to find original dimensions
+                final int originalWidth = reader.getWidth(0);
+                final int originalHeight = reader.getHeight(0);
+                if ((long) originalWidth * originalHeight > maxPixels)
+                    throw new IIOException(String.format("Image of %dx%d pixels is too large to scale",
+                            originalWidth, originalHeight));
+
+                final Dimension target = targetSize.of(originalWidth, originalHeight);
+                final int pxWidth = Math.max(1, target.width);
+                final int pxHeight = Math.max(1, target.height);
+
+                // when shrinking to half the original size or less, skip rows and columns while decoding
+                // instead of decoding the full image then shrinking it, milder scales decode every pixel
+                final int subsampling = Math.max(1,
+                        Math.min(originalWidth / pxWidth, originalHeight / pxHeight));
+                final var readParam = reader.getDefaultReadParam();
+                readParam.setSourceSubsampling(subsampling, subsampling, 0, 0);
+
+                final BufferedImage decodedImage = reader.read(0, readParam);
+
+                BufferedImage outputImage = new BufferedImage(
+                        pxWidth,
+                        pxHeight,
+                        BufferedImage.TYPE_INT_RGB);
+                final Graphics2D graphics = outputImage.createGraphics();
+                try {
+                    graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                            RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                    graphics.setRenderingHint(RenderingHints.KEY_RENDERING,
+                            RenderingHints.VALUE_RENDER_SPEED);
+                    graphics.drawImage(decodedImage, 0, 0, pxWidth, pxHeight, null);
+                } finally {
+                    graphics.dispose();
+                }
+
+                // open bytestream, which can later be read without copying the image
+                // encoded output will never be larger than the largest accepted upload
+                ByteArrayOutputStream byteStream = new ExposedByteArrayOutputStream(
+                        (int) Math.min(sourceSize, maxEncodedBytes), maxEncodedBytes);
+                // write image to bytestream in original format
+                try {
+                    ImageIO.write(outputImage, imageFormat, byteStream);
+                } catch (UncheckedIOException uioe) {
+                    throw uioe.getCause();
+                }
+                // close bytestream
+                byteStream.close();
+
+                return byteStream;
+            } finally {
+                reader.dispose();
+            }
+        } finally {
+            imageJobs.release();
+        }
+    }
 
-        return byteStream;
+    private static TargetSize scaledBy(float scale) {
+        return (originalWidth, originalHeight) -> new Dimension(
+                (int) (originalWidth * scale),
+                (int) (originalHeight * scale));
     }
 
     @Override
     public OutputStream getScaledImage(MultipartFile imageRequest, int pxWidth, int pxHeight) throws IOException {
-
-        BufferedImage retrievedImage = ImageIO.read(imageRequest.getInputStream());
-
-        final String contentType = imageRequest.getContentType();
-
-        return getScaledImage(retrievedImage, pxWidth, pxHeight, contentType);
+        return getScaledImage(imageRequest::getInputStream, imageRequest.getContentType(), imageRequest.getSize(),
+                (originalWidth, originalHeight) -> new Dimension(pxWidth, pxHeight));
     }
 
     @Override
     public OutputStream getScaledImage(MultipartFile imageRequest, float scale) throws IOException {
+        return getScaledImage(imageRequest::getInputStream, imageRequest.getContentType(), imageRequest.getSize(),
+                scaledBy(scale));
+    }
 
-        BufferedImage retrievedImage = ImageIO.read(imageRequest.getInputStream());
-
-        final int pxWidth = (int) (retrievedImage.getWidth() * scale);
-        final int pxHeight = (int) (retrievedImage.getHeight() * scale);
-        final String contentType = imageRequest.getContentType();
-
-        return getScaledImage(retrievedImage, pxWidth, pxHeight, contentType);
+    @Override
+    public OutputStream getScaledImage(Path image, String contentType, float scale) throws IOException {
+        return getScaledImage(() -> Files.newInputStream(image), contentType, Files.size(image), scaledBy(scale));
     }
 }
@@ -0,0 +1,35 @@
+package org.morriswa.salon.utility;
+
+import org.morriswa.salon.exception.ServiceUnavailableException;
+import org.morriswa.salon.model.ImageUploadJob;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+
+/**
+ * scales and uploads images in the background so request threads are not blocked
+ */
+public interface ImageUploadQueue {
+
+    /**
+     * queues an image to be scaled and uploaded
+     *
+     * @param ownerId of the user uploading the image, only they may view the job's status
+     * @param image uploaded by the user, copied before this method returns
+     * @param contentId destination of the scaled image in S3
+     * @param onUploaded run once the image has been stored in S3
+     * @return the queued job
+     * @throws IOException if the image could not be copied
+     * @throws ServiceUnavailableException if too many images are already waiting to be processed
+     */
+    ImageUploadJob submit(Long ownerId, MultipartFile image, String contentId, Runnable onUploaded)
+            throws IOException, ServiceUnavailableException;
+
+    /**
+     * @param ownerId of the user who uploaded the image
+     * @param jobId returned when the image was submitted
+     * @return the current state of the job, or null if the job does not exist, has expired
+     * or belongs to another user
+     */
+    ImageUploadJob retrieve(Long ownerId, String jobId);
+}
@@ -0,0 +1,127 @@
+package org.morriswa.salon.utility;
+
+import org.morriswa.salon.dao.ImageUploadDao;
+import org.morriswa.salon.enumerated.ImageUploadStatus;
+import org.morriswa.salon.exception.ServiceUnavailableException;
+import org.morriswa.salon.model.ImageUploadJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+@Component
+public class ImageUploadQueueImpl implements ImageUploadQueue {
+
+    private final Logger log = LoggerFactory.getLogger(ImageUploadQueueImpl.class);
+
+    private final Executor executor;
+    private final ImageScaleUtil imageScale;
+    private final AmazonS3Client s3;
+    // job statuses are stored in the database, so polls may be answered by any instance
+    private final ImageUploadDao jobs;
+    private final Duration jobStatusTtl;
+
+    @Autowired
+    public ImageUploadQueueImpl(Environment e,
+                                @Qualifier("imageProcessingExecutor") Executor executor,
+                                ImageScaleUtil imageScale,
+                                AmazonS3Client s3,
+                                ImageUploadDao jobs) {
+        this.executor = executor;
+        this.imageScale = imageScale;
+        this.s3 = s3;
+        this.jobs = jobs;
+        this.jobStatusTtl = e.getRequiredProperty("salon.images.job-status-ttl", Duration.class);
+    }
+
+    private void updateStatus(ImageUploadJob job) {
+        // a status that could not be recorded should not stop the upload itself
+        try {
+            jobs.updateJob(job);
+        } catch (RuntimeException ex) {
+            log.warn("Could not record status {} of image upload {}: ", job.status(), job.jobId(), ex);
+        }
+    }
+
+    @Override
+    public ImageUploadJob submit(Long ownerId, MultipartFile image, String contentId, Runnable onUploaded)
+            throws IOException, ServiceUnavailableException {
+
+        // multipart uploads are removed once the request completes, so keep a copy for the worker
+        final Path imageCopy = Files.createTempFile("salon-image-", null);
+        try {
+            image.transferTo(imageCopy);
+        } catch (IOException ioe) {
+            Files.deleteIfExists(imageCopy);
+            throw ioe;
+        }
+
+        final String contentType = image.getContentType();
+        final var job = new ImageUploadJob(UUID.randomUUID().toString(), contentId, ImageUploadStatus.Queued, null);
+        try {
+            jobs.createJob(ownerId, job);
+        } catch (RuntimeException ex) {
+            Files.deleteIfExists(imageCopy);
+            throw ex;
+        }
+
+        try {
+            executor.execute(() -> process(job, imageCopy, contentType, onUploaded));
+        } catch (RejectedExecutionException ree) {
+            jobs.deleteJob(job.jobId());
+            Files.deleteIfExists(imageCopy);
+            throw new ServiceUnavailableException("Too many images are being processed, please try again later!");
+        }
+
+        return job;
+    }
+
+    private void process(ImageUploadJob job, Path image, String contentType, Runnable onUploaded) {
+        updateStatus(job.withStatus(ImageUploadStatus.Processing, null));
+        try {
+            // scale image by 80%
+            final var scaledImage = imageScale.getScaledImage(image, contentType, 0.8F);
+
+            // upload content to S3
+            s3.uploadToS3(scaledImage, contentType, job.contentId());
+
+            // and record the content only once it is available
+            onUploaded.run();
+
+            updateStatus(job.withStatus(ImageUploadStatus.Complete, null));
+        } catch (Exception e) {
+            log.error("Failed to process image upload {}: ", job.jobId(), e);
+            updateStatus(job.withStatus(ImageUploadStatus.Failed, "Image could not be processed"));
+        } finally {
+            try {
+                Files.deleteIfExists(image);
+            } catch (IOException ioe) {
+                log.warn("Could not remove temporary image {}", image, ioe);
+            }
+
+            // statuses which can no longer be polled are removed by the workers
+            try {
+                jobs.deleteJobsUpdatedBefore(Instant.now().minus(jobStatusTtl));
+            } catch (RuntimeException ex) {
+                log.warn("Could not remove expired image upload statuses: ", ex);
+            }
+        }
+    }
+
+    @Override
+    public ImageUploadJob retrieve(Long ownerId, String jobId) {
+        return jobs.retrieveJob(ownerId, jobId, Instant.now().minus(jobStatusTtl));
+    }
+}
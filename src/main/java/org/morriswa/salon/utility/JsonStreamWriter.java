@@ -0,0 +1,25 @@
+package org.morriswa.salon.utility;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.function.Consumer;
+
+/**
+ * writes rows to a response as they are produced, without collecting them first
+ */
+public interface JsonStreamWriter {
+
+    /**
+     * @param rows passes every row to the provided consumer, in order
+     * @return a response body writing all rows as a single JSON array
+     * @param <T> type of row
+     */
+    <T> StreamingResponseBody array(Consumer<Consumer<T>> rows);
+
+    /**
+     * @param rows passes every row to the provided consumer, in order
+     * @return a response body writing each row as a JSON object on its own line
+     * @param <T> type of row
+     */
+    <T> StreamingResponseBody lines(Consumer<Consumer<T>> rows);
+}
@@ -0,0 +1,67 @@
+package org.morriswa.salon.utility;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+@Component
+public class JsonStreamWriterImpl implements JsonStreamWriter {
+
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public JsonStreamWriterImpl(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public <T> StreamingResponseBody array(Consumer<Consumer<T>> rows) {
+        return out -> {
+            try (var json = generator(out)) {
+                json.writeStartArray();
+                write(json, rows, false);
+                json.writeEndArray();
+            }
+        };
+    }
+
+    @Override
+    public <T> StreamingResponseBody lines(Consumer<Consumer<T>> rows) {
+        return out -> {
+            try (var json = generator(out)) {
+                // every row ends its own line, so no separator is needed between them
+                json.setRootValueSeparator(null);
+                write(json, rows, true);
+            }
+        };
+    }
+
+    private JsonGenerator generator(OutputStream out) throws IOException {
+        // the servlet container owns the response stream
+        return objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    private static <T> void write(JsonGenerator json, Consumer<Consumer<T>> rows, boolean newlines) throws IOException {
+        try {
+            rows.accept(row -> {
+                try {
+                    json.writeObject(row);
+                    if (newlines) json.writeRaw('\n');
+                } catch (IOException ioe) {
+                    throw new UncheckedIOException(ioe);
+                }
+            });
+        } catch (UncheckedIOException uioe) {
+            // usually the client went away, stop reading rows and report the original cause
+            throw uioe.getCause();
+        }
+    }
+}
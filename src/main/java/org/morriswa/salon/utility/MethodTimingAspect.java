@@ -0,0 +1,123 @@
+package org.morriswa.salon.utility;
+
+import com.amazonaws.AmazonClientException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * records how long every dao, service, s3 and image processing call takes and how each one ended.
+ * Each layer is published under its own metric name, tagged with the class and method called
+ * and the kind of exception thrown, ie salon.dao.calls{class=ScheduleDaoImpl,method=bookAppointment,exception=none}
+ */
+@Aspect
+@Component
+public class MethodTimingAspect {
+
+    /**
+     * exception tag of calls that completed normally
+     */
+    public static final String NO_EXCEPTION = "none";
+
+    /**
+     * exception tag of calls that failed with an exception not named by any other tag
+     */
+    public static final String OTHER_EXCEPTION = "other";
+
+    // failures outside the application are tagged by the first of these they are, keeping the number of tags small
+    private static final List<Class<? extends Throwable>> TAGGED_EXCEPTIONS = List.of(
+            DataAccessException.class,
+            AmazonClientException.class,
+            IOException.class,
+            IllegalArgumentException.class,
+            IllegalStateException.class);
+
+    private record TimerKey(String metric, Method method, String exception) { }
+
+    private final MeterRegistry meters;
+    // timers are looked up once per method and outcome rather than rebuilt on every call
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public MethodTimingAspect(MeterRegistry meters) {
+        this.meters = meters;
+    }
+
+    @Around("execution(public * org.morriswa.salon.dao.*DaoImpl.*(..))")
+    public Object timeDaoCall(ProceedingJoinPoint call) throws Throwable {
+        return time("salon.dao", call);
+    }
+
+    @Around("execution(public * org.morriswa.salon.service.*ServiceImpl.*(..))")
+    public Object timeServiceCall(ProceedingJoinPoint call) throws Throwable {
+        return time("salon.service", call);
+    }
+
+    @Around("execution(public * org.morriswa.salon.utility.AmazonS3ClientImpl.*(..))")
+    public Object timeS3Call(ProceedingJoinPoint call) throws Throwable {
+        return time("salon.s3", call);
+    }
+
+    @Around("execution(public * org.morriswa.salon.utility.ImageScaleUtilImpl.*(..))")
+    public Object timeImageProcessing(ProceedingJoinPoint call) throws Throwable {
+        return time("salon.image", call);
+    }
+
+    /**
+     * @param t thrown by a timed call
+     * @return the application exception's name, or the name of the first tagged kind of exception it is
+     */
+    static String exceptionTag(Throwable t) {
+        if (t.getClass().getPackageName().startsWith("org.morriswa.salon")) return t.getClass().getSimpleName();
+
+        for (var type : TAGGED_EXCEPTIONS)
+            if (type.isInstance(t)) return type.getSimpleName();
+
+        return OTHER_EXCEPTION;
+    }
+
+    private Timer timer(String metric, Method method, String exception) {
+        return timers.computeIfAbsent(new TimerKey(metric, method, exception), key ->
+                Timer.builder(metric + ".calls")
+                        .tag("class", method.getDeclaringClass().getSimpleName())
+                        .tag("method", method.getName())
+                        .tag("exception", exception)
+                        .register(meters));
+    }
+
+    /**
+     * runs a call, recording its duration as {metric}.calls, failed calls are told apart by their exception tag
+     *
+     * @param metric name prefix of the layer being called
+     * @param call to run
+     * @return the result of the call
+     * @throws Throwable anything thrown by the call, unchanged
+     */
+    private Object time(String metric, ProceedingJoinPoint call) throws Throwable {
+        final var method = ((MethodSignature) call.getSignature()).getMethod();
+
+        String exception = NO_EXCEPTION;
+        final var sample = Timer.start(meters);
+        try {
+            return call.proceed();
+        } catch (Throwable t) {
+            exception = exceptionTag(t);
+            throw t;
+        } finally {
+            // latency histograms are enabled for every salon metric in application.yml
+            sample.stop(timer(metric, method, exception));
+        }
+    }
+}
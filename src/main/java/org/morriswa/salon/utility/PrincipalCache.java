@@ -0,0 +1,34 @@
+package org.morriswa.salon.utility;
+
+import org.morriswa.salon.model.UserAccount;
+
+/**
+ * keeps recently authenticated users in memory so repeated requests with the same credentials
+ * do not need to reload the user or re-verify their password
+ */
+public interface PrincipalCache {
+
+    /**
+     * @param username provided with the request
+     * @param password provided with the request, in plain text
+     * @return the cached user if these exact credentials were recently verified, otherwise null
+     */
+    UserAccount retrieve(String username, String password);
+
+    /**
+     * caches a user whose credentials were just verified
+     *
+     * @param username provided with the request
+     * @param password provided with the request, in plain text
+     * @param principal the authenticated user
+     */
+    void store(String username, String password, UserAccount principal);
+
+    /**
+     * removes every cached entry for a user, must be called whenever the user's
+     * username, password or permissions change
+     *
+     * @param userId of the user to remove
+     */
+    void evict(Long userId);
+}
@@ -0,0 +1,66 @@
+package org.morriswa.salon.utility;
+
+import org.morriswa.salon.model.UserAccount;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+@Component
+public class PrincipalCacheImpl implements PrincipalCache {
+
+    private static final String CREDENTIAL_HASH_ALGORITHM = "HmacSHA256";
+
+    private record CredentialKey(String username, String credentialHash) { }
+
+    private final ExpiringCache<CredentialKey, UserAccount> principals;
+    private final SecretKeySpec credentialHashKey;
+
+    @Autowired
+    public PrincipalCacheImpl(Environment e) {
+        this.principals = new ExpiringCache<>(
+                e.getRequiredProperty("salon.security.principal-cache-ttl", Duration.class),
+                e.getRequiredProperty("salon.security.principal-cache-max-entries", Integer.class));
+
+        // passwords are never kept in memory, only a keyed hash that is useless outside this instance
+        final var keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        this.credentialHashKey = new SecretKeySpec(keyBytes, CREDENTIAL_HASH_ALGORITHM);
+    }
+
+    private CredentialKey keyOf(String username, String password) {
+        try {
+            final var mac = Mac.getInstance(CREDENTIAL_HASH_ALGORITHM);
+            mac.init(credentialHashKey);
+            final var hash = mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+            return new CredentialKey(username, Base64.getEncoder().encodeToString(hash));
+        } catch (GeneralSecurityException gse) {
+            // HmacSHA256 is required to be available on every java platform
+            throw new IllegalStateException(gse);
+        }
+    }
+
+    @Override
+    public UserAccount retrieve(String username, String password) {
+        if (username == null || password == null) return null;
+        return principals.get(keyOf(username, password));
+    }
+
+    @Override
+    public void store(String username, String password, UserAccount principal) {
+        if (username == null || password == null) return;
+        principals.put(keyOf(username, password), principal);
+    }
+
+    @Override
+    public void evict(Long userId) {
+        principals.invalidateIf((key, principal) -> principal.getUserId().equals(userId));
+    }
+}
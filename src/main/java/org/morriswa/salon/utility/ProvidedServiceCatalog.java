@@ -0,0 +1,34 @@
+package org.morriswa.salon.utility;
+
+import org.morriswa.salon.exception.BadRequestException;
+import org.morriswa.salon.model.ProvidedService;
+
+/**
+ * keeps the length and cost of recently scheduled services in memory,
+ * so searching for openings and booking appointments do not re-read services that rarely change
+ */
+public interface ProvidedServiceCatalog {
+
+    /**
+     * reads a service from the database
+     */
+    @FunctionalInterface
+    interface Loader {
+        ProvidedService load(Long serviceId) throws BadRequestException;
+    }
+
+    /**
+     * @param serviceId to retrieve
+     * @param loader used to read the service if it is not cached
+     * @return the cached or freshly read service
+     * @throws BadRequestException if the service could not be read, failures are not cached
+     */
+    ProvidedService retrieve(Long serviceId, Loader loader) throws BadRequestException;
+
+    /**
+     * removes a service from the catalog, must be called whenever a service is changed
+     *
+     * @param serviceId which changed
+     */
+    void evict(Long serviceId);
+}
@@ -0,0 +1,81 @@
+package org.morriswa.salon.utility;
+
+import org.morriswa.salon.exception.BadRequestException;
+import org.morriswa.salon.model.ProvidedService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class ProvidedServiceCatalogImpl implements ProvidedServiceCatalog {
+
+    private final ExpiringCache<Long, ProvidedService> services;
+
+    // services changed recently enough that a read replica may not have caught up with the change yet
+    private final ExpiringCache<Long, Boolean> recentlyChanged;
+
+    // incremented on every eviction, a service is only cached if nothing was evicted while it was read
+    private final AtomicLong version = new AtomicLong();
+
+    @Autowired
+    public ProvidedServiceCatalogImpl(Environment e) {
+        final int maxEntries = e.getRequiredProperty("salon.service-catalog.max-entries", Integer.class);
+        this.services = new ExpiringCache<>(
+                e.getRequiredProperty("salon.service-catalog.ttl", Duration.class), maxEntries);
+        this.recentlyChanged = new ExpiringCache<>(
+                e.getRequiredProperty("mysql.replica.max-lag", Duration.class), maxEntries);
+    }
+
+    /**
+     * @return true if a service read now may be older than its latest change
+     */
+    private boolean mayBeStale(Long serviceId) {
+        // read-only transactions may be routed to a replica lagging up to max-lag behind the primary
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && recentlyChanged.get(serviceId) != null;
+    }
+
+    @Override
+    public ProvidedService retrieve(Long serviceId, Loader loader) throws BadRequestException {
+        final var cached = services.get(serviceId);
+        if (cached != null) return cached;
+
+        final long loadedVersion = version.get();
+        final var loaded = loader.load(serviceId);
+
+        if (loaded != null && loadedVersion == version.get() && !mayBeStale(serviceId)) {
+            services.put(serviceId, loaded);
+
+            // an eviction may have landed between the check and the put
+            if (loadedVersion != version.get()) services.invalidate(serviceId);
+        }
+
+        return loaded;
+    }
+
+    private void discard(Long serviceId) {
+        version.incrementAndGet();
+        recentlyChanged.put(serviceId, Boolean.TRUE);
+        services.invalidate(serviceId);
+    }
+
+    @Override
+    public void evict(Long serviceId) {
+        discard(serviceId);
+
+        // a change made in a transaction is invisible to other readers until it completes,
+        // so evict again once it has, in case the old service was read back in the meantime
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    discard(serviceId);
+                }
+            });
+    }
+}
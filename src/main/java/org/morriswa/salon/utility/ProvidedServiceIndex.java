@@ -0,0 +1,42 @@
+package org.morriswa.salon.utility;
+
+import org.morriswa.salon.model.ProvidedServiceSummary;
+import org.morriswa.salon.model.SearchSuggestion;
+
+import java.util.List;
+
+/**
+ * in-memory search index over every offered service, matched by service name and employee name
+ */
+public interface ProvidedServiceIndex {
+
+    /**
+     * finds every offered service with a name or employee name containing any word of the search text,
+     * words match whole names, the start of names or, once at least 3 characters long, any part of a name.
+     * Matches are ranked with bm25, so rarer words, closer matches and shorter names score higher
+     *
+     * @param searchText to find services for
+     * @param offset number of best matches to skip
+     * @param limit most matches to return
+     * @return the requested page of matching services, best matches first
+     */
+    List<ProvidedServiceSummary> search(String searchText, int offset, int limit);
+
+    /**
+     * completes a partially typed service or employee name,
+     * names can be completed from any of their words, shorter names are suggested first
+     *
+     * @param prefix typed so far
+     * @param limit most suggestions to return
+     * @return names starting with the prefix, along with the ids needed to open them
+     */
+    List<SearchSuggestion> suggest(String prefix, int limit);
+
+    /**
+     * reloads every service offered by an employee,
+     * must be called whenever an employee's services or name are changed
+     *
+     * @param employeeId whose services changed
+     */
+    void reindexEmployee(Long employeeId);
+}
@@ -0,0 +1,433 @@
+package org.morriswa.salon.utility;
+
+import org.morriswa.salon.dao.ProvidedServiceDao;
+import org.morriswa.salon.model.ProvidedServiceSummary;
+import org.morriswa.salon.model.SearchSuggestion;
+import org.morriswa.salon.validation.ProvidedServiceValidator;
+import org.morriswa.salon.validation.StrTools;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+@Component
+public class ProvidedServiceIndexImpl implements ProvidedServiceIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProvidedServiceIndex.class);
+
+    // search words shorter than this only match whole names or the start of names
+    private static final int GRAM_LENGTH = 3;
+    // longest name prefix indexed, longer search words are found by their n-grams
+    private static final int MAX_PREFIX_LENGTH = 16;
+
+    // a match in a service's name counts for more than a match in its employee's name
+    private static final double SERVICE_NAME_WEIGHT = 2.0;
+    private static final double EMPLOYEE_NAME_WEIGHT = 1.0;
+
+    // how much a search word matching part of a name counts compared to matching a whole name
+    private static final double WHOLE_WORD_MATCH = 1.0;
+    private static final double PREFIX_MATCH = 0.6;
+    private static final double INFIX_MATCH = 0.3;
+
+    // bm25 saturation, how quickly repeated matches within one service stop adding to its score
+    private static final double K1 = 1.2;
+    // bm25 length normalization, how strongly matches in long names are discounted
+    private static final double B = 0.75;
+
+    /**
+     * a service along with the words of its names, split once when indexed rather than on every search
+     */
+    private record Indexed(ProvidedServiceSummary service, List<String> serviceWords, List<String> employeeWords) {
+
+        private static Indexed of(ProvidedServiceSummary service) {
+            final var employeeWords = new ArrayList<>(words(service.getEmployee().firstName()));
+            employeeWords.addAll(words(service.getEmployee().lastName()));
+            return new Indexed(service, words(service.getName()), List.copyOf(employeeWords));
+        }
+
+        private int length() {
+            return serviceWords.size() + employeeWords.size();
+        }
+
+        private List<String> allWords() {
+            final var all = new ArrayList<>(serviceWords);
+            all.addAll(employeeWords);
+            return all;
+        }
+    }
+
+    /**
+     * every offered service, along with postings from each prefix and n-gram of their names to the services
+     */
+    private static class Postings {
+        private final Map<Long, Indexed> services = new ConcurrentHashMap<>();
+        private final Map<String, Set<Long>> prefixes = new ConcurrentHashMap<>();
+        private final Map<String, Set<Long>> grams = new ConcurrentHashMap<>();
+        // total words in every indexed name, for the average used to normalize scores by name length
+        private final AtomicLong totalWords = new AtomicLong();
+        // rebuilt whole once services are indexed, searches keep completing from the previous trie until then
+        private volatile SuggestionTrie suggestions = new SuggestionTrie(Map.of(), ProvidedServiceValidator.MAX_SUGGESTIONS);
+
+        private static Set<String> prefixesOf(Indexed indexed) {
+            final var prefixes = new HashSet<String>();
+            for (var word : indexed.allWords())
+                for (int length = 1; length <= Math.min(word.length(), MAX_PREFIX_LENGTH); length++)
+                    prefixes.add(word.substring(0, length));
+            return prefixes;
+        }
+
+        private static Set<String> gramsOf(Indexed indexed) {
+            final var grams = new HashSet<String>();
+            for (var word : indexed.allWords())
+                for (int start = 0; start + GRAM_LENGTH <= word.length(); start++)
+                    grams.add(word.substring(start, start + GRAM_LENGTH));
+            return grams;
+        }
+
+        private static void post(Map<String, Set<Long>> postings, Set<String> keys, Long serviceId) {
+            for (var key : keys)
+                postings.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(serviceId);
+        }
+
+        private static void unpost(Map<String, Set<Long>> postings, Set<String> keys, Long serviceId) {
+            // drop postings left empty, so removed names stop taking up memory
+            for (var key : keys)
+                postings.computeIfPresent(key, (k, ids) -> {
+                    ids.remove(serviceId);
+                    return ids.isEmpty() ? null : ids;
+                });
+        }
+
+        synchronized void add(ProvidedServiceSummary service) {
+            remove(service.getServiceId());
+
+            final var indexed = Indexed.of(service);
+            services.put(service.getServiceId(), indexed);
+            totalWords.addAndGet(indexed.length());
+            post(prefixes, prefixesOf(indexed), service.getServiceId());
+            post(grams, gramsOf(indexed), service.getServiceId());
+        }
+
+        synchronized void remove(Long serviceId) {
+            final var indexed = services.remove(serviceId);
+            if (indexed == null) return;
+
+            totalWords.addAndGet(-indexed.length());
+            unpost(prefixes, prefixesOf(indexed), serviceId);
+            unpost(grams, gramsOf(indexed), serviceId);
+        }
+
+        synchronized void replaceEmployee(Long employeeId, List<ProvidedServiceSummary> employeesServices) {
+            services.values().stream()
+                    .filter(indexed -> employeeId.equals(indexed.service().getEmployee().employeeId()))
+                    .map(indexed -> indexed.service().getServiceId())
+                    .toList()
+                    .forEach(this::remove);
+            employeesServices.forEach(this::add);
+            indexSuggestions();
+        }
+
+        double averageLength() {
+            final int count = services.size();
+            return count == 0 ? 1.0 : Math.max(1.0, (double) totalWords.get() / count);
+        }
+
+        /**
+         * replaces the suggestions with every service and employee name now indexed
+         */
+        synchronized void indexSuggestions() {
+            final var keyed = new HashMap<SearchSuggestion, List<String>>();
+            for (var indexed : services.values()) {
+                final var service = indexed.service();
+                final var employee = service.getEmployee();
+                keyed.put(new SearchSuggestion(service.getName(), service.getServiceId(), employee.employeeId()),
+                        suggestionKeys(service.getName()));
+
+                final var employeeName = StrTools.hasValue(employee.lastName())
+                        ? employee.firstName() + " " + employee.lastName()
+                        : employee.firstName();
+                keyed.putIfAbsent(new SearchSuggestion(employeeName, null, employee.employeeId()),
+                        suggestionKeys(employeeName));
+            }
+            suggestions = new SuggestionTrie(keyed, ProvidedServiceValidator.MAX_SUGGESTIONS);
+        }
+
+        /**
+         * @return every service and employee name, ready to be completed
+         */
+        SuggestionTrie suggestions() {
+            return suggestions;
+        }
+
+        /**
+         * @param word to search for
+         * @return every service which may have a name matching the word
+         */
+        Set<Long> candidates(String word) {
+            final var candidates = new HashSet<Long>();
+
+            if (word.length() <= MAX_PREFIX_LENGTH)
+                candidates.addAll(prefixes.getOrDefault(word, Set.of()));
+
+            // a name containing the word contains every n-gram of the word
+            if (word.length() >= GRAM_LENGTH) {
+                Set<Long> containing = null;
+                for (int start = 0; start + GRAM_LENGTH <= word.length(); start++) {
+                    final var ids = grams.getOrDefault(word.substring(start, start + GRAM_LENGTH), Set.of());
+                    if (containing == null) containing = new HashSet<>(ids);
+                    else containing.retainAll(ids);
+                    if (containing.isEmpty()) break;
+                }
+                candidates.addAll(containing);
+            }
+
+            return candidates;
+        }
+    }
+
+    private record Match(ProvidedServiceSummary service, double score) { }
+
+    // best matches first, ties broken by name so pages are stable
+    private static final Comparator<Match> RANKING =
+            Comparator.comparingDouble(Match::score).reversed()
+                    .thenComparing(match -> match.service().getName(), String.CASE_INSENSITIVE_ORDER)
+                    .thenComparing(match -> match.service().getServiceId());
+
+    private final ProvidedServiceDao providedServiceDao;
+    private final Executor executor;
+    private final long rebuildAfterNanos;
+
+    private volatile Postings postings;
+    private volatile long builtAt;
+    // incremented whenever an employee is reindexed, so a rebuild which may have missed the change is not used
+    private final AtomicLong changes = new AtomicLong();
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    @Autowired
+    public ProvidedServiceIndexImpl(Environment e,
+                                    ProvidedServiceDao providedServiceDao,
+                                    @Qualifier("cacheRefreshExecutor") Executor executor) {
+        this.providedServiceDao = providedServiceDao;
+        this.executor = executor;
+        this.rebuildAfterNanos = e.getRequiredProperty("salon.search.rebuild-after", Duration.class).toNanos();
+    }
+
+    /**
+     * @param text to split
+     * @return every distinct lower case word in the text
+     */
+    static List<String> words(String text) {
+        if (!StrTools.hasValue(text)) return List.of();
+
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .distinct()
+                .toList();
+    }
+
+    /**
+     * @param text to normalize
+     * @return lower case words of the text, separated by single spaces
+     */
+    static String normalize(String text) {
+        if (!StrTools.hasValue(text)) return "";
+
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .collect(Collectors.joining(" "));
+    }
+
+    /**
+     * @param name to suggest
+     * @return the normalized name starting from each of its words, so typing any word of a name suggests it
+     */
+    private static List<String> suggestionKeys(String name) {
+        final var normalized = normalize(name);
+        if (normalized.isEmpty()) return List.of();
+
+        final var keys = new ArrayList<String>();
+        keys.add(normalized);
+        for (int space = normalized.indexOf(' '); space >= 0; space = normalized.indexOf(' ', space + 1))
+            keys.add(normalized.substring(space + 1));
+        return keys;
+    }
+
+    /**
+     * @param word searched for
+     * @param names words of a name
+     * @return how many parts of the name the word matched, each weighted by how closely it matched
+     */
+    private static double termFrequency(String word, List<String> names) {
+        double frequency = 0;
+        for (var name : names) {
+            if (name.equals(word)) frequency += WHOLE_WORD_MATCH;
+            else if (name.startsWith(word)) frequency += PREFIX_MATCH;
+            else if (word.length() >= GRAM_LENGTH && name.contains(word)) frequency += INFIX_MATCH;
+        }
+        return frequency;
+    }
+
+    /**
+     * @param matching number of services a search word matched
+     * @param total number of services searched
+     * @return how much a match on the word is worth, words matching fewer services are worth more
+     */
+    private static double inverseDocumentFrequency(int matching, int total) {
+        return Math.log(1 + (total - matching + 0.5) / (matching + 0.5));
+    }
+
+    /**
+     * scores a service with bm25, treating its service and employee names as one weighted document
+     *
+     * @param indexed service to score
+     * @param searchWords every word searched for, mapped to its inverse document frequency
+     * @param averageLength of every indexed service's names, in words
+     * @return the service's relevance, 0 if no word matched
+     */
+    private static double score(Indexed indexed, Map<String, Double> searchWords, double averageLength) {
+        final double lengthNorm = 1 - B + B * indexed.length() / averageLength;
+
+        double score = 0;
+        for (var word : searchWords.entrySet()) {
+            final double frequency =
+                    SERVICE_NAME_WEIGHT * termFrequency(word.getKey(), indexed.serviceWords())
+                    + EMPLOYEE_NAME_WEIGHT * termFrequency(word.getKey(), indexed.employeeWords());
+            if (frequency > 0)
+                score += word.getValue() * frequency * (K1 + 1) / (frequency + K1 * lengthNorm);
+        }
+        return score;
+    }
+
+    private Postings build() {
+        final var built = new Postings();
+        providedServiceDao.streamAvailableServices(built::add);
+        // build suggestions along with the index, so no suggestion ever waits on them
+        built.indexSuggestions();
+        return built;
+    }
+
+    /**
+     * @return the index, building it first if this is the first search
+     */
+    private Postings current() {
+        final var current = postings;
+
+        if (current == null) {
+            synchronized (this) {
+                if (postings == null) {
+                    final long startedChanges = changes.get();
+                    final long startedAt = System.nanoTime();
+                    postings = build();
+                    // if an employee changed while building, use this index for now but rebuild on the next search
+                    builtAt = startedChanges == changes.get() ? startedAt : startedAt - rebuildAfterNanos;
+                }
+                return postings;
+            }
+        }
+
+        // pick up changes made through other instances of the service
+        if (System.nanoTime() - builtAt >= rebuildAfterNanos) rebuildInBackground();
+
+        return current;
+    }
+
+    private void rebuildInBackground() {
+        // only one background rebuild at a time
+        if (!rebuilding.compareAndSet(false, true)) return;
+
+        try {
+            executor.execute(() -> {
+                try {
+                    final long startedChanges = changes.get();
+                    final long startedAt = System.nanoTime();
+                    final var rebuilt = build();
+
+                    // an employee reindexed while rebuilding may be missing from the rebuilt index,
+                    // so keep the current one and try again on a later search
+                    if (startedChanges == changes.get()) {
+                        postings = rebuilt;
+                        builtAt = startedAt;
+                    }
+                } catch (Exception ex) {
+                    // keep serving the current index
+                    log.warn("Failed to rebuild service search index: ", ex);
+                } finally {
+                    rebuilding.set(false);
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            rebuilding.set(false);
+        }
+    }
+
+    @Override
+    public List<ProvidedServiceSummary> search(String searchText, int offset, int limit) {
+        final var words = words(searchText);
+        if (words.isEmpty() || limit < 1) return List.of();
+
+        final var index = current();
+        final int total = index.services.size();
+
+        // a service matches if any search word matches, rarer words are worth more
+        final var candidates = new HashSet<Long>();
+        final var searchWords = new HashMap<String, Double>();
+        for (var word : words) {
+            final var matching = index.candidates(word);
+            candidates.addAll(matching);
+            searchWords.put(word, inverseDocumentFrequency(matching.size(), total));
+        }
+
+        // only keep as many matches as the requested page needs, worst kept match on top
+        final int keep = offset + limit;
+        final var best = new PriorityQueue<Match>(RANKING.reversed());
+        final double averageLength = index.averageLength();
+        for (var serviceId : candidates) {
+            // a service may have been removed since its postings were read
+            final var indexed = index.services.get(serviceId);
+            if (indexed == null) continue;
+
+            final var match = new Match(indexed.service(), score(indexed, searchWords, averageLength));
+            if (match.score() <= 0) continue;
+
+            best.add(match);
+            if (best.size() > keep) best.poll();
+        }
+
+        final var ranked = new ArrayList<>(best);
+        ranked.sort(RANKING);
+        return ranked.stream()
+                .skip(offset)
+                .map(Match::service)
+                .toList();
+    }
+
+    @Override
+    public List<SearchSuggestion> suggest(String prefix, int limit) {
+        final var normalized = normalize(prefix);
+        if (normalized.isEmpty()) return List.of();
+
+        return current().suggestions().suggest(normalized, limit);
+    }
+
+    @Override
+    public void reindexEmployee(Long employeeId) {
+        changes.incrementAndGet();
+
+        // nothing to update until the index is first built
+        final var current = postings;
+        if (current == null) return;
+
+        current.replaceEmployee(employeeId, providedServiceDao.retrieveAvailableServices(employeeId));
+    }
+}
@@ -0,0 +1,39 @@
+package org.morriswa.salon.utility;
+
+import org.morriswa.salon.model.ProvidedServiceProfile;
+
+/**
+ * in-memory copy of assembled service profiles, so viewing a popular service needs no database or S3 calls
+ */
+public interface ProvidedServiceProfileCache {
+
+    /**
+     * assembles a service profile from its stored details and content
+     */
+    @FunctionalInterface
+    interface Loader {
+        ProvidedServiceProfile load(Long serviceId) throws Exception;
+    }
+
+    /**
+     * @param serviceId to retrieve
+     * @param loader used to assemble the profile if it is not cached
+     * @return the cached or freshly assembled profile
+     * @throws Exception anything thrown by the loader, failures are not cached
+     */
+    ProvidedServiceProfile get(Long serviceId, Loader loader) throws Exception;
+
+    /**
+     * discards a service's profile, must be called whenever a service's details or content are changed
+     *
+     * @param serviceId which changed
+     */
+    void invalidate(Long serviceId);
+
+    /**
+     * discards the profile of every service an employee provides, must be called whenever an employee's info changes
+     *
+     * @param employeeId who changed
+     */
+    void invalidateEmployee(Long employeeId);
+}
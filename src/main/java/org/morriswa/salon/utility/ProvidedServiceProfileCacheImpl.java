@@ -0,0 +1,57 @@
+package org.morriswa.salon.utility;
+
+import org.morriswa.salon.model.ProvidedServiceProfile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class ProvidedServiceProfileCacheImpl implements ProvidedServiceProfileCache {
+
+    private final ExpiringCache<Long, ProvidedServiceProfile> profiles;
+
+    // incremented on every invalidation, a profile is only cached if no invalidation happened while it was loaded,
+    // otherwise a slow load could store details read before a change after the change had been invalidated
+    private final AtomicLong version = new AtomicLong();
+
+    @Autowired
+    public ProvidedServiceProfileCacheImpl(Environment e) {
+        this.profiles = new ExpiringCache<>(
+                e.getRequiredProperty("salon.service-cache.ttl", Duration.class),
+                e.getRequiredProperty("salon.service-cache.max-entries", Integer.class));
+    }
+
+    @Override
+    public ProvidedServiceProfile get(Long serviceId, Loader loader) throws Exception {
+        final var cached = profiles.get(serviceId);
+        if (cached != null) return cached;
+
+        final long loadedVersion = version.get();
+        final var loaded = loader.load(serviceId);
+
+        if (loaded != null && loadedVersion == version.get()) {
+            profiles.put(serviceId, loaded);
+
+            // an invalidation may have landed between the check and the put
+            if (loadedVersion != version.get()) profiles.invalidate(serviceId);
+        }
+
+        return loaded;
+    }
+
+    @Override
+    public void invalidate(Long serviceId) {
+        version.incrementAndGet();
+        profiles.invalidate(serviceId);
+    }
+
+    @Override
+    public void invalidateEmployee(Long employeeId) {
+        version.incrementAndGet();
+        profiles.invalidateIf((serviceId, profile) ->
+                profile.getEmployee() != null && employeeId.equals(profile.getEmployee().employeeId()));
+    }
+}
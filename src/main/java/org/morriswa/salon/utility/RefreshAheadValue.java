@@ -0,0 +1,162 @@
+package org.morriswa.salon.utility;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * holds a single expensive value which is rebuilt in the background shortly before it expires,
+ * so readers are almost never forced to wait for it to be built
+ *
+ * @param <T> type of value held
+ */
+public class RefreshAheadValue<T> {
+
+    /**
+     * builds a fresh value
+     *
+     * @param <T> type of value built
+     */
+    public interface Loader<T> {
+        T load() throws Exception;
+    }
+
+    private record Snapshot<T>(T value, long builtAt, long generation) { }
+
+    private final Logger log = LoggerFactory.getLogger(RefreshAheadValue.class);
+
+    private final Loader<T> loader;
+    private final Executor executor;
+    private final long refreshAfterNanos;
+    private final long expireAfterNanos;
+
+    private volatile Snapshot<T> snapshot;
+    // incremented on every invalidation, so values built before it are never stored
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+    // rebuild readers are waiting on, so a missing or expired value is only built once however many read it
+    private final AtomicReference<CompletableFuture<T>> loading = new AtomicReference<>();
+
+    /**
+     * @param loader used to build the value
+     * @param executor used to rebuild the value in the background
+     * @param refreshAfter age after which the value is served while being rebuilt in the background
+     * @param expireAfter age after which the value is no longer served and must be rebuilt before returning
+     */
+    public RefreshAheadValue(Loader<T> loader, Executor executor, Duration refreshAfter, Duration expireAfter) {
+        this.loader = loader;
+        this.executor = executor;
+        this.refreshAfterNanos = refreshAfter.toNanos();
+        this.expireAfterNanos = expireAfter.toNanos();
+    }
+
+    /**
+     * @return the current value, building it first if it is missing or expired
+     * @throws Exception if the value had to be built and could not be
+     */
+    public T get() throws Exception {
+        final var current = unexpired(System.nanoTime());
+
+        if (current != null) {
+            if (System.nanoTime() - current.builtAt() >= refreshAfterNanos) refreshInBackground();
+            return current.value();
+        }
+
+        return load();
+    }
+
+    /**
+     * @param now current time
+     * @return the stored value if it may still be served, otherwise null
+     */
+    private Snapshot<T> unexpired(long now) {
+        final var current = snapshot;
+        if (current == null || current.generation() != generation.get()) return null;
+        return now - current.builtAt() < expireAfterNanos ? current : null;
+    }
+
+    /**
+     * rebuilds a missing or expired value, readers arriving while it is built wait for it rather than each building it
+     *
+     * @return the rebuilt value
+     * @throws Exception if the value could not be built
+     */
+    private T load() throws Exception {
+        final var load = new CompletableFuture<T>();
+        final var inProgress = loading.compareAndExchange(null, load);
+        if (inProgress != null) return await(inProgress);
+
+        try {
+            // a rebuild finishing between the miss and claiming this one has already stored a fresh value
+            final var current = unexpired(System.nanoTime());
+            final T value = current != null ? current.value() : rebuild();
+            load.complete(value);
+            return value;
+        } catch (Exception | Error ex) {
+            load.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            loading.compareAndSet(load, null);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> load) throws Exception {
+        try {
+            return load.join();
+        } catch (CompletionException ce) {
+            // waiting readers fail the same way as the reader that built the value
+            if (ce.getCause() instanceof Exception ex) throw ex;
+            if (ce.getCause() instanceof Error err) throw err;
+            throw ce;
+        }
+    }
+
+    /**
+     * discards the current value, the next read will rebuild it
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    private T rebuild() throws Exception {
+        final long startedGeneration = generation.get();
+        final long startedAt = System.nanoTime();
+
+        final T value = loader.load();
+
+        // a value built from data that has since changed is returned to this caller, but not stored
+        if (startedGeneration == generation.get())
+            snapshot = new Snapshot<>(value, startedAt, startedGeneration);
+
+        return value;
+    }
+
+    private void refreshInBackground() {
+        // only one background rebuild at a time
+        if (!refreshing.compareAndSet(false, true)) return;
+
+        try {
+            executor.execute(() -> {
+                try {
+                    rebuild();
+                } catch (Exception e) {
+                    // keep serving the current value until it expires
+                    log.warn("Failed to refresh cached value in the background: ", e);
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            refreshing.set(false);
+        }
+    }
+}
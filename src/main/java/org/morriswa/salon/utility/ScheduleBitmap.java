@@ -0,0 +1,129 @@
+package org.morriswa.salon.utility;
+
+/**
+ * compact representation of one person's day at the salon,
+ * every bit represents a 15 minute slot starting at salon open, set bits are taken
+ */
+public class ScheduleBitmap {
+
+    /**
+     * length of a single schedule slot
+     */
+    public static final int SLOT_MINUTES = 15;
+
+    private final long[] words;
+    private final int slots;
+
+    /**
+     * creates an empty schedule
+     *
+     * @param slots number of 15 minute slots between salon open and close
+     */
+    public ScheduleBitmap(int slots) {
+        this.slots = Math.max(0, slots);
+        this.words = new long[(this.slots + 63) / 64];
+    }
+
+    public int slots() {
+        return slots;
+    }
+
+    /**
+     * marks a range of slots as taken, any part of the range outside the day is ignored
+     *
+     * @param fromSlot first slot to mark
+     * @param length number of slots to mark
+     */
+    public synchronized void claim(int fromSlot, int length) {
+        final int start = Math.max(0, fromSlot);
+        final int end = Math.min(slots, fromSlot + length);
+        for (int slot = start; slot < end; slot++)
+            words[slot >>> 6] |= 1L << slot;
+    }
+
+    /**
+     * marks a range of slots as open, any part of the range outside the day is ignored
+     *
+     * @param fromSlot first slot to open
+     * @param length number of slots to open
+     */
+    public synchronized void release(int fromSlot, int length) {
+        final int start = Math.max(0, fromSlot);
+        final int end = Math.min(slots, fromSlot + length);
+        for (int slot = start; slot < end; slot++)
+            words[slot >>> 6] &= ~(1L << slot);
+    }
+
+    /**
+     * @param fromSlot first slot of range
+     * @param length number of slots in range
+     * @return true if every slot in the range lies within the day and is open
+     */
+    public synchronized boolean isOpen(int fromSlot, int length) {
+        if (fromSlot < 0 || length < 1 || fromSlot + length > slots) return false;
+        for (int slot = fromSlot; slot < fromSlot + length; slot++)
+            if ((words[slot >>> 6] & (1L << slot)) != 0) return false;
+        return true;
+    }
+
+    private synchronized long[] snapshot() {
+        return words.clone();
+    }
+
+    /**
+     * finds every slot an appointment could start at without overlapping a taken slot in any provided schedule
+     *
+     * @param length of the appointment in slots
+     * @param fromSlot earliest slot an appointment may start at
+     * @param schedules to check, all schedules must describe the same day
+     * @return starting slots of all openings in ascending order
+     */
+    public static int[] findOpenings(int length, int fromSlot, ScheduleBitmap... schedules) {
+        if (schedules.length == 0 || length < 1) return new int[0];
+
+        final int slots = schedules[0].slots;
+        final int wordCount = schedules[0].words.length;
+
+        // combine all schedules, a slot is free only if it is free for everyone
+        final long[] free = new long[wordCount];
+        for (var schedule : schedules) {
+            final long[] taken = schedule.snapshot();
+            for (int w = 0; w < wordCount; w++) free[w] |= taken[w];
+        }
+        for (int w = 0; w < wordCount; w++) free[w] = ~free[w];
+
+        // slots past salon close are never free
+        if (slots % 64 != 0 && wordCount > 0)
+            free[wordCount - 1] &= (1L << (slots % 64)) - 1;
+
+        // an appointment fits at slot i if slots i..i+length-1 are all free,
+        // so AND the free mask with itself shifted by every offset within the appointment
+        final long[] fits = free.clone();
+        for (int offset = 1; offset < length; offset++) {
+            final int wordShift = offset >>> 6;
+            final int bitShift = offset & 63;
+            for (int w = 0; w < wordCount; w++) {
+                final int src = w + wordShift;
+                long shifted = src < wordCount ? free[src] >>> bitShift : 0L;
+                if (bitShift != 0 && src + 1 < wordCount) shifted |= free[src + 1] << (64 - bitShift);
+                fits[w] &= shifted;
+            }
+        }
+
+        // scan set bits, skipping anything before the first allowed slot
+        final int[] openings = new int[slots];
+        int found = 0;
+        for (int w = 0; w < wordCount; w++) {
+            long word = fits[w];
+            while (word != 0) {
+                final int slot = (w << 6) + Long.numberOfTrailingZeros(word);
+                if (slot >= fromSlot) openings[found++] = slot;
+                word &= word - 1;
+            }
+        }
+
+        final int[] result = new int[found];
+        System.arraycopy(openings, 0, result, 0, found);
+        return result;
+    }
+}
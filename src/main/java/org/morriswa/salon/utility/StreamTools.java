@@ -4,29 +4,14 @@ import java.io.*;
 
 public class StreamTools {
 
-    public static InputStream outputStreamToInput(ByteArrayOutputStream outputStream) throws Exception {
+    public static InputStream outputStreamToInput(ByteArrayOutputStream outputStream) {
 
-        // connect the pipes
-        PipedInputStream in = new PipedInputStream();
-        PipedOutputStream out = new PipedOutputStream(in);
+        // read directly from the stream's buffer if it is exposed
+        if (outputStream instanceof ExposedByteArrayOutputStream exposed)
+            return exposed.toInputStream();
 
-        // create a new thread to write output to input stream
-        final var writer = new Thread(() -> {
-            try {
-                outputStream.writeTo(out);
-                outputStream.close();
-                out.close();
-            } catch (IOException iox) {
-                Thread.currentThread().interrupt();
-                throw new RuntimeException(iox);
-            }
-        });
-
-        // start the thread
-        writer.start();
-
-        // create input stream from output
-        return new ByteArrayInputStream(in.readAllBytes());
+        // otherwise a single copy of the written bytes is required
+        return new ByteArrayInputStream(outputStream.toByteArray());
     }
 
 }
@@ -0,0 +1,144 @@
+package org.morriswa.salon.utility;
+
+import org.morriswa.salon.model.SearchSuggestion;
+
+import java.util.*;
+
+/**
+ * immutable radix trie answering which names start with a prefix, best suggestions first.
+ * Only branching points are stored, and each one remembers its best suggestions,
+ * so a lookup costs the length of the prefix regardless of how many names share it
+ */
+final class SuggestionTrie {
+
+    // shorter names are closer to what has been typed so far
+    private static final Comparator<SearchSuggestion> RANKING =
+            Comparator.comparingInt((SearchSuggestion suggestion) -> suggestion.text().length())
+                    .thenComparing(SearchSuggestion::text, String.CASE_INSENSITIVE_ORDER)
+                    .thenComparing(SearchSuggestion::employeeId)
+                    .thenComparing(SearchSuggestion::serviceId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    /**
+     * @param key normalized text a suggestion can be found by
+     * @param suggestion position of the suggestion in ranked order
+     */
+    private record Entry(String key, int suggestion) { }
+
+    private static final class Node {
+        // text between the parent and this node
+        private final String label;
+        // first character of each child's label, sorted so children can be binary searched
+        private final char[] firsts;
+        private final Node[] children;
+        // positions of the best suggestions at or below this node, best first
+        private final int[] best;
+
+        private Node(String label, char[] firsts, Node[] children, int[] best) {
+            this.label = label;
+            this.firsts = firsts;
+            this.children = children;
+            this.best = best;
+        }
+
+        private Node child(char first) {
+            final int position = Arrays.binarySearch(firsts, first);
+            return position < 0 ? null : children[position];
+        }
+    }
+
+    private final SearchSuggestion[] suggestions;
+    private final int maxResults;
+    private final Node root;
+
+    /**
+     * @param keyed every suggestion, mapped to the normalized keys it can be found by
+     * @param maxResults most suggestions that will ever be requested from a single lookup
+     */
+    SuggestionTrie(Map<SearchSuggestion, List<String>> keyed, int maxResults) {
+        this.maxResults = maxResults;
+
+        // ranked order, so the best suggestions are always those with the lowest positions
+        this.suggestions = keyed.keySet().stream().sorted(RANKING).toArray(SearchSuggestion[]::new);
+
+        final var entries = new ArrayList<Entry>();
+        for (int position = 0; position < suggestions.length; position++)
+            for (var key : keyed.get(suggestions[position]))
+                entries.add(new Entry(key, position));
+        entries.sort(Comparator.comparing(Entry::key).thenComparingInt(Entry::suggestion));
+
+        this.root = build(entries, 0, entries.size(), 0, "");
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        final int length = Math.min(a.length(), b.length());
+        int common = 0;
+        while (common < length && a.charAt(common) == b.charAt(common)) common++;
+        return common;
+    }
+
+    /**
+     * @param entries sorted by key
+     * @param from first entry below the node
+     * @param to entry after the last entry below the node
+     * @param depth length of the key prefix shared by every entry below the node
+     * @param label text between the parent and the node
+     * @return the node
+     */
+    private Node build(List<Entry> entries, int from, int to, int depth, String label) {
+        final var best = new TreeSet<Integer>();
+
+        // keys ending at this node sort first
+        int next = from;
+        while (next < to && entries.get(next).key().length() == depth)
+            best.add(entries.get(next++).suggestion());
+
+        final var firsts = new StringBuilder();
+        final var children = new ArrayList<Node>();
+        while (next < to) {
+            final char first = entries.get(next).key().charAt(depth);
+
+            int end = next;
+            while (end < to && entries.get(end).key().charAt(depth) == first) end++;
+
+            // sorted keys share whatever prefix their first and last keys share, so skip straight to it
+            final var firstKey = entries.get(next).key();
+            final int childDepth = commonPrefixLength(firstKey, entries.get(end - 1).key());
+            final var child = build(entries, next, end, childDepth, firstKey.substring(depth, childDepth));
+
+            firsts.append(first);
+            children.add(child);
+            for (var position : child.best) best.add(position);
+            next = end;
+        }
+
+        return new Node(label,
+                firsts.toString().toCharArray(),
+                children.toArray(Node[]::new),
+                best.stream().limit(maxResults).mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * @param prefix normalized text typed so far
+     * @param limit most suggestions to return, at most the trie's max results
+     * @return suggestions with a key starting with the prefix, best first
+     */
+    List<SearchSuggestion> suggest(String prefix, int limit) {
+        var node = root;
+        int matched = 0;
+
+        while (matched < prefix.length()) {
+            node = node.child(prefix.charAt(matched));
+            if (node == null) return List.of();
+
+            // the prefix may end part way along a label
+            final int length = Math.min(node.label.length(), prefix.length() - matched);
+            if (!prefix.regionMatches(matched, node.label, 0, length)) return List.of();
+            matched += length;
+        }
+
+        final int count = Math.min(limit, node.best.length);
+        final var found = new ArrayList<SearchSuggestion>(count);
+        for (int i = 0; i < count; i++) found.add(suggestions[node.best[i]]);
+        return found;
+    }
+}
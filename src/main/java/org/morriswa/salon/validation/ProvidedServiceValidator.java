@@ -14,6 +14,13 @@ public class ProvidedServiceValidator {
     public static final String ERROR_MISSING_LENGTH = "All services must have a default timeslot allocation (ie 1 = 15 minutes, 2 = 30 minutes, etc.)";
     public static final String ERROR_OUT_OF_RANGE_LENGTH = "Length must be at least 1 (15 minutes) and no greater than 32 (8 hours).";
 
+    public static final int DEFAULT_SEARCH_LIMIT = 25;
+    public static final int MAX_SEARCH_LIMIT = 100;
+    public static final int MAX_SEARCH_OFFSET = 1000;
+    public static final int DEFAULT_SUGGESTIONS = 5;
+    public static final int MAX_SUGGESTIONS = 10;
+    public static final int MAX_SUGGEST_PREFIX_LENGTH = 128;
+
 
     public static void validateCreateProvidedServiceRequestOrThrow(ProvidedService createProvidedServiceRequest) throws ValidationException {
 
@@ -100,4 +107,34 @@ public class ProvidedServiceValidator {
 
         if (ve.containsErrors()) throw ve;
     }
+
+    public static void validateSearchRequestOrThrow(Integer offset, Integer limit) throws ValidationException {
+        ValidationException ve = new ValidationException();
+
+        // deep pages cost as much to rank as every page before them
+        if (offset != null && (offset < 0 || offset > MAX_SEARCH_OFFSET)) ve.addValidationError(
+                "offset", false, offset.toString(),
+                String.format("Offset must be between 0 and %d.", MAX_SEARCH_OFFSET));
+
+        if (limit != null && (limit < 1 || limit > MAX_SEARCH_LIMIT)) ve.addValidationError(
+                "limit", false, limit.toString(),
+                String.format("Limit must be between 1 and %d.", MAX_SEARCH_LIMIT));
+
+        if (ve.containsErrors()) throw ve;
+    }
+
+    public static void validateSuggestRequestOrThrow(String prefix, Integer limit) throws ValidationException {
+        ValidationException ve = new ValidationException();
+
+        // no name is longer than the longest service name
+        if (prefix != null && prefix.length() > MAX_SUGGEST_PREFIX_LENGTH) ve.addValidationError(
+                "prefix", false, prefix,
+                String.format("Prefix must be %d characters or less.", MAX_SUGGEST_PREFIX_LENGTH));
+
+        if (limit != null && (limit < 1 || limit > MAX_SUGGESTIONS)) ve.addValidationError(
+                "limit", false, limit.toString(),
+                String.format("Limit must be between 1 and %d.", MAX_SUGGESTIONS));
+
+        if (ve.containsErrors()) throw ve;
+    }
 }
@@ -1,15 +1,27 @@
 package org.morriswa.salon.validation;
 
 import org.morriswa.salon.exception.ValidationException;
+import org.morriswa.salon.model.AppointmentCursor;
 import org.morriswa.salon.model.AppointmentRequest;
+import org.morriswa.salon.model.AppointmentSearchRequest;
 
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 
 import static java.time.ZoneOffset.UTC;
 
 public class ScheduleRequestValidator {
 
+    public static final int DEFAULT_SEARCH_PAGE_SIZE = 50;
+    public static final int MAX_SEARCH_PAGE_SIZE = 200;
+    public static final int MAX_SEARCH_DAYS = 14;
+    public static final int MAX_SEARCH_EMPLOYEES = 25;
+    public static final int DEFAULT_SCHEDULE_PAGE_SIZE = 50;
+    public static final int MAX_SCHEDULE_PAGE_SIZE = 200;
+    // furthest ahead an unpaged schedule may reach, paged and exported schedules may reach any date
+    public static final int MAX_SCHEDULE_DAYS = 31;
+
     public static void validateRescheduleAppointmentRequest(AppointmentRequest request) throws ValidationException {
 
         ValidationException ve = new ValidationException();
@@ -89,4 +101,82 @@ public class ScheduleRequestValidator {
 
         if (ve.containsErrors()) throw ve;
     }
+
+    public static void validateAppointmentSearchRequest(AppointmentSearchRequest request) throws ValidationException {
+
+        ValidationException ve = new ValidationException();
+
+        final boolean hasEmployees = request.employeeIds() != null && !request.employeeIds().isEmpty();
+        if (!hasEmployees && !StrTools.hasValue(request.serviceName())) ve.addValidationError(
+                "employeeIds", false, null,
+                "Must provide employees to search, service name to search, or both.");
+        else if (hasEmployees && request.employeeIds().size() > MAX_SEARCH_EMPLOYEES) ve.addValidationError(
+                "employeeIds", false, request.employeeIds().toString(),
+                String.format("Can not search more than %d employees at once.", MAX_SEARCH_EMPLOYEES));
+        else if (hasEmployees && request.employeeIds().contains(null)) ve.addValidationError(
+                "employeeIds", false, request.employeeIds().toString(),
+                "Employee IDs can not be null.");
+
+        if (request.startDate() == null) ve.addValidationError(
+                "startDate", true, null,
+                "Must provide first day to search.");
+        else if (request.startDate().isBefore(LocalDate.now(UTC).minusDays(1))) ve.addValidationError(
+                "startDate", true, request.startDate().toString(),
+                "Appointments can not take place in the past!");
+
+        if (request.endDate() == null) ve.addValidationError(
+                "endDate", true, null,
+                "Must provide last day to search.");
+        else if (request.startDate() != null && request.endDate().isBefore(request.startDate())) ve.addValidationError(
+                "endDate", true, request.endDate().toString(),
+                "Last day to search can not be before first day to search.");
+        else if (request.startDate() != null
+                && request.startDate().plusDays(MAX_SEARCH_DAYS).isBefore(request.endDate().plusDays(1))) ve.addValidationError(
+                "endDate", true, request.endDate().toString(),
+                String.format("Can not search more than %d days at once.", MAX_SEARCH_DAYS));
+
+        if (request.page() != null && request.page() < 0) ve.addValidationError(
+                "page", false, request.page().toString(),
+                "Page must not be negative.");
+
+        if (request.pageSize() != null && (request.pageSize() < 1 || request.pageSize() > MAX_SEARCH_PAGE_SIZE)) ve.addValidationError(
+                "pageSize", false, request.pageSize().toString(),
+                String.format("Page size must be between 1 and %d.", MAX_SEARCH_PAGE_SIZE));
+
+        if (ve.containsErrors()) throw ve;
+    }
+
+    public static void validateEmployeeScheduleRequest(String after, Integer pageSize) throws ValidationException {
+
+        ValidationException ve = new ValidationException();
+
+        if (after != null) try {
+            AppointmentCursor.decode(after);
+        } catch (IllegalArgumentException iae) {
+            ve.addValidationError(
+                "after", false, after,
+                "Cursor is not valid, use the nextCursor returned with the previous page.");
+        }
+
+        if (pageSize != null && (pageSize < 1 || pageSize > MAX_SCHEDULE_PAGE_SIZE)) ve.addValidationError(
+                "pageSize", false, pageSize.toString(),
+                String.format("Page size must be between 1 and %d.", MAX_SCHEDULE_PAGE_SIZE));
+
+        if (ve.containsErrors()) throw ve;
+    }
+
+    public static void validateEmployeeScheduleTimeframe(LocalDate untilDate) throws ValidationException {
+
+        ValidationException ve = new ValidationException();
+
+        if (untilDate == null) ve.addValidationError(
+                "untilDate", true, null,
+                "Must provide last day to retrieve schedule for.");
+        else if (untilDate.isAfter(LocalDate.now(UTC).plusDays(MAX_SCHEDULE_DAYS))) ve.addValidationError(
+                "untilDate", false, untilDate.toString(),
+                String.format("Can not retrieve schedule more than %d days ahead, use a page or export instead.",
+                        MAX_SCHEDULE_DAYS));
+
+        if (ve.containsErrors()) throw ve;
+    }
 }
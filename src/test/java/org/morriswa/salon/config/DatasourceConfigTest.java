@@ -0,0 +1,77 @@
+package org.morriswa.salon.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertNull;
+
+public class DatasourceConfigTest {
+
+    @Test
+    public void poolDefaultsToFixedSizeFromCores() {
+        final var config = new HikariConfig();
+        final var defaults = new HikariConfig();
+
+        DatasourceConfig.applyPoolPolicy(config, new MySQLProperties());
+
+        final int expectedSize = Runtime.getRuntime().availableProcessors() * 2 + 1;
+        assertEquals("pool should be sized from cpu cores", expectedSize, config.getMaximumPoolSize());
+        assertEquals("pool should keep every connection open", expectedSize, config.getMinimumIdle());
+        assertEquals("pool should be named", DatasourceConfig.POOL_NAME, config.getPoolName());
+        assertEquals("unset timeouts should keep defaults", defaults.getMaxLifetime(), config.getMaxLifetime());
+        assertEquals("unset timeouts should keep defaults", defaults.getIdleTimeout(), config.getIdleTimeout());
+    }
+
+    @Test
+    public void poolSettingsAreApplied() {
+        final var mysql = new MySQLProperties();
+        mysql.setMaximumPoolSize(12);
+        mysql.setMinimumIdle(40);
+        mysql.setConnectionTimeout(Duration.ofSeconds(3));
+        mysql.setValidationTimeout(Duration.ofSeconds(1));
+        mysql.setIdleTimeout(Duration.ofMinutes(2));
+        mysql.setMaxLifetime(Duration.ofMinutes(20));
+        mysql.setKeepaliveTime(Duration.ofMinutes(1));
+        mysql.setLeakDetectionThreshold(Duration.ofSeconds(10));
+
+        final var config = new HikariConfig();
+        DatasourceConfig.applyPoolPolicy(config, mysql);
+
+        assertEquals("maximum pool size should be applied", 12, config.getMaximumPoolSize());
+        assertEquals("idle connections should not exceed the pool size", 12, config.getMinimumIdle());
+        assertEquals("connection timeout should be applied", 3_000L, config.getConnectionTimeout());
+        assertEquals("validation timeout should be applied", 1_000L, config.getValidationTimeout());
+        assertEquals("idle timeout should be applied", 120_000L, config.getIdleTimeout());
+        assertEquals("max lifetime should be applied", 1_200_000L, config.getMaxLifetime());
+        assertEquals("keepalive should be applied", 60_000L, config.getKeepaliveTime());
+        assertEquals("leak detection should be applied", 10_000L, config.getLeakDetectionThreshold());
+    }
+
+    @Test
+    public void driverPropertiesArePassedToConnections() {
+        final var mysql = new MySQLProperties();
+        mysql.setDriverProperties(Map.of(
+                "cachePrepStmts", "true",
+                "useServerPrepStmts", "true",
+                "rewriteBatchedStatements", "true"));
+
+        final var config = new HikariConfig();
+        DatasourceConfig.applyDriverProperties(config, mysql);
+
+        assertEquals("statement cache should be enabled",
+                "true", config.getDataSourceProperties().getProperty("cachePrepStmts"));
+        assertEquals("server side statements should be enabled",
+                "true", config.getDataSourceProperties().getProperty("useServerPrepStmts"));
+        assertEquals("batch rewriting should be enabled",
+                "true", config.getDataSourceProperties().getProperty("rewriteBatchedStatements"));
+
+        final var unconfigured = new HikariConfig();
+        DatasourceConfig.applyDriverProperties(unconfigured, new MySQLProperties());
+        assertNull("no driver properties should be set without config",
+                unconfigured.getDataSourceProperties().getProperty("cachePrepStmts"));
+    }
+}
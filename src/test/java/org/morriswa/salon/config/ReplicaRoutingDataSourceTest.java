@@ -0,0 +1,153 @@
+package org.morriswa.salon.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.morriswa.salon.model.UserAccount;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Set;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+
+/**
+ * routes between two local h2 databases, each of which knows whether it is the primary or the replica.
+ * the replica's heartbeat is a view of the current time so it is always caught up, unless a test replaces it
+ */
+public class ReplicaRoutingDataSourceTest {
+
+    private static final Duration MAX_LAG = Duration.ofMillis(200);
+
+    private ReplicaRoutingDataSource routing;
+    private JdbcTemplate replica;
+    private JdbcTemplate database;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    private static DriverManagerDataSource createDatabase(String name) {
+        final var dataSource = new DriverManagerDataSource(
+                String.format("jdbc:h2:mem:%s;MODE=MySQL;DB_CLOSE_DELAY=-1", name));
+
+        final var setup = new JdbcTemplate(dataSource);
+        setup.execute("create table if not exists database_role (name varchar(16))");
+        setup.execute("delete from database_role");
+        setup.update("insert into database_role values (?)", name);
+
+        if (name.equals("replica")) {
+            setup.execute("drop view if exists replica_heartbeat");
+            setup.execute("create view replica_heartbeat as select 1 as id, current_timestamp(3) as beat");
+        } else {
+            setup.execute("drop table if exists replica_heartbeat");
+            setup.execute("create table replica_heartbeat (id tinyint primary key, beat timestamp(3))");
+            setup.update("insert into replica_heartbeat values (1, current_timestamp(3))");
+        }
+        return dataSource;
+    }
+
+    @BeforeEach
+    public void createDatabases() throws Exception {
+        final var replicaDatabase = createDatabase("replica");
+        routing = new ReplicaRoutingDataSource(createDatabase("primary"), replicaDatabase, MAX_LAG, 100);
+        routing.measureReplicaLag();
+
+        final var lazy = routing.lazily();
+        replica = new JdbcTemplate(replicaDatabase);
+        database = new JdbcTemplate(lazy);
+        readOnly = new TransactionTemplate(new DataSourceTransactionManager(lazy));
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(readOnly.getTransactionManager());
+    }
+
+    @AfterEach
+    public void clearUser() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static void signIn(Long userId) {
+        final var user = new UserAccount(userId, "user" + userId, null,
+                ZonedDateTime.now(), Set.of(new SimpleGrantedAuthority("USER")));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+
+    private String whichDatabase() {
+        return database.queryForObject("select name from database_role", String.class);
+    }
+
+    private String whichDatabaseReadOnly() {
+        return readOnly.execute(status -> whichDatabase());
+    }
+
+    @Test
+    public void readOnlyTransactionsUseReplica() {
+        assertEquals("read-only work should be served by the replica", "replica", whichDatabaseReadOnly());
+    }
+
+    @Test
+    public void everythingElseUsesPrimary() {
+        assertEquals("work outside a read-only transaction should use the primary", "primary", whichDatabase());
+
+        assertEquals("read-write transactions should use the primary", "primary",
+                readWrite.execute(status -> whichDatabase()));
+    }
+
+    @Test
+    public void laggingReplicaFallsBackToPrimary() {
+        // the replica last heard from the primary 10 seconds ago
+        replica.execute("drop view replica_heartbeat");
+        replica.execute("create view replica_heartbeat as select 1 as id, dateadd('SECOND', -10, current_timestamp(3)) as beat");
+        routing.measureReplicaLag();
+        assertEquals("reads should use the primary while the replica is behind", "primary", whichDatabaseReadOnly());
+
+        replica.execute("drop view replica_heartbeat");
+        replica.execute("create view replica_heartbeat as select 1 as id, current_timestamp(3) as beat");
+        routing.measureReplicaLag();
+        assertEquals("reads should return to the replica once it has caught up", "replica", whichDatabaseReadOnly());
+
+        // a replica which can not be measured is not trusted
+        replica.execute("drop view replica_heartbeat");
+        routing.measureReplicaLag();
+        assertEquals("reads should use the primary while the replica's lag is unknown", "primary", whichDatabaseReadOnly());
+    }
+
+    @Test
+    public void unmeasuredReplicaIsNotUsed() throws Exception {
+        Thread.sleep(MAX_LAG.plusMillis(50));
+        assertEquals("reads should use the primary once the last measurement is too old to vouch for the replica",
+                "primary", whichDatabaseReadOnly());
+    }
+
+    @Test
+    public void readsOutsideTransactionsDoNotHoldUserOnPrimary() {
+        signIn(14L);
+        assertEquals("reading outside a transaction uses the primary", "primary", whichDatabase());
+        assertEquals("user should stay on the replica as nothing was written", "replica", whichDatabaseReadOnly());
+    }
+
+    @Test
+    public void recentWritersReadFromPrimaryUntilReplicaCatchesUp() throws Exception {
+        signIn(14L);
+        assertEquals("user should start on the replica", "replica", whichDatabaseReadOnly());
+
+        // ie booking an appointment
+        readWrite.executeWithoutResult(status -> database.update("update database_role set name = name"));
+        assertEquals("user should read their own changes from the primary", "primary", whichDatabaseReadOnly());
+
+        // other users are not held back by someone else's writes
+        signIn(15L);
+        assertEquals("other users should still use the replica", "replica", whichDatabaseReadOnly());
+
+        Thread.sleep(MAX_LAG.plusMillis(50));
+        routing.measureReplicaLag();
+        signIn(14L);
+        assertEquals("user should return to the replica once it has caught up", "replica", whichDatabaseReadOnly());
+    }
+}
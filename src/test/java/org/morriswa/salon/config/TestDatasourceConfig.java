@@ -41,6 +41,7 @@ public class TestDatasourceConfig {
         dataSource.setJdbcUrl(jdbcUrl);
         dataSource.setUsername(mysql.getUsername());
         dataSource.setPassword(mysql.getPassword());
+        DatasourceConfig.applyPoolPolicy(dataSource, mysql);
 
         return dataSource;
     }
@@ -0,0 +1,84 @@
+package org.morriswa.salon.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * compares request handling on a platform thread pool against virtual threads
+ * under a workload shaped like the service's: a short database query followed by a slow blocking S3 call.
+ * Virtual threads should not wait on a fixed number of request threads, so should handle every request sooner.
+ * Run with mvn -P benchmark test-compile exec:exec
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ThreadingModeBenchmark {
+
+    // tomcat's default maximum number of request threads
+    private static final int PLATFORM_THREADS = 200;
+    private static final int REQUESTS = 2_000;
+    private static final Duration S3_LATENCY = Duration.ofMillis(50);
+
+    @Param({"platform", "virtual"})
+    public String threadingMode;
+
+    private HikariDataSource pool;
+
+    @Setup
+    public void createPool() {
+        final var mysql = new MySQLProperties();
+        mysql.setMaximumPoolSize(0);
+        mysql.setConnectionTimeout(Duration.ofSeconds(5));
+
+        final var config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:load_test;MODE=MySQL");
+        DatasourceConfig.applyPoolPolicy(config, mysql);
+
+        pool = new HikariDataSource(config);
+    }
+
+    @TearDown
+    public void closePool() {
+        pool.close();
+    }
+
+    private ExecutorService requestExecutor() {
+        return threadingMode.equals("virtual")
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(PLATFORM_THREADS);
+    }
+
+    @Benchmark
+    public void handleRequests() throws Exception {
+        final var executor = requestExecutor();
+
+        final var requests = new ArrayList<Future<?>>(REQUESTS);
+        for (int request = 0; request < REQUESTS; request++)
+            requests.add(executor.submit(() -> {
+                try (var connection = pool.getConnection();
+                     var statement = connection.prepareStatement("select 1")) {
+                    statement.executeQuery().close();
+                }
+
+                // the connection is returned before waiting on S3, as the service does
+                Thread.sleep(S3_LATENCY);
+                return null;
+            }));
+
+        // any failure, including a timed out connection request, fails the run
+        for (var request : requests) request.get();
+
+        executor.shutdown();
+    }
+}
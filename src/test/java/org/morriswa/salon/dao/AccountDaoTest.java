@@ -73,6 +73,20 @@ public class AccountDaoTest extends DaoTest {
         assertNotNull("exception should contain helpful info", exception.getMessage());
     }
 
+    @Test
+    void findUserByIdQuery() {
+
+        var user = accountDao.findUser(1L);
+
+        assertNotNull("user should already be in db", user);
+        assertEquals("user should have correct username", "test_nuser_1", user.getUsername());
+        assertEquals("user should have encoded password", "password", user.getPassword());
+        assertTrue(
+                "registered user should have correct authorities",
+                user.getAuthorities().contains(new SimpleGrantedAuthority("NUSER"))
+        );
+    }
+
     @Test
     void findUserClientQuery() {
 
@@ -190,6 +204,8 @@ public class AccountDaoTest extends DaoTest {
         assertTrue("password should be present", passwordResult.isPresent());
         assertEquals("database should have updated password",
                 passwordResult.get(), "newPassword");
+        assertEquals("tokens issued with the old password should be revoked",
+                1, accountDao.retrieveTokenVersion(userId));
     }
 
     @Test
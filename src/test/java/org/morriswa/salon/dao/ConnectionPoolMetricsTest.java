@@ -0,0 +1,33 @@
+package org.morriswa.salon.dao;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.morriswa.salon.config.DatasourceConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Map;
+
+import static org.springframework.test.util.AssertionErrors.assertNotNull;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+
+public class ConnectionPoolMetricsTest extends DaoTest {
+
+    @Autowired private MeterRegistry meters;
+
+    @Test
+    public void connectionPoolPublishesMetrics() {
+        jdbcTemplate.queryForObject("select 1", Map.of(), Integer.class);
+
+        for (var gauge : new String[]{
+                "hikaricp.connections.active",
+                "hikaricp.connections.idle",
+                "hikaricp.connections.pending"})
+            assertNotNull(gauge + " should be published",
+                    meters.find(gauge).tag("pool", DatasourceConfig.POOL_NAME).gauge());
+
+        final var acquire = meters.find("hikaricp.connections.acquire")
+                .tag("pool", DatasourceConfig.POOL_NAME).timer();
+        assertNotNull("connection acquire time should be published", acquire);
+        assertTrue("connection acquire time should be recorded", acquire.count() > 0);
+    }
+}
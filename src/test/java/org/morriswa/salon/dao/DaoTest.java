@@ -29,6 +29,8 @@ public class DaoTest {
 
     @Autowired protected ScheduleDao scheduleDao;
 
+    @Autowired protected ImageUploadDao imageUploadDao;
+
     @Autowired protected NamedParameterJdbcTemplate jdbcTemplate;
 
     @MockBean protected AmazonS3Client amazonS3Client;
@@ -0,0 +1,52 @@
+package org.morriswa.salon.dao;
+
+import org.junit.jupiter.api.Test;
+import org.morriswa.salon.enumerated.ImageUploadStatus;
+import org.morriswa.salon.model.ImageUploadJob;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertNull;
+
+public class ImageUploadDaoTest extends DaoTest {
+
+    private final ImageUploadJob queued =
+            new ImageUploadJob("job-1", "employeeProfile/1", ImageUploadStatus.Queued, null);
+
+    @Test
+    public void jobStatusIsUpdated() {
+        imageUploadDao.createJob(1L, queued);
+
+        final var since = Instant.now().minus(Duration.ofMinutes(1));
+        assertEquals("queued job should be retrieved", queued, imageUploadDao.retrieveJob(1L, "job-1", since));
+
+        final var failed = queued.withStatus(ImageUploadStatus.Failed, "Image could not be processed");
+        imageUploadDao.updateJob(failed);
+
+        assertEquals("latest status should be retrieved", failed, imageUploadDao.retrieveJob(1L, "job-1", since));
+    }
+
+    @Test
+    public void jobIsOnlyRetrievedByOwner() {
+        imageUploadDao.createJob(1L, queued);
+
+        assertNull("another user should not see the job",
+                imageUploadDao.retrieveJob(2L, "job-1", Instant.now().minus(Duration.ofMinutes(1))));
+    }
+
+    @Test
+    public void expiredJobsAreNotRetrievedAndAreRemoved() {
+        imageUploadDao.createJob(1L, queued);
+
+        assertNull("job updated before the cutoff should not be retrieved",
+                imageUploadDao.retrieveJob(1L, "job-1", Instant.now().plus(Duration.ofMinutes(1))));
+
+        imageUploadDao.deleteJobsUpdatedBefore(Instant.now().plus(Duration.ofMinutes(1)));
+
+        assertEquals("expired job should be removed", 0, jdbcTemplate.queryForObject(
+                "select count(*) from image_upload_job", Map.of(), Integer.class));
+    }
+}
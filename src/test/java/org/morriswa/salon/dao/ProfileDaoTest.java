@@ -6,6 +6,10 @@ import org.morriswa.salon.exception.ValidationException;
 import org.morriswa.salon.model.ClientInfo;
 import org.morriswa.salon.model.EmployeeInfo;
 
+import java.util.List;
+import java.util.Set;
+
+
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.springframework.test.util.AssertionErrors.assertEquals;
 import static org.springframework.test.util.AssertionErrors.assertNotNull;
@@ -137,6 +141,23 @@ public class ProfileDaoTest extends DaoTest {
         assertNotNull("exception should be thrown", exception);
     }
 
+    @Test
+    public void getManyEmployeesInfoQuery() {
+        // 11 is a client, not an employee, and should be left out
+        var employees = profileDao.getEmployeeInfo(List.of(21L, 22L, 11L));
+
+        assertEquals("only employees should be returned", Set.of(21L, 22L), employees.keySet());
+        assertEquals("employee email is as expected",
+                "employee1@morriswa.org", employees.get(21L).getEmail());
+    }
+
+    @Test
+    public void getNoEmployeesInfoQuery() {
+        var employees = profileDao.getEmployeeInfo(List.of());
+
+        assertEquals("no employees should be returned", 0, employees.size());
+    }
+
     @Test
     public void updateEmployeeInfoQuery() throws Exception {
 
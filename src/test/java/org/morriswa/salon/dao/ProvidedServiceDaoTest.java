@@ -2,8 +2,11 @@ package org.morriswa.salon.dao;
 
 import org.junit.jupiter.api.Test;
 import org.morriswa.salon.model.ProvidedService;
+import org.morriswa.salon.model.ProvidedServiceSummary;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.springframework.test.util.AssertionErrors.*;
 
@@ -70,4 +73,57 @@ public class ProvidedServiceDaoTest extends DaoTest {
         assertTrue("new service should belong to correct employee", providedServiceDao.serviceBelongsTo(serviceId, employeeId2));
         assertFalse("new service should belong to correct employee", providedServiceDao.serviceBelongsTo(serviceId, employeeId1));
     }
+
+    @Test
+    public void streamEmployeesServicesQuery() {
+
+        final Long employeeId = 21L;
+
+        providedServiceDao.createProvidedService(employeeId,
+                new ProvidedService(null, new BigDecimal("123.45"), 2, "Test Stream Service 1"));
+        providedServiceDao.createProvidedService(employeeId,
+                new ProvidedService(null, new BigDecimal("23.45"), 1, "Test Stream Service 2"));
+
+        final var streamed = new ArrayList<ProvidedService>();
+        providedServiceDao.streamEmployeesServices(employeeId, streamed::add);
+
+        final var retrieved = providedServiceDao.retrieveEmployeesServices(employeeId);
+
+        assertEquals("streamed services should match retrieved services",
+                retrieved.stream().map(ProvidedService::getServiceId).toList(),
+                streamed.stream().map(ProvidedService::getServiceId).toList());
+        assertTrue("new services should be streamed", streamed.stream()
+                .anyMatch(service -> service.getName().equals("Test Stream Service 2")));
+    }
+
+    @Test
+    public void streamAvailableServicesQuery() {
+
+        final Long employeeId = 21L;
+
+        providedServiceDao.createProvidedService(employeeId,
+                new ProvidedService(null, new BigDecimal("123.45"), 2, "Test Available Service"));
+
+        final var streamed = new ArrayList<ProvidedServiceSummary>();
+        providedServiceDao.streamAvailableServices(streamed::add);
+
+        assertTrue("existing services should be streamed", streamed.stream()
+                .anyMatch(service -> service.getServiceId().equals(251L)));
+        assertTrue("new services should be streamed along with their employee", streamed.stream()
+                .anyMatch(service -> service.getName().equals("Test Available Service")
+                        && service.getEmployee().employeeId().equals(employeeId)));
+    }
+
+    @Test
+    public void retrieveAvailableServicesQuery() {
+
+        final var services = providedServiceDao.retrieveAvailableServices(25L);
+
+        assertEquals("only the employee's services should be retrieved",
+                List.of(251L), services.stream().map(ProvidedService::getServiceId).toList());
+        assertEquals("employee should be retrieved with their services",
+                25L, services.get(0).getEmployee().employeeId());
+        assertTrue("other employees should have none of these services",
+                providedServiceDao.retrieveAvailableServices(24L).isEmpty());
+    }
 }
@@ -1,17 +1,34 @@
 package org.morriswa.salon.dao;
 
 import org.junit.jupiter.api.Test;
+import org.morriswa.salon.exception.BadRequestException;
+import org.morriswa.salon.model.AppointmentCursor;
 import org.morriswa.salon.model.AppointmentRequest;
+import org.morriswa.salon.model.AppointmentSearchRequest;
+import org.morriswa.salon.model.ProvidedService;
+import org.morriswa.salon.model.ServiceOpening;
+import org.morriswa.salon.utility.AvailabilityCache;
+import org.morriswa.salon.utility.TimeZoneUtil;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.springframework.test.util.AssertionErrors.*;
 
 
 public class ScheduleDaoTest extends DaoTest {
 
+    @Autowired private AvailabilityCache availabilityCache;
+
+    @Autowired private TimeZoneUtil timeZoneUtil;
+
     @Test
     public void canRetrieveTomorrowsSchedule() throws Exception {
         final var request = new AppointmentRequest(
@@ -29,4 +46,178 @@ public class ScheduleDaoTest extends DaoTest {
             assertEquals("openings should have correct length", 15, opening.length());
         }
     }
+
+    @Test
+    public void changedServiceLengthIsUsedForOpenings() throws Exception {
+        final var request = new AppointmentRequest(
+                251L,
+                25L,
+                Instant.now().plus(1, ChronoUnit.DAYS).atZone(ZoneId.systemDefault()),
+                null, null, null, null);
+
+        // the service is kept in memory once it has been scheduled
+        assertEquals("openings should start with the service's stored length",
+                15, scheduleDao.retrieveAppointmentOpenings(15L, request).get(0).length());
+
+        providedServiceDao.updateProvidedServiceDetails(25L, 251L, new ProvidedService(null, null, 2, null));
+
+        assertEquals("openings should use the service's new length",
+                30, scheduleDao.retrieveAppointmentOpenings(15L, request).get(0).length());
+    }
+
+    @Test
+    public void bookedAppointmentIsNotAnOpening() throws Exception {
+        final Long clientId = 14L;
+        final Long employeeId = 25L;
+        final var tomorrow = LocalDate.now(timeZoneUtil.getZoneOfSalon()).plusDays(1);
+        final var appointmentTime = ZonedDateTime.of(tomorrow,
+                timeZoneUtil.getSalonOpen().plusHours(1), timeZoneUtil.getZoneOfSalon());
+
+        scheduleDao.bookAppointment(clientId, new AppointmentRequest(
+                251L, employeeId, null, appointmentTime, null, null, null));
+
+        // the booking is rolled back with the test, so make sure schedules are loaded within this transaction
+        availabilityCache.evict(employeeId, tomorrow);
+        availabilityCache.evict(clientId, tomorrow);
+
+        final var request = new AppointmentRequest(
+                251L, employeeId, appointmentTime, null, null, null, null);
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            var openings = scheduleDao.retrieveAppointmentOpenings(clientId, request);
+
+            assertFalse("list should not be empty", openings.isEmpty());
+            assertTrue("booked time should not be available", openings.stream()
+                    .noneMatch(opening -> opening.time().toInstant().equals(appointmentTime.toInstant())));
+            assertTrue("time before booking should be available", openings.stream()
+                    .anyMatch(opening -> opening.time().toInstant()
+                            .equals(appointmentTime.minusMinutes(15).toInstant())));
+        }
+    }
+
+    @Test
+    public void cannotDoubleBookAnAppointmentSlot() throws Exception {
+        final var tomorrow = LocalDate.now(timeZoneUtil.getZoneOfSalon()).plusDays(1);
+        final var appointmentTime = ZonedDateTime.of(tomorrow,
+                timeZoneUtil.getSalonOpen().plusHours(2), timeZoneUtil.getZoneOfSalon());
+
+        scheduleDao.bookAppointment(14L, new AppointmentRequest(
+                251L, 25L, null, appointmentTime, null, null, null));
+
+        // a different client can not take the employee's slot
+        var exception = assertThrows(BadRequestException.class, () ->
+                scheduleDao.bookAppointment(15L, new AppointmentRequest(
+                        251L, 25L, null, appointmentTime, null, null, null)));
+        assertEquals("should report time is taken", "Time is unavailable!", exception.getMessage());
+    }
+
+    @Test
+    public void canBookAdjacentAppointmentSlots() throws Exception {
+        final var tomorrow = LocalDate.now(timeZoneUtil.getZoneOfSalon()).plusDays(1);
+        final var appointmentTime = ZonedDateTime.of(tomorrow,
+                timeZoneUtil.getSalonOpen().plusHours(3), timeZoneUtil.getZoneOfSalon());
+
+        scheduleDao.bookAppointment(14L, new AppointmentRequest(
+                251L, 25L, null, appointmentTime, null, null, null));
+        scheduleDao.bookAppointment(15L, new AppointmentRequest(
+                251L, 25L, null, appointmentTime.plusMinutes(15), null, null, null));
+    }
+
+    @Test
+    public void canSearchOpeningsOverSeveralDays() {
+        final var tomorrow = LocalDate.now(timeZoneUtil.getZoneOfSalon()).plusDays(1);
+
+        final var request = new AppointmentSearchRequest(
+                tomorrow, tomorrow.plusDays(2), List.of(25L, 24L), null, null, null);
+
+        var openings = scheduleDao.retrieveAppointmentOpenings(15L, request, 25, Integer.MAX_VALUE);
+
+        assertFalse("list should not be empty", openings.isEmpty());
+        for (var opening : openings) {
+            assertEquals("openings should belong to employee with services", 25L, opening.employeeId());
+            assertEquals("openings should be for employee's service", 251L, opening.serviceId());
+            assertEquals("openings should have correct length", 15, opening.length());
+        }
+        assertEquals("every requested day should have openings", 3L, openings.stream()
+                .map(opening -> opening.time().withZoneSameInstant(timeZoneUtil.getZoneOfSalon()).toLocalDate())
+                .distinct().count());
+        for (int i = 1; i < openings.size(); i++)
+            assertFalse("openings should be ordered by time",
+                    openings.get(i).time().isBefore(openings.get(i - 1).time()));
+    }
+
+    @Test
+    public void canSearchOpeningsByServiceName() {
+        final var tomorrow = LocalDate.now(timeZoneUtil.getZoneOfSalon()).plusDays(1);
+
+        final var matching = new AppointmentSearchRequest(
+                tomorrow, tomorrow, null, "employee service", null, null);
+        final var notMatching = new AppointmentSearchRequest(
+                tomorrow, tomorrow, null, "not a real service", null, null);
+
+        assertFalse("matching service should have openings",
+                scheduleDao.retrieveAppointmentOpenings(15L, matching, 25, Integer.MAX_VALUE).isEmpty());
+        assertTrue("unknown service should not have openings",
+                scheduleDao.retrieveAppointmentOpenings(15L, notMatching, 25, Integer.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    public void searchStopsOnceEnoughOpeningsAreFound() {
+        final var tomorrow = LocalDate.now(timeZoneUtil.getZoneOfSalon()).plusDays(1);
+
+        final var request = new AppointmentSearchRequest(
+                tomorrow, tomorrow.plusDays(2), List.of(25L), null, null, null);
+
+        final var everyOpening = scheduleDao.retrieveAppointmentOpenings(15L, request, 25, Integer.MAX_VALUE);
+        final var earliest = scheduleDao.retrieveAppointmentOpenings(15L, request, 25, 3);
+
+        assertEquals("only the requested number of openings should be found", 3, earliest.size());
+        assertEquals("the earliest openings should be found", everyOpening.subList(0, 3), earliest);
+    }
+
+    @Test
+    public void searchByServiceNameReachesLimitedEmployees() {
+        final var tomorrow = LocalDate.now(timeZoneUtil.getZoneOfSalon()).plusDays(1);
+
+        jdbcTemplate.update("""
+            insert into provided_service (service_id, employee_id, provided_service_name, default_cost, default_length)
+            values (241, 24, 'Test 4 Employee Service 1', 123.45, 1)""", Map.of());
+
+        final var request = new AppointmentSearchRequest(
+                tomorrow, tomorrow, null, "employee service", null, null);
+
+        assertEquals("both employees offering a match should be searched", 2L,
+                scheduleDao.retrieveAppointmentOpenings(15L, request, 25, Integer.MAX_VALUE).stream()
+                        .map(ServiceOpening::employeeId).distinct().count());
+
+        for (var opening : scheduleDao.retrieveAppointmentOpenings(15L, request, 1, Integer.MAX_VALUE))
+            assertEquals("only the employee with the lowest id should be searched", 24L, opening.employeeId());
+    }
+
+    @Test
+    public void canPageThroughEmployeeSchedule() throws Exception {
+        final var tomorrow = LocalDate.now(timeZoneUtil.getZoneOfSalon()).plusDays(1);
+        final var firstTime = ZonedDateTime.of(tomorrow,
+                timeZoneUtil.getSalonOpen().plusHours(1), timeZoneUtil.getZoneOfSalon());
+
+        // the employee can only be booked once per slot, so book consecutive slots
+        for (long clientId = 13L; clientId <= 15L; clientId++)
+            scheduleDao.bookAppointment(clientId, new AppointmentRequest(
+                    251L, 25L, null, firstTime.plusMinutes((clientId - 13L) * 15L), null, null, null));
+
+        final var untilDate = tomorrow.plusDays(1);
+        final var firstPage = scheduleDao.retrieveEmployeeSchedule(25L, untilDate, null, 2);
+
+        assertEquals("first page should be full", 2, firstPage.size());
+        assertEquals("first page should start with earliest appointment",
+                firstTime.toInstant(), firstPage.get(0).time().toInstant());
+
+        final var secondPage = scheduleDao.retrieveEmployeeSchedule(25L, untilDate,
+                AppointmentCursor.of(firstPage.get(1)), 2);
+
+        assertEquals("second page should hold remaining appointment", 1, secondPage.size());
+        assertEquals("second page should continue after first page",
+                firstTime.plusMinutes(30).toInstant(), secondPage.get(0).time().toInstant());
+        assertEquals("second page should be for final client", 15L, secondPage.get(0).client().userId());
+    }
 }
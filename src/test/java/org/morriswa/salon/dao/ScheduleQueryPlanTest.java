@@ -0,0 +1,147 @@
+package org.morriswa.salon.dao;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.morriswa.salon.model.AppointmentRequest;
+import org.morriswa.salon.model.AppointmentSearchRequest;
+import org.morriswa.salon.utility.AvailabilityCacheImpl;
+import org.morriswa.salon.utility.ProvidedServiceCatalogImpl;
+import org.morriswa.salon.utility.TimeZoneUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.springframework.test.util.AssertionErrors.assertFalse;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+
+/**
+ * runs every query issued by the schedule dao through EXPLAIN
+ * and fails if any of them has to read a whole table to be answered
+ */
+public class ScheduleQueryPlanTest extends DaoTest {
+
+    // h2 marks tables read without an index as tableScan in its query plans
+    private static final Pattern TABLE_SCAN = Pattern.compile("/\\* (\\S+)\\.tableScan \\*/");
+
+    // the service catalogue is small and is read in full when searching every employee's services
+    private static final String SERVICE_CATALOGUE = "PUBLIC.PROVIDED_SERVICE";
+
+    /**
+     * query issued by the dao along with the parameters it was issued with
+     */
+    private record IssuedQuery(String sql, SqlParameterSource params) { }
+
+    /**
+     * template that remembers every query it prepares
+     */
+    private static class RecordingJdbcTemplate extends NamedParameterJdbcTemplate {
+        private final List<IssuedQuery> issued = new ArrayList<>();
+
+        RecordingJdbcTemplate(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        protected PreparedStatementCreator getPreparedStatementCreator(String sql, SqlParameterSource paramSource) {
+            issued.add(new IssuedQuery(sql, paramSource));
+            return super.getPreparedStatementCreator(sql, paramSource);
+        }
+    }
+
+    @Autowired private TimeZoneUtil timeZoneUtil;
+
+    @Autowired private Environment environment;
+
+    private RecordingJdbcTemplate recorder;
+
+    private ScheduleDao recordedScheduleDao;
+
+    @BeforeEach
+    public void recordQueries() {
+        // fresh caches ensure schedules and services are always loaded from the database
+        recorder = new RecordingJdbcTemplate(jdbcTemplate.getJdbcTemplate().getDataSource());
+        recordedScheduleDao = new ScheduleDaoImpl(timeZoneUtil, recorder, recorder,
+                new AvailabilityCacheImpl(environment), new ProvidedServiceCatalogImpl(environment));
+    }
+
+    private void assertNoTableScans() {
+        assertFalse("queries should have been issued", recorder.issued.isEmpty());
+
+        for (var query : recorder.issued) {
+            // inserts are not planned against existing rows
+            if (query.sql().strip().toLowerCase().startsWith("insert")) continue;
+
+            final var plan = jdbcTemplate.queryForObject("explain " + query.sql(), query.params(), String.class);
+
+            final var scans = TABLE_SCAN.matcher(plan);
+            while (scans.find())
+                assertTrue(String.format("query should not scan %s%n%s", scans.group(1), plan),
+                        SERVICE_CATALOGUE.equals(scans.group(1)));
+        }
+    }
+
+    @Test
+    public void bookingQueriesUseIndexes() throws Exception {
+        final var tomorrow = LocalDate.now(timeZoneUtil.getZoneOfSalon()).plusDays(1);
+        final var appointmentTime = ZonedDateTime.of(tomorrow,
+                timeZoneUtil.getSalonOpen().plusHours(1), timeZoneUtil.getZoneOfSalon());
+
+        recordedScheduleDao.bookAppointment(14L, new AppointmentRequest(
+                251L, 25L, null, appointmentTime, null, null, null));
+
+        assertNoTableScans();
+    }
+
+    @Test
+    public void openingQueriesUseIndexes() throws Exception {
+        final var tomorrow = LocalDate.now(timeZoneUtil.getZoneOfSalon()).plusDays(1);
+        final var searchTime = ZonedDateTime.of(tomorrow,
+                timeZoneUtil.getSalonOpen(), timeZoneUtil.getZoneOfSalon());
+
+        recordedScheduleDao.retrieveAppointmentOpenings(15L, new AppointmentRequest(
+                251L, 25L, searchTime, null, null, null, null));
+        recordedScheduleDao.retrieveAppointmentOpenings(15L, new AppointmentSearchRequest(
+                tomorrow, tomorrow.plusDays(2), List.of(25L, 24L), null, null, null), 25, 50);
+        recordedScheduleDao.retrieveAppointmentOpenings(15L, new AppointmentSearchRequest(
+                tomorrow, tomorrow, null, "employee service", null, null), 25, 50);
+
+        assertNoTableScans();
+    }
+
+    @Test
+    public void scheduleQueriesUseIndexes() throws Exception {
+        recordedScheduleDao.retrieveScheduledAppointments(15L);
+        recordedScheduleDao.retrieveEmployeeSchedule(25L, LocalDate.now().plusDays(7), null, 50);
+        recordedScheduleDao.streamEmployeeSchedule(25L, LocalDate.now().plusDays(7), appointment -> { });
+
+        assertNoTableScans();
+    }
+
+    @Test
+    public void appointmentEditQueriesUseIndexes() throws Exception {
+        final var tomorrow = LocalDate.now(timeZoneUtil.getZoneOfSalon()).plusDays(1);
+        final var appointmentTime = ZonedDateTime.of(tomorrow,
+                timeZoneUtil.getSalonOpen().plusHours(2), timeZoneUtil.getZoneOfSalon());
+
+        recordedScheduleDao.bookAppointment(14L, new AppointmentRequest(
+                251L, 25L, null, appointmentTime, null, null, null));
+        final var appointmentId = jdbcTemplate.queryForObject(
+                "select max(appointment_id) from appointment", Map.of(), Long.class);
+
+        recordedScheduleDao.checkEditAccessOrThrow(25L, appointmentId);
+        recordedScheduleDao.updateAppointmentDetails(appointmentId, new AppointmentRequest(
+                null, null, null, null, null, null, null));
+
+        assertNoTableScans();
+    }
+}
@@ -5,18 +5,27 @@ import org.junit.jupiter.api.Test;
 import org.morriswa.salon.annotations.WithNewUserAccount;
 import org.morriswa.salon.annotations.WithUserAccount;
 import org.morriswa.salon.exception.BadRequestException;
+import org.morriswa.salon.model.UserAccount;
 import org.morriswa.salon.model.UserInfo;
+import org.morriswa.salon.utility.PrincipalCache;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpMethod;
 
+import java.time.ZonedDateTime;
+import java.util.Set;
+
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.mockito.Mockito.doThrow;
 import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertNull;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 public class AccountServiceTest extends ServiceTest{
 
+    @Autowired private PrincipalCache principalCache;
+
     @Test
     void registerUserEndpoint() throws Exception {
 
@@ -454,6 +463,26 @@ public class AccountServiceTest extends ServiceTest{
         verify(accountDao).changeUsername(testingUserId, newUsername);
     }
 
+    @Test
+    @WithUserAccount
+    void updateUsernameEvictsCachedPrincipal() throws Exception {
+
+        principalCache.store(testingUsername, testingPassword, new UserAccount(
+                testingUserId, testingUsername, testingPassword, ZonedDateTime.now(), Set.of()));
+
+        final var request = """
+        {
+            "username":"new_username"
+        }""";
+
+        hit(HttpMethod.PATCH, "/user/name", request)
+                .andExpect(status().is(204))
+        ;
+
+        assertNull("old credentials should no longer be cached",
+                principalCache.retrieve(testingUsername, testingPassword));
+    }
+
     @Test
     @WithUserAccount
     void rejectBlankUsername() throws Exception {
@@ -1,19 +1,52 @@
 package org.morriswa.salon.service;
 
+import com.jayway.jsonpath.JsonPath;
 import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.morriswa.salon.annotations.WithClientAccount;
+import org.morriswa.salon.annotations.WithEmployeeAccount;
+import org.morriswa.salon.annotations.WithNewUserAccount;
+import org.morriswa.salon.model.UserAccount;
+import org.morriswa.salon.utility.AccessTokenService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.InsufficientAuthenticationException;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SuppressWarnings("null")
 public class EndpointSecurityTest extends ServiceTest {
 
+    @Autowired private AccessTokenService accessTokens;
+
+    private UserAccount testAccount(String... authorities) {
+        return new UserAccount(testingUserId, testingUsername, null, ZonedDateTime.now(),
+                Arrays.stream(authorities).map(SimpleGrantedAuthority::new).collect(Collectors.toSet()));
+    }
+
+    @BeforeEach
+    void resetTokenSubject() {
+        // tokens are resolved to the user's current account, which outlives the mocks between tests
+        accessTokens.evict(testingUserId);
+        when(accountDao.findUser(testingUserId)).thenReturn(testAccount("USER", "EMPLOYEE"));
+    }
+
     @Test
     void unauthenticatedRequest() throws Exception {
         hit(HttpMethod.GET, "/login")
@@ -41,6 +74,146 @@ public class EndpointSecurityTest extends ServiceTest {
         ;
     }
 
+    @Test
+    @WithUserDetails
+    void loginIssuesAccessToken() throws Exception {
+        hit(HttpMethod.GET, "/login")
+            .andExpect(status().is(200))
+            .andExpect(jsonPath("$.accessToken", Matchers.notNullValue()))
+        ;
+    }
+
+    @Test
+    void accessTokenRequest() throws Exception {
+        final var token = accessTokens.issue(new UserAccount(testingUserId, testingUsername, null,
+                ZonedDateTime.now(), Set.of(new SimpleGrantedAuthority("USER"))));
+
+        mockMvc.perform(MockMvcRequestBuilders.request(HttpMethod.PATCH, "/user/name")
+            .header("Authorization", "Bearer " + token)
+            .contentType("application/json")
+            .content("""
+            {
+                "username":"new_username"
+            }"""))
+            .andExpect(status().is(204))
+        ;
+    }
+
+    @Test
+    void accessTokenRevokedByPasswordChange() throws Exception {
+        final var token = accessTokens.issue(new UserAccount(testingUserId, testingUsername, null,
+                ZonedDateTime.now(), Set.of(new SimpleGrantedAuthority("USER"), new SimpleGrantedAuthority("EMPLOYEE"))));
+
+        mockMvc.perform(MockMvcRequestBuilders.request(HttpMethod.GET, "/employee/schedule")
+            .header("Authorization", "Bearer " + token))
+            .andExpect(status().is(200))
+        ;
+
+        // changing the password moves the user to a new token version
+        when(accountDao.retrieveTokenVersion(testingUserId)).thenReturn(1);
+        accessTokens.evict(testingUserId);
+
+        mockMvc.perform(MockMvcRequestBuilders.request(HttpMethod.GET, "/employee/schedule")
+            .header("Authorization", "Bearer " + token))
+            .andExpect(status().is(401))
+            .andExpect(jsonPath("$.error",
+                Matchers.is(BadCredentialsException.class.getSimpleName())))
+        ;
+    }
+
+    @Test
+    void accessTokenRejectedForUnknownUser() throws Exception {
+        final var token = accessTokens.issue(testAccount("USER", "EMPLOYEE"));
+
+        // the user is deleted
+        when(accountDao.retrieveTokenVersion(testingUserId)).thenReturn(null);
+        accessTokens.evict(testingUserId);
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(MockMvcRequestBuilders.request(HttpMethod.GET, "/employee/schedule")
+                .header("Authorization", "Bearer " + token))
+                .andExpect(status().is(401))
+            ;
+        }
+
+        // the missing user is remembered rather than looked up again
+        verify(accountDao, times(2)).retrieveTokenVersion(testingUserId);
+    }
+
+    @Test
+    @WithNewUserAccount
+    void accessTokenFollowsEmployeePortalUnlock() throws Exception {
+        when(accountDao.findUser(testingUserId)).thenReturn(testAccount("NUSER"));
+
+        final var login = hit(HttpMethod.GET, "/login")
+            .andExpect(status().is(200))
+            .andReturn().getResponse().getContentAsString();
+        final String token = JsonPath.read(login, "$.accessToken");
+
+        mockMvc.perform(MockMvcRequestBuilders.request(HttpMethod.GET, "/employee/schedule")
+            .header("Authorization", "Bearer " + token))
+            .andExpect(status().is(403))
+        ;
+
+        mockMvc.perform(MockMvcRequestBuilders.request(HttpMethod.PATCH, "/newUser/access/employee")
+            .param("accessCode", "testCode")
+            .header("Authorization", "Bearer " + token))
+            .andExpect(status().is(204))
+        ;
+
+        // the employee registration is now stored, and the same token carries the new authority
+        when(accountDao.findUser(testingUserId)).thenReturn(testAccount("EMPLOYEE"));
+
+        mockMvc.perform(MockMvcRequestBuilders.request(HttpMethod.GET, "/employee/schedule")
+            .header("Authorization", "Bearer " + token))
+            .andExpect(status().is(200))
+        ;
+    }
+
+    @Test
+    void tamperedAccessTokenRequest() throws Exception {
+        final var token = accessTokens.issue(new UserAccount(testingUserId, testingUsername, null,
+                ZonedDateTime.now(), Set.of(new SimpleGrantedAuthority("USER"))));
+
+        // swap the payload for one naming another user, keeping the original signature
+        final var forged = accessTokens.issue(new UserAccount(testingUserId + 1, testingUsername, null,
+                ZonedDateTime.now(), Set.of(new SimpleGrantedAuthority("EMPLOYEE"))));
+        final var tampered = forged.substring(0, forged.indexOf('.')) + token.substring(token.indexOf('.'));
+
+        mockMvc.perform(MockMvcRequestBuilders.request(HttpMethod.GET, "/employee/schedule")
+            .header("Authorization", "Bearer " + tampered))
+            .andExpect(status().is(401))
+            .andExpect(jsonPath("$.error",
+                Matchers.is(BadCredentialsException.class.getSimpleName())))
+        ;
+    }
+
+    @Test
+    void accessTokenAuthorizesStreamedResponse() throws Exception {
+        final var token = accessTokens.issue(new UserAccount(testingUserId, testingUsername, null,
+                ZonedDateTime.now(), Set.of(new SimpleGrantedAuthority("USER"), new SimpleGrantedAuthority("EMPLOYEE"))));
+
+        final var started = mockMvc.perform(MockMvcRequestBuilders.request(HttpMethod.GET, "/employee/schedule/export")
+            .header("Authorization", "Bearer " + token))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        // the response is written during a later dispatch which carries no credentials of its own
+        mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().is(200))
+        ;
+    }
+
+    @Test
+    void basicCredentialsOnlyAcceptedAtLogin() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.request(HttpMethod.GET, "/employee/schedule")
+            .header("Authorization", badToken))
+            .andExpect(status().is(401))
+            .andExpect(jsonPath("$.error",
+                Matchers.is(InsufficientAuthenticationException.class.getSimpleName())))
+        ;
+    }
+
     @Test
     @WithUserDetails
     void accessDeniedRequest() throws Exception {
@@ -48,4 +221,21 @@ public class EndpointSecurityTest extends ServiceTest {
             .andExpect(status().is(403))
         ;
     }
-}
\ No newline at end of file
+
+    @Test
+    @WithClientAccount
+    void metricsRequireEmployeeAccount() throws Exception {
+        hit(HttpMethod.GET, "/actuator/metrics")
+            .andExpect(status().is(403))
+        ;
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void metricsAvailableToEmployees() throws Exception {
+        hit(HttpMethod.GET, "/actuator/metrics")
+            .andExpect(status().is(200))
+            .andExpect(jsonPath("$.names", Matchers.not(Matchers.empty())))
+        ;
+    }
+}
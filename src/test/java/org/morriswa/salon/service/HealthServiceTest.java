@@ -0,0 +1,85 @@
+package org.morriswa.salon.service;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.morriswa.salon.annotations.WithEmployeeAccount;
+import org.morriswa.salon.utility.HealthProbe;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpMethod;
+
+import static org.mockito.Mockito.doThrow;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class HealthServiceTest extends ServiceTest {
+
+    @Autowired private HealthProbe healthProbe;
+
+    @Test
+    void deepHealthReportsHealthyDependencies() throws Exception {
+        healthProbe.refresh();
+
+        hit(HttpMethod.GET, "/health/deep")
+            .andExpect(status().is(200))
+            .andExpect(jsonPath("$.status", Matchers.is("Healthy")))
+            .andExpect(jsonPath("$.dependencies").doesNotExist())
+        ;
+    }
+
+    @Test
+    void deepHealthReportsUnreachableDatabase() throws Exception {
+        doThrow(new DataAccessResourceFailureException("Connection refused")).when(healthDao).ping();
+        healthProbe.refresh();
+
+        hit(HttpMethod.GET, "/health/deep")
+            .andExpect(status().is(503))
+            .andExpect(jsonPath("$.status", Matchers.is("Unhealthy")))
+            .andExpect(jsonPath("$.dependencies").doesNotExist())
+        ;
+    }
+
+    @Test
+    void dependencyDetailsRequireAccount() throws Exception {
+        hit(HttpMethod.GET, "/actuator/dependencies")
+            .andExpect(status().is(401))
+        ;
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void dependencyDetailsReportHealthyDependencies() throws Exception {
+        healthProbe.refresh();
+
+        hit(HttpMethod.GET, "/actuator/dependencies")
+            .andExpect(status().is(200))
+            .andExpect(jsonPath("$.status", Matchers.is("Healthy")))
+            .andExpect(jsonPath("$.dependencies[*].name", Matchers.contains("database", "s3")))
+        ;
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void dependencyDetailsReportUnreachableDatabase() throws Exception {
+        doThrow(new DataAccessResourceFailureException("Connection refused")).when(healthDao).ping();
+        healthProbe.refresh();
+
+        hit(HttpMethod.GET, "/actuator/dependencies")
+            .andExpect(jsonPath("$.status", Matchers.is("Unhealthy")))
+            .andExpect(jsonPath("$.dependencies[0].status", Matchers.is("Unhealthy")))
+            .andExpect(jsonPath("$.dependencies[0].detail", Matchers.containsString("Connection refused")))
+        ;
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void dependencyDetailsReportUnreachableS3() throws Exception {
+        doThrow(new IllegalStateException("Unable to execute HTTP request")).when(amazonS3Client).checkAccess();
+        healthProbe.refresh();
+
+        hit(HttpMethod.GET, "/actuator/dependencies")
+            .andExpect(jsonPath("$.dependencies[1].name", Matchers.is("s3")))
+            .andExpect(jsonPath("$.dependencies[1].status", Matchers.is("Unhealthy")))
+        ;
+    }
+}
@@ -0,0 +1,93 @@
+package org.morriswa.salon.service;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.morriswa.salon.annotations.WithClientAccount;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.http.HttpMethod;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureObservability(tracing = false)
+public class MetricsEndpointTest extends ServiceTest {
+
+    private ResultActions scrape(String password) throws Exception {
+        final var credentials = Base64.getEncoder().encodeToString(
+                ("prometheus:" + password).getBytes(StandardCharsets.UTF_8));
+
+        return mockMvc.perform(MockMvcRequestBuilders.request(HttpMethod.GET, "/actuator/prometheus")
+            .header("Authorization", "Basic " + credentials));
+    }
+
+    @Test
+    void scrapeRequiresCredentials() throws Exception {
+        hit(HttpMethod.GET, "/actuator/prometheus")
+            .andExpect(status().is(401))
+        ;
+
+        scrape("wrong_password")
+            .andExpect(status().is(401))
+        ;
+    }
+
+    @Test
+    @WithClientAccount
+    void scrapeRejectsUserAccounts() throws Exception {
+        hit(HttpMethod.GET, "/actuator/prometheus")
+            .andExpect(status().is(403))
+        ;
+    }
+
+    @Test
+    @WithClientAccount
+    void serviceCallsAreTimed() throws Exception {
+        hit(HttpMethod.GET, "/client/schedule")
+            .andExpect(status().is(200));
+
+        scrape("scrape_password")
+            .andExpect(status().is(200))
+            .andExpect(content().string(Matchers.containsString(
+                "salon_service_calls_seconds_bucket{class=\"SchedulingServiceImpl\",exception=\"none\",method=\"retrieveScheduledAppointments\"")))
+        ;
+    }
+
+    @Test
+    @WithClientAccount
+    void failedServiceCallsAreCounted() throws Exception {
+        when(scheduleDao.retrieveScheduledAppointments(testingUserId))
+                .thenThrow(new IllegalStateException("database unavailable"));
+
+        hit(HttpMethod.GET, "/client/schedule")
+            .andExpect(status().is(500));
+
+        scrape("scrape_password")
+            .andExpect(status().is(200))
+            .andExpect(content().string(Matchers.containsString(
+                "salon_service_calls_seconds_count{class=\"SchedulingServiceImpl\",exception=\"IllegalStateException\",method=\"retrieveScheduledAppointments\"")))
+        ;
+    }
+
+    @Test
+    @WithClientAccount
+    void unexpectedExceptionsShareOneTag() throws Exception {
+        when(scheduleDao.retrieveScheduledAppointments(testingUserId))
+                .thenThrow(new UnsupportedOperationException("not supported"));
+
+        hit(HttpMethod.GET, "/client/schedule")
+            .andExpect(status().is(500));
+
+        scrape("scrape_password")
+            .andExpect(status().is(200))
+            .andExpect(content().string(Matchers.containsString(
+                "salon_service_calls_seconds_count{class=\"SchedulingServiceImpl\",exception=\"other\",method=\"retrieveScheduledAppointments\"")))
+            .andExpect(content().string(Matchers.not(Matchers.containsString("UnsupportedOperationException"))))
+        ;
+    }
+}
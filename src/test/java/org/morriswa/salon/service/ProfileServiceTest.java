@@ -1,18 +1,24 @@
 package org.morriswa.salon.service;
 
 import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.morriswa.salon.annotations.WithClientAccount;
 import org.morriswa.salon.annotations.WithEmployeeAccount;
+import org.morriswa.salon.enumerated.ImageUploadStatus;
 import org.morriswa.salon.model.ClientInfo;
 import org.morriswa.salon.model.EmployeeInfo;
+import org.morriswa.salon.model.ImageUploadJob;
 import org.morriswa.salon.validation.UserProfileValidator;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpMethod;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -20,6 +26,14 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @SuppressWarnings("null")
 public class ProfileServiceTest extends ServiceTest {
 
+    @Autowired private ProfileServiceImpl profileService;
+
+    @BeforeEach
+    void resetFeaturedEmployees() {
+        // featured list is cached between tests, employee 11 is featured in test config
+        profileService.invalidateFeaturedEmployee(11L);
+    }
+
     @Test
     @WithClientAccount
     void updatePronouns() throws Exception {
@@ -981,23 +995,20 @@ public class ProfileServiceTest extends ServiceTest {
         final Long featuredTestThree = 33L;
 
 
-        when(profileDao.getEmployeeInfo(featuredTestOne))
-                .thenReturn(new EmployeeInfo("First", "Last", "He/Him/His",
-                        "1234567890", "test1@email.com",
-                        "1234 Test Ave.", null, "City", "ST", "12345",
-                        "Email", null));
-
-        when(profileDao.getEmployeeInfo(featuredTestTwo))
-                .thenReturn(new EmployeeInfo("Second", "Last", "He/Him/His",
-                        "2234567890", "test2@email.com",
-                        "1234 Test Ave.", null, "City", "ST", "12345",
-                        "Email", null));
-
-        when(profileDao.getEmployeeInfo(featuredTestThree))
-                .thenReturn(new EmployeeInfo("Third", "Last", "He/Him/His",
-                        "3234567890", "test3@email.com",
-                        "1234 Test Ave.", null, "City", "ST", "12345",
-                        "Email", null));
+        when(profileDao.getEmployeeInfo(List.of(featuredTestOne, featuredTestTwo, featuredTestThree)))
+                .thenReturn(Map.of(
+                        featuredTestOne, new EmployeeInfo("First", "Last", "He/Him/His",
+                                "1234567890", "test1@email.com",
+                                "1234 Test Ave.", null, "City", "ST", "12345",
+                                "Email", null),
+                        featuredTestTwo, new EmployeeInfo("Second", "Last", "He/Him/His",
+                                "2234567890", "test2@email.com",
+                                "1234 Test Ave.", null, "City", "ST", "12345",
+                                "Email", null),
+                        featuredTestThree, new EmployeeInfo("Third", "Last", "He/Him/His",
+                                "3234567890", "test3@email.com",
+                                "1234 Test Ave.", null, "City", "ST", "12345",
+                                "Email", null)));
 
         hit(HttpMethod.GET, "/public/featuredEmployees")
                 .andExpect(status().is(200))
@@ -1005,6 +1016,67 @@ public class ProfileServiceTest extends ServiceTest {
                 .andExpect(jsonPath("$[1].employeeId", Matchers.is(featuredTestTwo.intValue())))
                 .andExpect(jsonPath("$[2].employeeId", Matchers.is(featuredTestThree.intValue())))
         ;
+
+        // all featured employees are loaded in one query
+        verify(profileDao).getEmployeeInfo(anyCollection());
+        verify(profileDao, never()).getEmployeeInfo(any(Long.class));
+    }
+
+    @Test
+    void getFeaturedEmployeeProfilesSkipsMissingEmployee() throws Exception {
+
+        when(profileDao.getEmployeeInfo(anyCollection()))
+                .thenReturn(Map.of(22L, new EmployeeInfo("Second", "Last", "He/Him/His",
+                        "2234567890", "test2@email.com",
+                        "1234 Test Ave.", null, "City", "ST", "12345",
+                        "Email", null)));
+
+        hit(HttpMethod.GET, "/public/featuredEmployees")
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.length()", Matchers.is(1)))
+                .andExpect(jsonPath("$[0].employeeId", Matchers.is(22)))
+        ;
+    }
+
+    @Test
+    void featuredEmployeesAreServedFromCache() throws Exception {
+
+        when(profileDao.getEmployeeInfo(anyCollection()))
+                .thenReturn(Map.of(11L, new EmployeeInfo("First", "Last", "He/Him/His",
+                        "1234567890", "test1@email.com",
+                        "1234 Test Ave.", null, "City", "ST", "12345",
+                        "Email", null)));
+
+        for (int i = 0; i < 3; i++)
+            hit(HttpMethod.GET, "/public/featuredEmployees")
+                    .andExpect(status().is(200))
+                    .andExpect(jsonPath("$[0].employeeId", Matchers.is(11)))
+            ;
+
+        // a single query, and no more after the list is cached
+        verify(profileDao, times(1)).getEmployeeInfo(anyCollection());
+        verify(amazonS3Client, times(1)).getSignedObjectUrls(any(), anyInt());
+    }
+
+    @Test
+    void featuredEmployeesAreRebuiltAfterProfileUpdate() throws Exception {
+
+        when(profileDao.getEmployeeInfo(anyCollection()))
+                .thenReturn(Map.of(11L, new EmployeeInfo("First", "Last", "He/Him/His",
+                        "1234567890", "test1@email.com",
+                        "1234 Test Ave.", null, "City", "ST", "12345",
+                        "Email", null)));
+
+        hit(HttpMethod.GET, "/public/featuredEmployees").andExpect(status().is(200));
+
+        // a non-featured employee's update should not affect the list
+        profileService.invalidateFeaturedEmployee(12L);
+        hit(HttpMethod.GET, "/public/featuredEmployees").andExpect(status().is(200));
+        verify(profileDao, times(1)).getEmployeeInfo(anyCollection());
+
+        profileService.invalidateFeaturedEmployee(22L);
+        hit(HttpMethod.GET, "/public/featuredEmployees").andExpect(status().is(200));
+        verify(profileDao, times(2)).getEmployeeInfo(anyCollection());
     }
 
     @Test
@@ -1081,4 +1153,43 @@ public class ProfileServiceTest extends ServiceTest {
 
         verify(profileDao, never()).updateEmployeeProfile(any(), any());
     }
+
+    @Test
+    @WithEmployeeAccount
+    void uploadProfileImageInBackground() throws Exception {
+
+        final var response = upload("/employee/profile/image", testImage())
+                .andExpect(status().is(202))
+                .andExpect(jsonPath("$.contentId", Matchers.is(String.format("employeeProfile/%d", testingUserId))))
+                .andReturn().getResponse().getContentAsString();
+
+        verify(amazonS3Client, timeout(5000)).uploadToS3(any(), eq("image/png"),
+                eq(String.format("employeeProfile/%d", testingUserId)));
+
+        final var jobId = mapper.readTree(response).get("jobId").asText();
+        final var contentId = String.format("employeeProfile/%d", testingUserId);
+
+        // statuses are recorded in the database so any instance can answer polls
+        verify(imageUploadDao).createJob(testingUserId,
+                new ImageUploadJob(jobId, contentId, ImageUploadStatus.Queued, null));
+        verify(imageUploadDao, timeout(5000)).updateJob(
+                new ImageUploadJob(jobId, contentId, ImageUploadStatus.Complete, null));
+
+        when(imageUploadDao.retrieveJob(eq(testingUserId), eq(jobId), any()))
+                .thenReturn(new ImageUploadJob(jobId, contentId, ImageUploadStatus.Complete, null));
+
+        hit(HttpMethod.GET, String.format("/employee/image/%s", jobId))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.jobId", Matchers.is(jobId)))
+                .andExpect(jsonPath("$.status", Matchers.is("Complete")))
+        ;
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void getMissingImageUpload() throws Exception {
+        hit(HttpMethod.GET, "/employee/image/not-a-job")
+                .andExpect(status().is(400))
+        ;
+    }
 }
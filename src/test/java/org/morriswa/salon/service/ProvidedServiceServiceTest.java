@@ -1,24 +1,46 @@
 package org.morriswa.salon.service;
 
 import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.morriswa.salon.annotations.WithEmployeeAccount;
 import org.morriswa.salon.exception.BadRequestException;
+import org.morriswa.salon.model.ProvidedService;
 import org.morriswa.salon.model.ProvidedServiceDetails;
+import org.morriswa.salon.model.ProvidedServiceSummary;
+import org.morriswa.salon.model.SearchSuggestion;
+import org.morriswa.salon.utility.ProvidedServiceProfileCache;
 import org.morriswa.salon.validation.ProvidedServiceValidator;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpMethod;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SuppressWarnings("null")
 public class ProvidedServiceServiceTest extends ServiceTest {
 
+    @Autowired private ProvidedServiceProfileCache profileCache;
+
+    @BeforeEach
+    void resetServiceProfiles() {
+        // service profiles are cached between tests
+        profileCache.invalidate(111L);
+    }
+
     @Test
     @WithEmployeeAccount
     void createProvidedService() throws Exception {
@@ -313,4 +335,277 @@ public class ProvidedServiceServiceTest extends ServiceTest {
         verify(providedServiceDao).retrieveServiceDetails(any());
         verify(providedServiceDao, never()).retrieveServiceContent(any());
     }
+
+    @Test
+    @WithEmployeeAccount
+    void uploadServiceImageInBackground() throws Exception {
+
+        final Long serviceId = 111L;
+
+        when(providedServiceDao.serviceBelongsTo(serviceId, testingUserId)).thenReturn(true);
+
+        upload(String.format("/employee/service/%d", serviceId), testImage())
+                .andExpect(status().is(202))
+                .andExpect(jsonPath("$.jobId", Matchers.notNullValue()))
+                .andExpect(jsonPath("$.contentId", Matchers.notNullValue()))
+        ;
+
+        // content is only recorded once the image has been uploaded
+        verify(amazonS3Client, timeout(5000)).uploadToS3(any(), eq("image/png"), any());
+        verify(providedServiceDao, timeout(5000)).addContentToProvidedService(eq(serviceId), any());
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void uploadServiceImageNotOwned() throws Exception {
+
+        final Long serviceId = 111L;
+
+        when(providedServiceDao.serviceBelongsTo(serviceId, testingUserId)).thenReturn(false);
+
+        upload(String.format("/employee/service/%d", serviceId), testImage())
+                .andExpect(status().is(400))
+        ;
+
+        verify(amazonS3Client, after(500).never()).uploadToS3(any(), any(), any());
+        verify(providedServiceDao, never()).addContentToProvidedService(any(), any());
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void deleteServiceRemovesAllContentAtOnce() throws Exception {
+
+        final Long serviceId = 111L;
+        final var contentIds = List.of("content-1", "content-2", "content-3");
+
+        when(providedServiceDao.retrieveServiceContent(serviceId)).thenReturn(contentIds);
+
+        hit(HttpMethod.DELETE, String.format("/employee/service/%d", serviceId))
+                .andExpect(status().is(204))
+        ;
+
+        verify(amazonS3Client).deleteObjects(contentIds);
+        verify(amazonS3Client, never()).deleteObject(any());
+        verify(providedServiceDao).deleteProvidedService(testingUserId, serviceId);
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void retrieveEmployeesServicesIsStreamed() throws Exception {
+        doAnswer(invocation -> {
+            final Consumer<ProvidedService> services = invocation.getArgument(1);
+            services.accept(new ProvidedService(1L, new BigDecimal("19.99"), 30, "First Service"));
+            services.accept(new ProvidedService(2L, new BigDecimal("29.99"), 60, "Second Service"));
+            return null;
+        }).when(providedServiceDao).streamEmployeesServices(eq(21L), any());
+
+        final var started = hit(HttpMethod.GET, "/shared/employee/21/services")
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.length()", Matchers.is(2)))
+                .andExpect(jsonPath("$[0].serviceId", Matchers.is(1)))
+                .andExpect(jsonPath("$[1].name", Matchers.is("Second Service")));
+
+        // services are written as they are read, never collected into a list
+        verify(providedServiceDao, never()).retrieveEmployeesServices(any());
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void searchAvailableServicesWithoutTextIsEmpty() throws Exception {
+        hit(HttpMethod.GET, "/shared/services?searchText=")
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.length()", Matchers.is(0)));
+
+        verify(serviceIndex, never()).search(any(), anyInt(), anyInt());
+        verify(providedServiceDao, never()).streamAvailableServices(any());
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void searchAvailableServicesIsServedFromIndex() throws Exception {
+        final var employee = new ProvidedServiceSummary.EmployeeName(21L, "Sandy", "Cutler");
+
+        when(serviceIndex.search("trim", 0, ProvidedServiceValidator.DEFAULT_SEARCH_LIMIT)).thenReturn(List.of(
+                new ProvidedServiceSummary(2L, new BigDecimal("29.99"), 60, "Trim", employee),
+                new ProvidedServiceSummary(1L, new BigDecimal("19.99"), 30, "Beard Trim", employee)));
+
+        hit(HttpMethod.GET, "/shared/services?searchText=trim")
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.length()", Matchers.is(2)))
+                .andExpect(jsonPath("$[0].name", Matchers.is("Trim")))
+                .andExpect(jsonPath("$[1].name", Matchers.is("Beard Trim")))
+                .andExpect(jsonPath("$[0].employee.firstName", Matchers.is("Sandy")))
+                // search results are public, so employee contact info is never included
+                .andExpect(jsonPath("$[0].employee.email").doesNotExist())
+                .andExpect(jsonPath("$[0].employee.phoneNumber").doesNotExist());
+
+        // searches never reach the database
+        verify(providedServiceDao, never()).streamAvailableServices(any());
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void searchAvailableServicesIsPaged() throws Exception {
+        hit(HttpMethod.GET, "/shared/services?searchText=trim&offset=10&limit=5")
+                .andExpect(status().is(200));
+
+        verify(serviceIndex).search("trim", 10, 5);
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void searchAvailableServicesRejectsBadPage() throws Exception {
+        hit(HttpMethod.GET, String.format("/shared/services?searchText=trim&offset=-1&limit=%d",
+                ProvidedServiceValidator.MAX_SEARCH_LIMIT + 1))
+                .andExpect(status().is(400))
+                .andExpect(jsonPath("$.additionalInfo.length()", Matchers.is(2)));
+
+        verify(serviceIndex, never()).search(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void changingServicesReindexesEmployee() throws Exception {
+        final Long serviceId = 111L;
+        when(providedServiceDao.retrieveServiceContent(serviceId)).thenReturn(List.of());
+
+        hit(HttpMethod.POST, "/employee/service", """
+        {
+            "cost": 39.99,
+            "length": 2,
+            "name": "Trim Touch Up"
+        }""").andExpect(status().is(204));
+
+        hit(HttpMethod.DELETE, String.format("/employee/service/%d", serviceId))
+                .andExpect(status().is(204));
+
+        verify(serviceIndex, times(2)).reindexEmployee(testingUserId);
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void suggestAvailableServicesReturnsIdsOnly() throws Exception {
+        when(serviceIndex.suggest("bea", ProvidedServiceValidator.DEFAULT_SUGGESTIONS)).thenReturn(List.of(
+                new SearchSuggestion("Beard Trim", 1L, 21L),
+                new SearchSuggestion("Bea Stylz", null, 22L)));
+
+        hit(HttpMethod.GET, "/shared/services/suggest?prefix=bea")
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.length()", Matchers.is(2)))
+                .andExpect(jsonPath("$[0].text", Matchers.is("Beard Trim")))
+                .andExpect(jsonPath("$[0].serviceId", Matchers.is(1)))
+                .andExpect(jsonPath("$[0].employeeId", Matchers.is(21)))
+                .andExpect(jsonPath("$[1].serviceId", Matchers.nullValue()));
+
+        verifyNoInteractions(providedServiceDao);
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void suggestAvailableServicesRejectsBadLimit() throws Exception {
+        hit(HttpMethod.GET, String.format("/shared/services/suggest?prefix=bea&limit=%d",
+                ProvidedServiceValidator.MAX_SUGGESTIONS + 1))
+                .andExpect(status().is(400))
+                .andExpect(jsonPath("$.additionalInfo[0].field", Matchers.is("limit")));
+
+        verify(serviceIndex, never()).suggest(any(), anyInt());
+    }
+
+    private void viewServiceProfile(Long serviceId) throws Exception {
+        hit(HttpMethod.GET, String.format("/shared/service/%d", serviceId))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.serviceId", Matchers.hasToString(serviceId.toString())));
+    }
+
+    private void mockServiceProfile(Long serviceId, Long employeeId) throws Exception {
+        when(providedServiceDao.retrieveServiceDetails(serviceId)).thenReturn(
+                new ProvidedServiceDetails(serviceId, new BigDecimal("12.34"), 30, "My Service",
+                        new ProvidedServiceDetails.EmployeeInfo(
+                                employeeId, "Test", "Employee", null, null, null, null)));
+        when(providedServiceDao.retrieveServiceContent(serviceId)).thenReturn(List.of("content-1"));
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void serviceProfileIsAssembledFromPrimary() throws Exception {
+        final Long serviceId = 111L;
+        mockServiceProfile(serviceId, 21L);
+
+        // read-only transactions may be routed to a lagging replica
+        final var readOnly = new AtomicBoolean();
+        when(providedServiceDao.retrieveServiceContent(serviceId)).thenAnswer(invocation -> {
+            readOnly.set(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+            return List.of("content-1");
+        });
+
+        viewServiceProfile(serviceId);
+
+        verify(providedServiceDao).retrieveServiceContent(serviceId);
+        assertFalse(readOnly.get());
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void serviceProfileIsServedFromMemory() throws Exception {
+        final Long serviceId = 111L;
+        mockServiceProfile(serviceId, 21L);
+
+        viewServiceProfile(serviceId);
+        viewServiceProfile(serviceId);
+
+        // the second view needs no database or S3 calls
+        verify(providedServiceDao, times(1)).retrieveServiceDetails(serviceId);
+        verify(providedServiceDao, times(1)).retrieveServiceContent(serviceId);
+        verify(amazonS3Client, times(1)).getSignedObjectUrls(any(), anyInt());
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void changingServiceDiscardsCachedProfile() throws Exception {
+        final Long serviceId = 111L;
+        mockServiceProfile(serviceId, testingUserId);
+        when(providedServiceDao.serviceBelongsTo(serviceId, testingUserId)).thenReturn(true);
+        when(providedServiceDao.contentBelongsToService("content-1", serviceId)).thenReturn(true);
+
+        viewServiceProfile(serviceId);
+
+        hit(HttpMethod.PATCH, String.format("/employee/service/%d", serviceId), """
+        {
+            "name": "My Renamed Service"
+        }""").andExpect(status().is(204));
+        viewServiceProfile(serviceId);
+
+        hit(HttpMethod.DELETE, String.format("/employee/service/%d/image/content-1", serviceId))
+                .andExpect(status().is(204));
+        viewServiceProfile(serviceId);
+
+        hit(HttpMethod.PATCH, "/employee/profile", """
+        {
+            "firstName": "Renamed"
+        }""").andExpect(status().is(204));
+        viewServiceProfile(serviceId);
+
+        verify(providedServiceDao, times(4)).retrieveServiceDetails(serviceId);
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void uploadedImageDiscardsCachedProfile() throws Exception {
+        final Long serviceId = 111L;
+        mockServiceProfile(serviceId, testingUserId);
+        when(providedServiceDao.serviceBelongsTo(serviceId, testingUserId)).thenReturn(true);
+
+        viewServiceProfile(serviceId);
+
+        upload(String.format("/employee/service/%d", serviceId), testImage())
+                .andExpect(status().is(202));
+        verify(providedServiceDao, timeout(5000)).addContentToProvidedService(eq(serviceId), any());
+
+        viewServiceProfile(serviceId);
+        verify(providedServiceDao, times(2)).retrieveServiceDetails(serviceId);
+    }
 }
@@ -0,0 +1,260 @@
+package org.morriswa.salon.service;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.morriswa.salon.annotations.WithClientAccount;
+import org.morriswa.salon.annotations.WithEmployeeAccount;
+import org.morriswa.salon.model.Appointment;
+import org.morriswa.salon.model.AppointmentCursor;
+import org.morriswa.salon.model.AppointmentSearchRequest;
+import org.morriswa.salon.model.ServiceOpening;
+import org.morriswa.salon.validation.ScheduleRequestValidator;
+import org.springframework.http.HttpMethod;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SuppressWarnings("null")
+public class SchedulingServiceTest extends ServiceTest {
+
+    @Test
+    @WithClientAccount
+    void searchAppointmentOpeningsReturnsPage() throws Exception {
+        final var tomorrow = LocalDate.now().plusDays(1);
+        final var request = String.format("""
+        {
+            "startDate": "%s",
+            "endDate": "%s",
+            "serviceName": "haircut",
+            "page": 1,
+            "pageSize": 2
+        }""", tomorrow, tomorrow.plusDays(1));
+
+        final var time = ZonedDateTime.now().plusDays(1);
+        // openings are only generated up to the end of the requested page, plus one
+        when(scheduleDao.retrieveAppointmentOpenings(eq(testingUserId), any(AppointmentSearchRequest.class),
+                eq(ScheduleRequestValidator.MAX_SEARCH_EMPLOYEES), eq(5)))
+                .thenReturn(List.of(
+                        new ServiceOpening(21L, 1L, "haircut", time, 30),
+                        new ServiceOpening(22L, 2L, "haircut", time, 30),
+                        new ServiceOpening(21L, 1L, "haircut", time.plusMinutes(15), 30)));
+
+        hit(HttpMethod.POST, "/client/schedule/search", request)
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.openings.length()", Matchers.is(1)))
+                .andExpect(jsonPath("$.openings[0].employeeId", Matchers.is(21)))
+                .andExpect(jsonPath("$.page", Matchers.is(1)))
+                .andExpect(jsonPath("$.lastPage", Matchers.is(true)));
+    }
+
+    @Test
+    @WithClientAccount
+    void exhaustedConnectionPoolReturnsServiceUnavailable() throws Exception {
+        when(scheduleDao.retrieveScheduledAppointments(testingUserId))
+                .thenThrow(new CannotGetJdbcConnectionException("Connection is not available, request timed out"));
+
+        hit(HttpMethod.GET, "/client/schedule")
+                .andExpect(status().is(503))
+                .andExpect(jsonPath("$.error", Matchers.is("ServiceUnavailableException")));
+    }
+
+    @Test
+    @WithClientAccount
+    void searchAppointmentOpeningsRequiresCriteria() throws Exception {
+        final var tomorrow = LocalDate.now().plusDays(1);
+        final var request = String.format("""
+        {
+            "startDate": "%s",
+            "endDate": "%s"
+        }""", tomorrow, tomorrow);
+
+        hit(HttpMethod.POST, "/client/schedule/search", request)
+                .andExpect(status().is(400))
+                .andExpect(jsonPath("$.additionalInfo[0].field", Matchers.is("employeeIds")));
+
+        verify(scheduleDao, never()).retrieveAppointmentOpenings(any(), any(AppointmentSearchRequest.class), anyInt(), anyInt());
+    }
+
+    @Test
+    @WithClientAccount
+    void searchAppointmentOpeningsRejectsLongRange() throws Exception {
+        final var tomorrow = LocalDate.now().plusDays(1);
+        final var request = String.format("""
+        {
+            "startDate": "%s",
+            "endDate": "%s",
+            "employeeIds": [21, 22]
+        }""", tomorrow, tomorrow.plusDays(30));
+
+        hit(HttpMethod.POST, "/client/schedule/search", request)
+                .andExpect(status().is(400))
+                .andExpect(jsonPath("$.additionalInfo[0].field", Matchers.is("endDate")));
+    }
+
+    private Appointment testAppointment(Long appointmentId, ZonedDateTime time) {
+        return new Appointment(appointmentId, time, 30, time, time.plusWeeks(2),
+                BigDecimal.TEN, BigDecimal.ZERO, "OKGOOD", 251L, "haircut", null,
+                new Appointment.UserInfo(15L, "First", "Last", "1234567890", "test@email.com", "Email"));
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void retrieveScheduleReturnsCursorForNextPage() throws Exception {
+        final var time = ZonedDateTime.now(ZoneOffset.UTC).plusDays(1).truncatedTo(ChronoUnit.MINUTES);
+
+        // one more appointment than requested means another page follows
+        when(scheduleDao.retrieveEmployeeSchedule(eq(testingUserId), any(), isNull(), eq(3)))
+                .thenReturn(List.of(
+                        testAppointment(1L, time),
+                        testAppointment(2L, time.plusMinutes(30)),
+                        testAppointment(3L, time.plusMinutes(60))));
+
+        final var expectedCursor = new AppointmentCursor(time.plusMinutes(30).toInstant(), 2L).encode();
+
+        hit(HttpMethod.GET, "/employee/schedule/page?pageSize=2")
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.appointments.length()", Matchers.is(2)))
+                .andExpect(jsonPath("$.appointments[1].appointmentId", Matchers.is(2)))
+                .andExpect(jsonPath("$.nextCursor", Matchers.is(expectedCursor)));
+
+        // the cursor is passed back to the database to continue after the last appointment
+        when(scheduleDao.retrieveEmployeeSchedule(eq(testingUserId), any(),
+                eq(AppointmentCursor.decode(expectedCursor)), eq(3)))
+                .thenReturn(List.of(testAppointment(3L, time.plusMinutes(60))));
+
+        hit(HttpMethod.GET, "/employee/schedule/page?pageSize=2&after=" + expectedCursor)
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.appointments.length()", Matchers.is(1)))
+                .andExpect(jsonPath("$.appointments[0].appointmentId", Matchers.is(3)))
+                .andExpect(jsonPath("$.nextCursor", Matchers.nullValue()));
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void retrieveScheduleRejectsBadPaging() throws Exception {
+        hit(HttpMethod.GET, "/employee/schedule/page?after=not-a-cursor")
+                .andExpect(status().is(400))
+                .andExpect(jsonPath("$.additionalInfo[0].field", Matchers.is("after")));
+
+        hit(HttpMethod.GET, "/employee/schedule/page?pageSize=100000")
+                .andExpect(status().is(400))
+                .andExpect(jsonPath("$.additionalInfo[0].field", Matchers.is("pageSize")));
+
+        verify(scheduleDao, never()).retrieveEmployeeSchedule(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void retrieveScheduleReturnsEveryAppointment() throws Exception {
+        final var time = ZonedDateTime.now(ZoneOffset.UTC).plusDays(1).truncatedTo(ChronoUnit.MINUTES);
+
+        doAnswer(invocation -> {
+            final Consumer<Appointment> consumer = invocation.getArgument(2);
+            consumer.accept(testAppointment(1L, time));
+            consumer.accept(testAppointment(2L, time.plusMinutes(30)));
+            return null;
+        }).when(scheduleDao).streamEmployeeSchedule(eq(testingUserId), any(), any());
+
+        hit(HttpMethod.GET, "/employee/schedule")
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.length()", Matchers.is(2)))
+                .andExpect(jsonPath("$[1].appointmentId", Matchers.is(2)));
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void retrieveScheduleRejectsLongTimeframe() throws Exception {
+        final var untilDate = LocalDate.now(ZoneOffset.UTC).plusDays(ScheduleRequestValidator.MAX_SCHEDULE_DAYS + 1);
+
+        hit(HttpMethod.GET, "/employee/schedule?untilDate=" + untilDate)
+                .andExpect(status().is(400))
+                .andExpect(jsonPath("$.additionalInfo[0].field", Matchers.is("untilDate")));
+
+        verify(scheduleDao, never()).streamEmployeeSchedule(any(), any(), any());
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void retrieveSchedulePageReachesFarAhead() throws Exception {
+        final var untilDate = LocalDate.now(ZoneOffset.UTC).plusYears(1);
+        final var time = ZonedDateTime.now(ZoneOffset.UTC).plusMonths(6).truncatedTo(ChronoUnit.MINUTES);
+
+        when(scheduleDao.retrieveEmployeeSchedule(eq(testingUserId), eq(untilDate), isNull(), anyInt()))
+                .thenReturn(List.of(testAppointment(1L, time)));
+
+        hit(HttpMethod.GET, "/employee/schedule/page?untilDate=" + untilDate)
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.appointments[0].appointmentId", Matchers.is(1)));
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void exportScheduleReachesFarAhead() throws Exception {
+        final var untilDate = LocalDate.now(ZoneOffset.UTC).plusYears(1);
+        final var time = ZonedDateTime.now(ZoneOffset.UTC).plusMonths(6).truncatedTo(ChronoUnit.MINUTES);
+
+        doAnswer(invocation -> {
+            final Consumer<Appointment> consumer = invocation.getArgument(2);
+            consumer.accept(testAppointment(1L, time));
+            return null;
+        }).when(scheduleDao).streamEmployeeSchedule(eq(testingUserId), eq(untilDate), any());
+
+        final var started = hit(HttpMethod.GET, "/employee/schedule/export?untilDate=" + untilDate)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        final var body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().is(200))
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(1L, mapper.readValue(body.trim(), Appointment.class).appointmentId());
+    }
+
+    @Test
+    @WithEmployeeAccount
+    void exportScheduleStreamsEveryAppointment() throws Exception {
+        final var time = ZonedDateTime.now(ZoneOffset.UTC).plusDays(1).truncatedTo(ChronoUnit.MINUTES);
+        final int appointments = 3 * ScheduleRequestValidator.MAX_SCHEDULE_PAGE_SIZE;
+
+        // more appointments than fit in any page are written in a single response
+        doAnswer(invocation -> {
+            final Consumer<Appointment> consumer = invocation.getArgument(2);
+            for (long id = 1; id <= appointments; id++) consumer.accept(testAppointment(id, time.plusMinutes(id)));
+            return null;
+        }).when(scheduleDao).streamEmployeeSchedule(eq(testingUserId), any(), any());
+
+        final var started = hit(HttpMethod.GET, "/employee/schedule/export")
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        final var body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().is(200))
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        final var lines = body.split("\n");
+        assertEquals(appointments, lines.length);
+        assertEquals(1L, mapper.readValue(lines[0], Appointment.class).appointmentId());
+        assertEquals((long) appointments, mapper.readValue(lines[appointments - 1], Appointment.class).appointmentId());
+
+        verify(scheduleDao, never()).retrieveEmployeeSchedule(any(), any(), any(), anyInt());
+    }
+}
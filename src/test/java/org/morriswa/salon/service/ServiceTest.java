@@ -3,10 +3,13 @@ package org.morriswa.salon.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.morriswa.salon.config.TestConfig;
 import org.morriswa.salon.dao.AccountDao;
+import org.morriswa.salon.dao.HealthDao;
+import org.morriswa.salon.dao.ImageUploadDao;
 import org.morriswa.salon.dao.ProfileDao;
 import org.morriswa.salon.dao.ProvidedServiceDao;
 import org.morriswa.salon.dao.ScheduleDao;
 import org.morriswa.salon.utility.AmazonS3Client;
+import org.morriswa.salon.utility.ProvidedServiceIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -14,11 +17,16 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.core.env.Environment;
 import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+
 
 /**
  * test configuration for controller and service unit tests
@@ -45,8 +53,14 @@ public class ServiceTest {
 
     @MockBean protected ScheduleDao scheduleDao;
 
+    @MockBean protected HealthDao healthDao;
+
+    @MockBean protected ImageUploadDao imageUploadDao;
+
     @MockBean protected AmazonS3Client amazonS3Client;
 
+    @MockBean protected ProvidedServiceIndex serviceIndex;
+
     @Value("${testing.bad-token}") protected String badToken;
 
     @Value("${testing.userId}") protected Long testingUserId;
@@ -59,6 +73,17 @@ public class ServiceTest {
         return mockMvc.perform(MockMvcRequestBuilders.request(method, endpoint));
     }
 
+    protected MockMultipartFile testImage() throws Exception {
+        final var image = new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB);
+        final var bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        return new MockMultipartFile("image", "image.png", "image/png", bytes.toByteArray());
+    }
+
+    protected ResultActions upload(String endpoint, MockMultipartFile file) throws Exception {
+        return mockMvc.perform(MockMvcRequestBuilders.multipart(endpoint).file(file));
+    }
+
     protected ResultActions hit(HttpMethod method, String endpoint, String body) throws Exception {
         return mockMvc.perform(MockMvcRequestBuilders.request(method, endpoint)
             .contentType("application/json")
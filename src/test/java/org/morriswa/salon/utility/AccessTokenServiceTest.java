@@ -0,0 +1,32 @@
+package org.morriswa.salon.utility;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AccessTokenServiceTest {
+
+    private static MockEnvironment environment(String tokenSecret) {
+        final var environment = new MockEnvironment()
+                .withProperty("salon.security.token-ttl", "30m")
+                .withProperty("salon.security.token-secret", tokenSecret)
+                .withProperty("salon.security.principal-cache-ttl", "60s")
+                .withProperty("salon.security.principal-cache-max-entries", "100");
+        environment.setConversionService(new ApplicationConversionService());
+        return environment;
+    }
+
+    @Test
+    public void blankSecretRefusedOutsideDevelopment() {
+        assertThrows(IllegalStateException.class, () -> new AccessTokenServiceImpl(environment(""), null));
+
+        final var development = environment("");
+        development.setActiveProfiles("dev");
+        assertDoesNotThrow(() -> new AccessTokenServiceImpl(development, null));
+
+        assertDoesNotThrow(() -> new AccessTokenServiceImpl(environment("shared-secret"), null));
+    }
+}
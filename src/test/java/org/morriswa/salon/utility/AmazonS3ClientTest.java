@@ -0,0 +1,129 @@
+package org.morriswa.salon.utility;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.regions.Regions;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.util.AssertionErrors.*;
+
+public class AmazonS3ClientTest {
+
+    private final MockEnvironment environment = new MockEnvironment(){{
+        // spring boot registers duration conversion for the application's environment
+        setConversionService(new ApplicationConversionService());
+        setProperty("aws.s3.bucket", "test-bucket");
+        setProperty("aws.s3.apppath", "test/");
+        setProperty("aws.s3.presign-cache-ttl", "60m");
+        setProperty("aws.s3.presign-cache-max-entries", "100");
+    }};
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+    @AfterEach
+    void shutdownExecutor() {
+        executor.shutdown();
+    }
+
+    private double presignCache(String result) {
+        return meters.get("salon.s3.presign-cache").tag("result", result).functionCounter().count();
+    }
+
+    @Test
+    void signedUrlsAreReused() {
+        // signing happens locally, so static credentials are enough
+        final AmazonS3 s3 = AmazonS3ClientBuilder.standard()
+                .withRegion(Regions.US_EAST_1)
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("test", "test")))
+                .build();
+        final var client = new AmazonS3ClientImpl(environment, meters, s3, executor);
+
+        final var first = client.getSignedObjectUrl("content-1", 30);
+        final var second = client.getSignedObjectUrl("content-1", 30);
+        final var other = client.getSignedObjectUrl("content-2", 30);
+
+        assertEquals("same content should reuse url", first, second);
+        assertNotEquals("different content should have different url", first, other);
+        assertEquals("one url should be served from cache", 1.0, presignCache("hit"));
+        assertEquals("two urls should be signed", 2.0, presignCache("miss"));
+    }
+
+    @Test
+    void differentExpirationIsSignedSeparately() throws Exception {
+        final AmazonS3 s3 = mock(AmazonS3.class);
+        when(s3.generatePresignedUrl(any(GeneratePresignedUrlRequest.class)))
+                .thenReturn(URI.create("https://test-bucket/1").toURL(), URI.create("https://test-bucket/2").toURL());
+        final var client = new AmazonS3ClientImpl(environment, meters, s3, executor);
+
+        client.getSignedObjectUrl("content", 30);
+        client.getSignedObjectUrl("content", 5);
+
+        verify(s3, times(2)).generatePresignedUrl(any(GeneratePresignedUrlRequest.class));
+    }
+
+    @Test
+    void deletedContentIsSignedAgain() throws Exception {
+        final AmazonS3 s3 = mock(AmazonS3.class);
+        when(s3.generatePresignedUrl(any(GeneratePresignedUrlRequest.class)))
+                .thenReturn(URI.create("https://test-bucket/1").toURL(), URI.create("https://test-bucket/2").toURL());
+        final var client = new AmazonS3ClientImpl(environment, meters, s3, executor);
+
+        client.getSignedObjectUrl("content", 30);
+        client.deleteObject("content");
+        client.getSignedObjectUrl("content", 30);
+
+        verify(s3, times(2)).generatePresignedUrl(any(GeneratePresignedUrlRequest.class));
+        assertEquals("no url should be served from cache", 0.0, presignCache("hit"));
+    }
+
+    @Test
+    void manyUrlsAreSignedInOrder() throws Exception {
+        final AmazonS3 s3 = mock(AmazonS3.class);
+        when(s3.generatePresignedUrl(any(GeneratePresignedUrlRequest.class))).thenAnswer(invocation -> {
+            final GeneratePresignedUrlRequest request = invocation.getArgument(0);
+            return URI.create("https://test-bucket/" + request.getKey()).toURL();
+        });
+        final var client = new AmazonS3ClientImpl(environment, meters, s3, executor);
+
+        final var paths = IntStream.range(0, 40).mapToObj(i -> "content-" + i).toList();
+        final var urls = client.getSignedObjectUrls(paths, 30);
+
+        assertEquals("every path should be signed in order", paths, List.copyOf(urls.keySet()));
+        for (var path : paths)
+            assertEquals("url should belong to path", URI.create("https://test-bucket/test/" + path).toURL(), urls.get(path));
+    }
+
+    @Test
+    void manyObjectsAreDeletedInBatches() {
+        final AmazonS3 s3 = mock(AmazonS3.class);
+        final var client = new AmazonS3ClientImpl(environment, meters, s3, executor);
+
+        client.deleteObjects(IntStream.range(0, 1500).mapToObj(i -> "content-" + i).toList());
+
+        final var requests = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(s3, times(2)).deleteObjects(requests.capture());
+        assertEquals("first request should be full", 1000, requests.getAllValues().get(0).getKeys().size());
+        assertEquals("second request should hold the rest", 500, requests.getAllValues().get(1).getKeys().size());
+        assertEquals("keys should include app path", "test/content-0",
+                requests.getAllValues().get(0).getKeys().get(0).getKey());
+    }
+}
@@ -0,0 +1,49 @@
+package org.morriswa.salon.utility;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.LocalDate;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertFalse;
+import static org.springframework.test.util.AssertionErrors.assertNull;
+
+public class AvailabilityCacheTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    private static AvailabilityCache cache() {
+        final var environment = new MockEnvironment()
+                .withProperty("salon.schedule.availability-ttl", "1h")
+                .withProperty("salon.schedule.availability-max-days", "100");
+        environment.setConversionService(new ApplicationConversionService());
+        return new AvailabilityCacheImpl(environment);
+    }
+
+    @Test
+    public void schedulesAreCachedAndClaimed() {
+        final var cache = cache();
+        final var schedule = new ScheduleBitmap(32);
+
+        cache.store(1L, DAY, schedule, cache.version());
+        assertEquals("stored schedule should be served from memory", schedule, cache.retrieve(1L, DAY));
+
+        cache.claim(1L, DAY, 4, 2);
+        assertFalse("claimed slots should no longer be open", cache.retrieve(1L, DAY).isOpen(4, 2));
+    }
+
+    @Test
+    public void scheduleClaimedWhileLoadingIsNotCached() {
+        final var cache = cache();
+
+        // ie a booking commits after the schedule was read from the database but before it was cached
+        final long loadedVersion = cache.version();
+        final var stale = new ScheduleBitmap(32);
+        cache.claim(1L, DAY, 4, 2);
+
+        cache.store(1L, DAY, stale, loadedVersion);
+        assertNull("schedule loaded across a booking should be reloaded", cache.retrieve(1L, DAY));
+    }
+}
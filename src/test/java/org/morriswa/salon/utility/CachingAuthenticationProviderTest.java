@@ -0,0 +1,76 @@
+package org.morriswa.salon.utility;
+
+import org.junit.jupiter.api.Test;
+import org.morriswa.salon.model.UserAccount;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.ZonedDateTime;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+
+public class CachingAuthenticationProviderTest {
+
+    private final UserAccount user = new UserAccount(1L, "test", "encoded", ZonedDateTime.now(),
+            Set.of(new SimpleGrantedAuthority("USER")));
+
+    private final PrincipalCache principalCache = new PrincipalCacheImpl(new MockEnvironment(){{
+        // spring boot registers duration conversion for the application's environment
+        setConversionService(new ApplicationConversionService());
+        setProperty("salon.security.principal-cache-ttl", "60s");
+        setProperty("salon.security.principal-cache-max-entries", "100");
+    }});
+
+    private final AuthenticationProvider delegate = mock(AuthenticationProvider.class);
+
+    private final CachingAuthenticationProvider provider =
+            new CachingAuthenticationProvider(delegate, principalCache);
+
+    @Test
+    void repeatedCredentialsAreVerifiedOnce() {
+        when(delegate.authenticate(any())).thenReturn(
+                UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities()));
+
+        for (int i = 0; i < 3; i++) {
+            final var result = provider.authenticate(
+                    UsernamePasswordAuthenticationToken.unauthenticated("test", "password"));
+            assertEquals("cached principal should be returned", user, result.getPrincipal());
+        }
+
+        verify(delegate, times(1)).authenticate(any());
+    }
+
+    @Test
+    void differentPasswordIsVerifiedAgain() {
+        when(delegate.authenticate(any()))
+                .thenReturn(UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities()))
+                .thenThrow(new BadCredentialsException("bad"));
+
+        provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("test", "password"));
+
+        assertThrows(BadCredentialsException.class, () -> provider.authenticate(
+                UsernamePasswordAuthenticationToken.unauthenticated("test", "wrong")));
+
+        verify(delegate, times(2)).authenticate(any());
+    }
+
+    @Test
+    void evictedUserIsVerifiedAgain() {
+        when(delegate.authenticate(any())).thenReturn(
+                UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities()));
+
+        provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("test", "password"));
+        principalCache.evict(user.getUserId());
+        provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("test", "password"));
+
+        verify(delegate, times(2)).authenticate(any());
+    }
+}
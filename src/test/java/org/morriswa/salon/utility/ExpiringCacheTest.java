@@ -0,0 +1,99 @@
+package org.morriswa.salon.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.util.AssertionErrors.*;
+
+public class ExpiringCacheTest {
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        final var cache = new ExpiringCache<String, Integer>(Duration.ofMinutes(1), 10);
+        final var loads = new AtomicInteger();
+        final var loading = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final var first = executor.submit(() -> cache.get("key", key -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+                return 42;
+            }));
+            loading.await();
+
+            final var waiting = IntStream.range(0, 3)
+                    .mapToObj(i -> executor.submit(() -> cache.get("key", key -> loads.incrementAndGet())))
+                    .toList();
+            release.countDown();
+
+            assertEquals("loading caller should get the loaded value", 42, first.get(5, TimeUnit.SECONDS));
+            for (Future<Integer> result : waiting)
+                assertEquals("waiting callers should get the loaded value", 42, result.get(5, TimeUnit.SECONDS));
+            assertEquals("value should only be loaded once", 1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        final var cache = new ExpiringCache<String, Integer>(Duration.ofMinutes(1), 10);
+
+        assertThrows(IllegalStateException.class, () -> cache.get("key", key -> {
+            throw new IllegalStateException("unavailable");
+        }));
+
+        assertEquals("next caller should load again", 7, cache.get("key", key -> 7));
+    }
+
+    @Test
+    void fullCacheDropsOldestEntries() {
+        final var cache = new ExpiringCache<Integer, Integer>(Duration.ofMinutes(1), 3);
+
+        for (int key = 0; key < 5; key++) cache.put(key, key);
+
+        assertEquals("cache should stay within its bound", 3, cache.size());
+        assertNull("oldest entry should be dropped", cache.get(0));
+        assertNull("second oldest entry should be dropped", cache.get(1));
+        assertEquals("newest entry should be kept", 4, cache.get(4));
+    }
+
+    @Test
+    void replacedEntriesDoNotCountTowardsBound() {
+        final var cache = new ExpiringCache<Integer, Integer>(Duration.ofMinutes(1), 3);
+
+        // replace one entry far more often than the cache can hold
+        for (int value = 0; value < 100; value++) cache.put(0, value);
+        cache.put(1, 1);
+        cache.put(2, 2);
+
+        assertEquals("latest value should be kept", 99, cache.get(0));
+        assertEquals("every key should fit", 3, cache.size());
+    }
+
+    @Test
+    void expiredEntriesAreNotServed() throws Exception {
+        final var cache = new ExpiringCache<String, Integer>(Duration.ofMinutes(1), 10);
+
+        cache.put("key", 1, Duration.ofMillis(1));
+        Thread.sleep(5);
+
+        assertNull("entry should expire after its own time to live", cache.get("key"));
+    }
+}
@@ -0,0 +1,175 @@
+package org.morriswa.salon.utility;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.morriswa.salon.config.ReplicaRoutingDataSource;
+import org.morriswa.salon.dao.HealthDao;
+import org.morriswa.salon.enumerated.HealthStatus;
+import org.morriswa.salon.model.DependencyHealth;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+
+@SuppressWarnings("unchecked")
+public class HealthProbeTest {
+
+    private MockEnvironment environment;
+    private HealthDao healthDao;
+    private AmazonS3Client s3;
+    private ObjectProvider<HikariDataSource> pools;
+    private ObjectProvider<ReplicaRoutingDataSource> replicas;
+
+    @BeforeEach
+    public void setup() {
+        environment = new MockEnvironment()
+                .withProperty("salon.health.probe-interval", "10s")
+                .withProperty("salon.health.stale-after", "60s")
+                .withProperty("salon.health.database.degraded-after", "50ms")
+                .withProperty("salon.health.database.unhealthy-after", "1s")
+                .withProperty("salon.health.s3.degraded-after", "500ms")
+                .withProperty("salon.health.s3.unhealthy-after", "3s")
+                .withProperty("salon.health.pool.degraded-at", "1.0")
+                .withProperty("salon.health.pool.unhealthy-at", "2.0");
+        environment.setConversionService(new ApplicationConversionService());
+
+        healthDao = mock(HealthDao.class);
+        s3 = mock(AmazonS3Client.class);
+        pools = mock(ObjectProvider.class);
+        when(pools.orderedStream()).thenAnswer(invocation -> Stream.empty());
+        replicas = mock(ObjectProvider.class);
+    }
+
+    private HealthProbe probe() {
+        // probes are only run when the test asks for them
+        return new HealthProbeImpl(environment, healthDao, s3, pools, replicas, mock(ScheduledExecutorService.class));
+    }
+
+    private static HikariDataSource pool(int active, int waiting, int size) {
+        final var stats = mock(HikariPoolMXBean.class);
+        when(stats.getActiveConnections()).thenReturn(active);
+        when(stats.getThreadsAwaitingConnection()).thenReturn(waiting);
+
+        final var pool = mock(HikariDataSource.class);
+        when(pool.getHikariPoolMXBean()).thenReturn(stats);
+        when(pool.getMaximumPoolSize()).thenReturn(size);
+        when(pool.getPoolName()).thenReturn("test-pool");
+        return pool;
+    }
+
+    private static DependencyHealth dependency(HealthProbe probe, String name) {
+        return probe.report().dependencies().stream()
+                .filter(dependency -> dependency.name().equals(name)).findFirst().orElseThrow();
+    }
+
+    @Test
+    public void unprobedServiceIsUnhealthy() {
+        assertEquals("nothing should be vouched for before probing",
+                HealthStatus.Unhealthy, probe().report().status());
+    }
+
+    @Test
+    public void responsiveDependenciesAreHealthy() {
+        final var probe = probe();
+        probe.refresh();
+
+        assertEquals("service should be healthy", HealthStatus.Healthy, probe.report().status());
+        assertEquals("database and s3 should be reported", 2, probe.report().dependencies().size());
+    }
+
+    @Test
+    public void slowDatabaseIsDegraded() {
+        doAnswer(invocation -> {
+            Thread.sleep(80);
+            return null;
+        }).when(healthDao).ping();
+
+        final var probe = probe();
+        probe.refresh();
+
+        assertEquals("service should be degraded", HealthStatus.Degraded, probe.report().status());
+        assertEquals("database should be degraded", HealthStatus.Degraded, dependency(probe, "database").status());
+        assertEquals("s3 should be unaffected", HealthStatus.Healthy, dependency(probe, "s3").status());
+    }
+
+    @Test
+    public void failingS3IsUnhealthy() throws Exception {
+        doThrow(new IllegalStateException("timed out")).when(s3).checkAccess();
+
+        final var probe = probe();
+        probe.refresh();
+
+        assertEquals("service should be unhealthy", HealthStatus.Unhealthy, probe.report().status());
+        assertEquals("failure should be described",
+                "IllegalStateException: timed out", dependency(probe, "s3").detail());
+    }
+
+    @Test
+    public void poolSaturationIsGraded() {
+        final var probe = probe();
+
+        when(pools.orderedStream()).thenAnswer(invocation -> Stream.of(pool(4, 0, 10)));
+        probe.refresh();
+        assertEquals("partly used pool should be healthy",
+                HealthStatus.Healthy, dependency(probe, "test-pool").status());
+
+        when(pools.orderedStream()).thenAnswer(invocation -> Stream.of(pool(10, 3, 10)));
+        probe.refresh();
+        assertEquals("full pool with a queue should be degraded",
+                HealthStatus.Degraded, dependency(probe, "test-pool").status());
+
+        when(pools.orderedStream()).thenAnswer(invocation -> Stream.of(pool(10, 10, 10)));
+        probe.refresh();
+        assertEquals("pool with a queue as long as itself should be unhealthy",
+                HealthStatus.Unhealthy, dependency(probe, "test-pool").status());
+    }
+
+    @Test
+    public void laggingReplicaIsDegraded() {
+        final var replica = mock(ReplicaRoutingDataSource.class);
+        when(replica.maxLag()).thenReturn(Duration.ofSeconds(2));
+        doAnswer(invocation -> {
+            invocation.<Consumer<ReplicaRoutingDataSource>>getArgument(0).accept(replica);
+            return null;
+        }).when(replicas).ifAvailable(any());
+
+        final var probe = probe();
+
+        when(replica.replicaLag()).thenReturn(Duration.ofMillis(300));
+        probe.refresh();
+        assertEquals("caught up replica should be healthy",
+                HealthStatus.Healthy, dependency(probe, "replica").status());
+
+        when(replica.replicaLag()).thenReturn(Duration.ofSeconds(5));
+        probe.refresh();
+        assertEquals("replica behind by more than max lag should be degraded",
+                HealthStatus.Degraded, dependency(probe, "replica").status());
+
+        when(replica.replicaLag()).thenReturn(null);
+        when(replica.replicaFailure()).thenReturn("replica lag could not be measured");
+        probe.refresh();
+        assertEquals("unreachable replica should only degrade the service, reads fall back to the primary",
+                HealthStatus.Degraded, probe.report().status());
+    }
+
+    @Test
+    public void staleResultsAreUnhealthy() throws Exception {
+        environment.setProperty("salon.health.stale-after", "10ms");
+
+        final var probe = probe();
+        probe.refresh();
+        Thread.sleep(20);
+
+        assertEquals("results from a stalled probe should not be trusted",
+                HealthStatus.Unhealthy, probe.report().status());
+    }
+}
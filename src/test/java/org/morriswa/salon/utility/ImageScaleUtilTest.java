@@ -0,0 +1,80 @@
+package org.morriswa.salon.utility;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+
+public class ImageScaleUtilTest {
+
+    private final ImageScaleUtil imageScale = new ImageScaleUtilImpl(new MockEnvironment(){{
+        // spring boot registers data size conversion for the application's environment
+        setConversionService(new ApplicationConversionService());
+        setProperty("salon.images.max-concurrent-jobs", "2");
+        setProperty("spring.servlet.multipart.max-file-size", "20MB");
+        setProperty("salon.images.max-pixels", "250000");
+    }});
+
+    private MockMultipartFile testImage(int width, int height) throws IOException {
+        final var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        final var graphics = image.createGraphics();
+        graphics.setColor(Color.MAGENTA);
+        graphics.fillRect(0, 0, width / 2, height / 2);
+        graphics.dispose();
+
+        final var bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        return new MockMultipartFile("image", "test.png", "image/png", bytes.toByteArray());
+    }
+
+    private BufferedImage readResult(Object scaled) throws IOException {
+        return ImageIO.read(StreamTools.outputStreamToInput((ByteArrayOutputStream) scaled));
+    }
+
+    @Test
+    void scaleImageByFactor() throws Exception {
+        final var scaled = readResult(imageScale.getScaledImage(testImage(400, 300), 0.8F));
+
+        assertEquals("width should be scaled", 320, scaled.getWidth());
+        assertEquals("height should be scaled", 240, scaled.getHeight());
+    }
+
+    @Test
+    void scaleImageToSubsampledSize() throws Exception {
+        final var scaled = readResult(imageScale.getScaledImage(testImage(400, 300), 40, 30));
+
+        assertEquals("width should match request", 40, scaled.getWidth());
+        assertEquals("height should match request", 30, scaled.getHeight());
+        assertEquals("colors should survive subsampling",
+                Color.MAGENTA.getRGB(), scaled.getRGB(5, 5));
+    }
+
+    @Test
+    void oversizedImageIsNotDecoded() throws Exception {
+        final var image = testImage(1000, 500);
+
+        final var ex = assertThrows(IIOException.class, () -> imageScale.getScaledImage(image, 0.8F));
+        assertEquals("image should be rejected for its size",
+                "Image of 1000x500 pixels is too large to scale", ex.getMessage());
+    }
+
+    @Test
+    void boundedStreamRejectsOversizedContent() {
+        final var stream = new ExposedByteArrayOutputStream(4, 8);
+        stream.write(new byte[8], 0, 8);
+
+        assertThrows(UncheckedIOException.class, () -> stream.write(1));
+        assertEquals("stream should keep content up to its limit", 8, stream.size());
+    }
+}
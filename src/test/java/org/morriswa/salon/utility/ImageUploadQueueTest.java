@@ -0,0 +1,42 @@
+package org.morriswa.salon.utility;
+
+import org.junit.jupiter.api.Test;
+import org.morriswa.salon.dao.ImageUploadDao;
+import org.morriswa.salon.exception.ServiceUnavailableException;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ImageUploadQueueTest {
+
+    private final MockEnvironment environment = new MockEnvironment(){{
+        // spring boot registers duration conversion for the application's environment
+        setConversionService(new ApplicationConversionService());
+        setProperty("salon.images.job-status-ttl", "1m");
+    }};
+
+    @Test
+    void fullQueueRejectsUpload() throws Exception {
+        final var s3 = mock(AmazonS3Client.class);
+        final var jobs = mock(ImageUploadDao.class);
+
+        final var queue = new ImageUploadQueueImpl(environment,
+                job -> { throw new RejectedExecutionException("queue is full"); },
+                mock(ImageScaleUtil.class), s3, jobs);
+
+        final var image = new MockMultipartFile("image", "image.png", "image/png", new byte[16]);
+        final Runnable onUploaded = mock(Runnable.class);
+
+        assertThrows(ServiceUnavailableException.class, () -> queue.submit(1L, image, "content", onUploaded));
+
+        verify(s3, never()).uploadToS3(any(), any(), any());
+        verify(onUploaded, never()).run();
+        verify(jobs).deleteJob(any());
+    }
+}
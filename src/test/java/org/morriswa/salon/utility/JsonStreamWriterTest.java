@@ -0,0 +1,75 @@
+package org.morriswa.salon.utility;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class JsonStreamWriterTest {
+
+    private final JsonStreamWriter json = new JsonStreamWriterImpl(new ObjectMapper());
+
+    @Test
+    public void writesRowsAsArray() throws Exception {
+        final var out = new ByteArrayOutputStream();
+
+        json.<Map<String, Integer>>array(rows -> {
+            rows.accept(Map.of("id", 1));
+            rows.accept(Map.of("id", 2));
+        }).writeTo(out);
+
+        assertEquals("[{\"id\":1},{\"id\":2}]", out.toString());
+    }
+
+    @Test
+    public void writesEmptyArray() throws Exception {
+        final var out = new ByteArrayOutputStream();
+
+        json.array(rows -> { }).writeTo(out);
+
+        assertEquals("[]", out.toString());
+    }
+
+    @Test
+    public void writesRowsAsLines() throws Exception {
+        final var out = new ByteArrayOutputStream();
+
+        json.<List<Integer>>lines(rows -> {
+            rows.accept(List.of(1, 2));
+            rows.accept(List.of(3));
+        }).writeTo(out);
+
+        assertEquals("[1,2]\n[3]\n", out.toString());
+    }
+
+    @Test
+    public void stopsReadingRowsOnceClientLeaves() {
+        final var closed = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        final int[] produced = {0};
+        final var body = json.<Integer>lines(rows -> {
+            for (int row = 0; row < 100_000; row++) {
+                produced[0]++;
+                rows.accept(row);
+            }
+        });
+
+        final var exception = assertThrows(IOException.class, () -> body.writeTo(closed));
+
+        assertEquals("Broken pipe", exception.getMessage());
+        // rows are buffered by the generator, so the failure surfaces once its buffer is flushed
+        assertEquals(true, produced[0] < 100_000);
+    }
+}
@@ -0,0 +1,69 @@
+package org.morriswa.salon.utility;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.morriswa.salon.model.ProvidedService;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+
+public class ProvidedServiceCatalogTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private static ProvidedServiceCatalog catalog() {
+        final var environment = new MockEnvironment()
+                .withProperty("salon.service-catalog.ttl", "1h")
+                .withProperty("salon.service-catalog.max-entries", "100")
+                .withProperty("mysql.replica.max-lag", "1h");
+        environment.setConversionService(new ApplicationConversionService());
+        return new ProvidedServiceCatalogImpl(environment);
+    }
+
+    private ProvidedService load(Long serviceId) {
+        loads.incrementAndGet();
+        return new ProvidedService(serviceId, new BigDecimal("12.34"), 30, "My Service");
+    }
+
+    @AfterEach
+    public void leaveReadOnly() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    public void servicesAreCachedUntilEvicted() throws Exception {
+        final var catalog = catalog();
+
+        catalog.retrieve(1L, this::load);
+        catalog.retrieve(1L, this::load);
+        assertEquals("second retrieval should be served from memory", 1, loads.get());
+
+        catalog.evict(1L);
+        catalog.retrieve(1L, this::load);
+        catalog.retrieve(1L, this::load);
+        assertEquals("evicted service should be read again, then cached", 2, loads.get());
+    }
+
+    @Test
+    public void recentlyChangedServicesReadFromReplicaAreNotCached() throws Exception {
+        final var catalog = catalog();
+        catalog.evict(1L);
+
+        // within max-lag of a change, a read-only transaction may see the service from before it
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        catalog.retrieve(1L, this::load);
+        catalog.retrieve(1L, this::load);
+        assertEquals("possibly stale reads should not be cached", 2, loads.get());
+
+        // reads from the primary are always current
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        catalog.retrieve(1L, this::load);
+        catalog.retrieve(1L, this::load);
+        assertEquals("reads from the primary should be cached", 3, loads.get());
+    }
+}
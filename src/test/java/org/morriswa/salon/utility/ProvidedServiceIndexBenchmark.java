@@ -0,0 +1,94 @@
+package org.morriswa.salon.utility;
+
+import org.morriswa.salon.dao.ProvidedServiceDao;
+import org.morriswa.salon.model.ProvidedServiceSummary;
+import org.morriswa.salon.model.SearchSuggestion;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * measures suggestion and search latency over a salon far larger than any real one,
+ * suggestions should stay well under a millisecond.
+ * Run with mvn -P benchmark test-compile exec:exec
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProvidedServiceIndexBenchmark {
+
+    private static final String[] SERVICE_WORDS = {
+            "Haircut", "Trim", "Color", "Highlights", "Balayage", "Perm", "Blowout", "Beard", "Shave", "Wax",
+            "Eyebrow", "Lash", "Manicure", "Pedicure", "Facial", "Massage", "Braids", "Extensions", "Updo", "Toner"
+    };
+    private static final String[] FIRST_NAMES = {
+            "Sandy", "Jo", "Alex", "Morgan", "Riley", "Casey", "Jordan", "Taylor", "Jamie", "Avery"
+    };
+    private static final String[] LAST_NAMES = {
+            "Cutler", "Trimble", "Barber", "Shearer", "Combs", "Curl", "Stylz", "Fade", "Locke", "Mane"
+    };
+
+    @Param({"1000", "50000"})
+    public int serviceCount;
+
+    private ProvidedServiceIndex index;
+    private String[] prefixes;
+    private int next;
+
+    @Setup
+    public void buildIndex() {
+        final var random = new Random(447);
+        final var services = new ProvidedServiceSummary[serviceCount];
+        for (int i = 0; i < serviceCount; i++) {
+            final long employeeId = i / 20;
+            services[i] = new ProvidedServiceSummary((long) i, new BigDecimal("19.99"), 2,
+                    SERVICE_WORDS[random.nextInt(SERVICE_WORDS.length)] + " "
+                            + SERVICE_WORDS[random.nextInt(SERVICE_WORDS.length)] + " " + i,
+                    new ProvidedServiceSummary.EmployeeName(employeeId,
+                            FIRST_NAMES[(int) (employeeId % FIRST_NAMES.length)],
+                            LAST_NAMES[(int) (employeeId / FIRST_NAMES.length % LAST_NAMES.length)] + employeeId));
+        }
+
+        final var providedServiceDao = mock(ProvidedServiceDao.class);
+        doAnswer(invocation -> {
+            final Consumer<ProvidedServiceSummary> consumer = invocation.getArgument(0);
+            for (var service : services) consumer.accept(service);
+            return null;
+        }).when(providedServiceDao).streamAvailableServices(any());
+
+        final var environment = new MockEnvironment().withProperty("salon.search.rebuild-after", "1h");
+        environment.setConversionService(new ApplicationConversionService());
+        index = new ProvidedServiceIndexImpl(environment, providedServiceDao, Runnable::run);
+
+        // keystrokes of a client typing, from a single letter to most of a name
+        prefixes = new String[] { "h", "ha", "hair", "haircut t", "b", "bea", "beard sh", "sa", "sandy", "cut", "z" };
+
+        // build the index and its suggestions before measuring
+        index.suggest("warm up", 5);
+    }
+
+    @Benchmark
+    public List<SearchSuggestion> suggest() {
+        next = (next + 1) % prefixes.length;
+        return index.suggest(prefixes[next], 5);
+    }
+
+    @Benchmark
+    public List<ProvidedServiceSummary> search() {
+        next = (next + 1) % prefixes.length;
+        return index.search(prefixes[next], 0, 25);
+    }
+}
@@ -0,0 +1,189 @@
+package org.morriswa.salon.utility;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.morriswa.salon.dao.ProvidedServiceDao;
+import org.morriswa.salon.model.ProvidedService;
+import org.morriswa.salon.model.ProvidedServiceSummary;
+import org.morriswa.salon.model.SearchSuggestion;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+
+public class ProvidedServiceIndexTest {
+
+    private static final ProvidedServiceSummary.EmployeeName SANDY =
+            new ProvidedServiceSummary.EmployeeName(21L, "Sandy", "Cutler");
+    private static final ProvidedServiceSummary.EmployeeName TRIMBLE =
+            new ProvidedServiceSummary.EmployeeName(22L, "Jo", "Trimble");
+
+    private ProvidedServiceDao providedServiceDao;
+    private final List<ProvidedServiceSummary> database = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        database.clear();
+        database.add(service(1L, "Beard Trim", SANDY));
+        database.add(service(2L, "Trim", SANDY));
+        database.add(service(3L, "Haircut and Color", SANDY));
+        database.add(service(4L, "Eyebrow Wax", TRIMBLE));
+
+        providedServiceDao = mock(ProvidedServiceDao.class);
+        doAnswer(invocation -> {
+            final Consumer<ProvidedServiceSummary> services = invocation.getArgument(0);
+            database.forEach(services);
+            return null;
+        }).when(providedServiceDao).streamAvailableServices(any());
+        when(providedServiceDao.retrieveAvailableServices(any())).thenAnswer(invocation -> database.stream()
+                .filter(service -> service.getEmployee().employeeId().equals(invocation.getArgument(0)))
+                .toList());
+    }
+
+    private static ProvidedServiceSummary service(Long id, String name, ProvidedServiceSummary.EmployeeName employee) {
+        return new ProvidedServiceSummary(id, new BigDecimal("19.99"), 30, name, employee);
+    }
+
+    private ProvidedServiceIndex index(String rebuildAfter) {
+        final var environment = new MockEnvironment().withProperty("salon.search.rebuild-after", rebuildAfter);
+        environment.setConversionService(new ApplicationConversionService());
+        // rebuilds run on the calling thread
+        return new ProvidedServiceIndexImpl(environment, providedServiceDao, Runnable::run);
+    }
+
+    private static List<ProvidedServiceSummary> search(ProvidedServiceIndex index, String searchText) {
+        return index.search(searchText, 0, 100);
+    }
+
+    private static List<Long> ids(List<ProvidedServiceSummary> services) {
+        return services.stream().map(ProvidedService::getServiceId).toList();
+    }
+
+    @Test
+    public void searchMatchesWholeWordsPrefixesAndInfixes() {
+        final var index = index("5m");
+
+        assertEquals("whole words should match", List.of(3L), ids(search(index, "color")));
+        assertEquals("prefixes should match", List.of(3L), ids(search(index, "hair")));
+        assertEquals("word infixes should match", List.of(3L), ids(search(index, "air")));
+        assertEquals("searching should ignore case and punctuation", List.of(4L), ids(search(index, "EYEBROW!")));
+        assertEquals("short infixes should not match", List.of(), ids(search(index, "ut")));
+        assertEquals("unknown words should not match", List.of(), ids(search(index, "perm")));
+        assertEquals("blank searches should not match", List.of(), ids(search(index, "  ")));
+    }
+
+    @Test
+    public void searchRanksBestMatchesFirst() {
+        final var index = index("5m");
+
+        // service names outrank employee names, and matches in shorter names outrank matches in longer ones
+        assertEquals("services named trim should come before services by Trimble",
+                List.of(2L, 1L, 4L), ids(search(index, "trim")));
+        assertEquals("services matching more words should come first",
+                List.of(1L, 3L, 2L, 4L), ids(search(index, "beard trim color")));
+        assertEquals("employee names should be searchable",
+                List.of(2L, 1L, 3L), ids(search(index, "sandy")));
+        // color matches one service while trim matches three, so color is the more telling word
+        assertEquals("rarer words should be worth more",
+                List.of(3L, 2L, 1L, 4L), ids(search(index, "trim color")));
+    }
+
+    @Test
+    public void searchIsPaged() {
+        final var index = index("5m");
+
+        assertEquals("first page should hold the best matches",
+                List.of(1L, 3L), ids(index.search("beard trim color", 0, 2)));
+        assertEquals("second page should continue where the first ended",
+                List.of(2L, 4L), ids(index.search("beard trim color", 2, 2)));
+        assertEquals("pages past the last match should be empty",
+                List.of(), ids(index.search("beard trim color", 4, 2)));
+    }
+
+    @Test
+    public void indexIsOnlyBuiltOnce() {
+        final var index = index("5m");
+
+        search(index, "trim");
+        search(index, "color");
+
+        verify(providedServiceDao, times(1)).streamAvailableServices(any());
+    }
+
+    @Test
+    public void reindexedEmployeesAreSearchableImmediately() {
+        final var index = index("5m");
+        assertEquals("service should be found before it is renamed", List.of(3L), ids(search(index, "color")));
+
+        database.removeIf(service -> service.getServiceId().equals(3L));
+        database.add(service(3L, "Haircut and Perm", SANDY));
+        database.removeIf(service -> service.getServiceId().equals(2L));
+        index.reindexEmployee(21L);
+
+        assertEquals("old names should no longer match", List.of(), ids(search(index, "color")));
+        assertEquals("new names should match", List.of(3L), ids(search(index, "perm")));
+        assertEquals("removed services should no longer match", List.of(1L, 4L), ids(search(index, "trim")));
+        assertEquals("other employees should be untouched", List.of(4L), ids(search(index, "wax")));
+        verify(providedServiceDao, times(1)).streamAvailableServices(any());
+    }
+
+    @Test
+    public void staleIndexIsRebuilt() {
+        final var index = index("0s");
+        assertEquals("service should be found", List.of(4L), ids(search(index, "wax")));
+
+        // ie an employee changed their services through another instance
+        database.removeIf(service -> service.getServiceId().equals(4L));
+
+        // the stale index is still served while it is rebuilt
+        search(index, "wax");
+        assertEquals("rebuilt index should no longer contain the service", List.of(), ids(search(index, "wax")));
+    }
+
+    private static List<String> texts(List<SearchSuggestion> suggestions) {
+        return suggestions.stream().map(SearchSuggestion::text).toList();
+    }
+
+    @Test
+    public void suggestCompletesServiceAndEmployeeNames() {
+        final var index = index("5m");
+
+        assertEquals("shorter names should be suggested first",
+                List.of("Trim", "Beard Trim", "Jo Trimble"), texts(index.suggest("tr", 10)));
+        assertEquals("names should be completed from any of their words",
+                List.of("Haircut and Color"), texts(index.suggest("col", 10)));
+        assertEquals("multiple words should complete the rest of a name",
+                List.of("Haircut and Color"), texts(index.suggest("HAIRCUT  an", 10)));
+        assertEquals("suggestions should be limited",
+                List.of("Trim", "Beard Trim"), texts(index.suggest("tr", 2)));
+        assertEquals("names should not be suggested from the middle of a word",
+                List.of(), texts(index.suggest("rim", 10)));
+        assertEquals("blank prefixes should suggest nothing", List.of(), index.suggest(" ", 10));
+
+        assertEquals("services should be suggested with their ids",
+                new SearchSuggestion("Trim", 2L, 21L), index.suggest("trim", 1).get(0));
+        assertEquals("employees should be suggested once with only their id",
+                List.of(new SearchSuggestion("Sandy Cutler", null, 21L)), index.suggest("cutler", 10));
+    }
+
+    @Test
+    public void suggestionsFollowReindexedEmployees() {
+        final var index = index("5m");
+        assertEquals("service should be suggested before it is renamed",
+                List.of("Haircut and Color"), texts(index.suggest("haircut", 10)));
+
+        database.removeIf(service -> service.getServiceId().equals(3L));
+        database.add(service(3L, "Haircut and Perm", SANDY));
+        index.reindexEmployee(21L);
+
+        assertEquals("renamed service should be suggested by its new name",
+                List.of("Haircut and Perm"), texts(index.suggest("haircut", 10)));
+    }
+}
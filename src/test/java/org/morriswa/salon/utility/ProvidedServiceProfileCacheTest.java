@@ -0,0 +1,89 @@
+package org.morriswa.salon.utility;
+
+import org.junit.jupiter.api.Test;
+import org.morriswa.salon.exception.BadRequestException;
+import org.morriswa.salon.model.ProvidedServiceDetails;
+import org.morriswa.salon.model.ProvidedServiceProfile;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+
+public class ProvidedServiceProfileCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private static ProvidedServiceProfileCache cache() {
+        final var environment = new MockEnvironment()
+                .withProperty("salon.service-cache.ttl", "1h")
+                .withProperty("salon.service-cache.max-entries", "100");
+        environment.setConversionService(new ApplicationConversionService());
+        return new ProvidedServiceProfileCacheImpl(environment);
+    }
+
+    private ProvidedServiceProfile load(Long serviceId, Long employeeId) {
+        loads.incrementAndGet();
+        return new ProvidedServiceProfile(new ProvidedServiceDetails(serviceId, new BigDecimal("12.34"), 30,
+                "My Service", new ProvidedServiceDetails.EmployeeInfo(
+                        employeeId, "Test", "Employee", null, null, null, null)), List.of());
+    }
+
+    @Test
+    public void profilesAreCachedUntilInvalidated() throws Exception {
+        final var cache = cache();
+
+        cache.get(1L, serviceId -> load(serviceId, 21L));
+        cache.get(1L, serviceId -> load(serviceId, 21L));
+        assertEquals("second view should be served from memory", 1, loads.get());
+
+        cache.invalidate(1L);
+        cache.get(1L, serviceId -> load(serviceId, 21L));
+        assertEquals("invalidated profile should be reassembled", 2, loads.get());
+    }
+
+    @Test
+    public void employeeChangesInvalidateTheirServices() throws Exception {
+        final var cache = cache();
+        cache.get(1L, serviceId -> load(serviceId, 21L));
+        cache.get(2L, serviceId -> load(serviceId, 21L));
+        cache.get(3L, serviceId -> load(serviceId, 22L));
+
+        cache.invalidateEmployee(21L);
+
+        cache.get(1L, serviceId -> load(serviceId, 21L));
+        cache.get(2L, serviceId -> load(serviceId, 21L));
+        cache.get(3L, serviceId -> load(serviceId, 22L));
+        assertEquals("only the employee's services should be reassembled", 5, loads.get());
+    }
+
+    @Test
+    public void profileChangedWhileLoadingIsNotCached() throws Exception {
+        final var cache = cache();
+
+        // ie the service is renamed after its details were read but before its profile was cached
+        cache.get(1L, serviceId -> {
+            final var stale = load(serviceId, 21L);
+            cache.invalidate(serviceId);
+            return stale;
+        });
+
+        cache.get(1L, serviceId -> load(serviceId, 21L));
+        assertEquals("profile loaded across a change should be reassembled", 2, loads.get());
+    }
+
+    @Test
+    public void failuresAreNotCached() throws Exception {
+        final var cache = cache();
+
+        assertThrows(BadRequestException.class,
+                () -> cache.get(1L, serviceId -> { throw new BadRequestException("No service!"); }));
+
+        cache.get(1L, serviceId -> load(serviceId, 21L));
+        assertEquals("service should be loaded once it exists", 1, loads.get());
+    }
+}
@@ -0,0 +1,91 @@
+package org.morriswa.salon.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+
+public class RefreshAheadValueTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private RefreshAheadValue<Integer> value(Duration refreshAfter, Duration expireAfter) {
+        // run background refreshes immediately so results are predictable
+        return new RefreshAheadValue<>(loads::incrementAndGet, Runnable::run, refreshAfter, expireAfter);
+    }
+
+    @Test
+    void freshValueIsReused() throws Exception {
+        final var cached = value(Duration.ofHours(1), Duration.ofHours(2));
+
+        assertEquals("first read should build value", 1, cached.get());
+        assertEquals("second read should reuse value", 1, cached.get());
+        assertEquals("value should be built once", 1, loads.get());
+    }
+
+    @Test
+    void staleValueIsServedWhileRefreshing() throws Exception {
+        final var cached = value(Duration.ZERO, Duration.ofHours(1));
+
+        cached.get();
+
+        assertEquals("stale value should be served", 1, cached.get());
+        assertEquals("value should be rebuilt in background", 2, loads.get());
+        assertEquals("refreshed value should be served next", 2, cached.get());
+    }
+
+    @Test
+    void expiredValueIsRebuiltBeforeServing() throws Exception {
+        final var cached = value(Duration.ZERO, Duration.ZERO);
+
+        cached.get();
+
+        assertEquals("expired value should not be served", 2, cached.get());
+    }
+
+    @Test
+    void invalidatedValueIsRebuilt() throws Exception {
+        final var cached = value(Duration.ofHours(1), Duration.ofHours(2));
+
+        cached.get();
+        cached.invalidate();
+
+        assertEquals("invalidated value should be rebuilt", 2, cached.get());
+    }
+
+    @Test
+    void concurrentReadersShareOneRebuild() throws Exception {
+        final var building = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+        final var cached = new RefreshAheadValue<>(() -> {
+            building.countDown();
+            release.await();
+            return loads.incrementAndGet();
+        }, Runnable::run, Duration.ofHours(1), Duration.ofHours(2));
+
+        final var executor = Executors.newFixedThreadPool(4);
+        try {
+            final var first = executor.submit(cached::get);
+            building.await();
+
+            final var waiting = IntStream.range(0, 3)
+                    .mapToObj(i -> executor.submit(cached::get))
+                    .toList();
+            release.countDown();
+
+            assertEquals("building reader should get the value", 1, first.get(5, TimeUnit.SECONDS));
+            for (Future<Integer> read : waiting)
+                assertEquals("waiting readers should get the same value", 1, read.get(5, TimeUnit.SECONDS));
+            assertEquals("value should be built once", 1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
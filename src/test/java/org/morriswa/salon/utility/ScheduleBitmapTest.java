@@ -0,0 +1,67 @@
+package org.morriswa.salon.utility;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.springframework.test.util.AssertionErrors.*;
+
+public class ScheduleBitmapTest {
+
+    @Test
+    void emptyScheduleIsAllOpen() {
+        final var schedule = new ScheduleBitmap(8);
+
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5, 6}, ScheduleBitmap.findOpenings(2, 0, schedule),
+                "every slot that fits a 2 slot appointment should be open");
+    }
+
+    @Test
+    void claimedSlotsAreSkipped() {
+        final var schedule = new ScheduleBitmap(8);
+        schedule.claim(3, 2);
+
+        assertFalse("claimed slot should not be open", schedule.isOpen(3, 1));
+        assertTrue("slot before claim should be open", schedule.isOpen(2, 1));
+        assertArrayEquals(new int[]{0, 1, 5, 6}, ScheduleBitmap.findOpenings(2, 0, schedule),
+                "appointments should not overlap claimed slots");
+    }
+
+    @Test
+    void releasedSlotsAreOpen() {
+        final var schedule = new ScheduleBitmap(4);
+        schedule.claim(0, 4);
+        schedule.release(1, 2);
+
+        assertArrayEquals(new int[]{1}, ScheduleBitmap.findOpenings(2, 0, schedule),
+                "only the released range should be open");
+    }
+
+    @Test
+    void openingsRespectFirstSlot() {
+        final var schedule = new ScheduleBitmap(6);
+
+        assertArrayEquals(new int[]{3, 4, 5}, ScheduleBitmap.findOpenings(1, 3, schedule),
+                "openings before first slot should be skipped");
+    }
+
+    @Test
+    void openingsMustBeFreeInEverySchedule() {
+        final var employee = new ScheduleBitmap(6);
+        final var client = new ScheduleBitmap(6);
+        employee.claim(0, 2);
+        client.claim(4, 1);
+
+        assertArrayEquals(new int[]{2, 3, 5}, ScheduleBitmap.findOpenings(1, 0, employee, client),
+                "openings should be free for employee and client");
+    }
+
+    @Test
+    void openingsSpanMultipleWords() {
+        final var schedule = new ScheduleBitmap(96);
+        schedule.claim(0, 60);
+        schedule.claim(70, 26);
+
+        assertArrayEquals(new int[]{60, 61, 62, 63, 64, 65, 66}, ScheduleBitmap.findOpenings(4, 0, schedule),
+                "openings crossing a word boundary should be found");
+    }
+}
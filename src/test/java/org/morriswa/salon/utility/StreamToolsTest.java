@@ -4,8 +4,10 @@ import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
 
 import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
 
 public class StreamToolsTest {
 
@@ -26,4 +28,39 @@ public class StreamToolsTest {
         assertEquals("output bytes == input bytes", testBytes, inputStreamBytes);
         assertEquals("output string == input string", testStr, inputStreamStr);
     }
+
+    @Test
+    void testExposedOutputToInput() throws Exception {
+
+        final String testStr = "Hello Buffer World!";
+        final byte[] testBytes = testStr.getBytes();
+
+        final ByteArrayOutputStream outputStream = new ExposedByteArrayOutputStream();
+        outputStream.writeBytes(testBytes);
+
+        final InputStream inputStream = StreamTools.outputStreamToInput(outputStream);
+
+        assertEquals("output bytes == input bytes", testBytes, inputStream.readAllBytes());
+    }
+
+    @Test
+    void testExposedOutputToInputDoesNotCopy() throws Exception {
+
+        // size of the largest upload allowed by spring.servlet.multipart
+        final int uploadSize = 20 * 1024 * 1024;
+
+        final ByteArrayOutputStream outputStream = new ExposedByteArrayOutputStream(uploadSize);
+        outputStream.write(new byte[uploadSize]);
+
+        final var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().threadId();
+
+        final long before = threads.getThreadAllocatedBytes(threadId);
+        final InputStream inputStream = StreamTools.outputStreamToInput(outputStream);
+        final long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals("input stream should expose every byte", uploadSize, inputStream.available());
+        assertTrue(String.format("conversion should not copy the upload, allocated %d bytes", allocated),
+                allocated < uploadSize / 20);
+    }
 }
@@ -12,7 +12,9 @@ CREATE TABLE user_account(
     username VARCHAR(64) UNIQUE NOT NULL,
     password VARCHAR(128) NOT NULL,
     -- For every new record, this column will be populated with the current date/time
-    date_created TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+    date_created TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    -- changed whenever every access token issued to the user must be revoked
+    token_version INT NOT NULL DEFAULT 0
 );
 
 
@@ -101,6 +103,9 @@ CREATE TABLE appointment(
     client_id BIGINT NOT NULL,
     -- all entries should be associated with a client in the table
     FOREIGN KEY (client_id) REFERENCES client (client_id) ON DELETE CASCADE,
+    employee_id BIGINT NOT NULL,
+    -- all entries should be associated with an employee in the table
+    FOREIGN KEY (employee_id) REFERENCES employee (employee_id) ON DELETE CASCADE,
     appointment_time TIMESTAMP NOT NULL,
     service_id BIGINT NOT NULL,
     -- all entries should be associated with a service in the provided_service table
@@ -116,6 +121,19 @@ CREATE TABLE appointment(
     CONSTRAINT length_range CHECK ( length BETWEEN 1 AND 32 )
 );
 
+CREATE INDEX appointment_employee_time_idx ON appointment(employee_id, appointment_time, length, client_id);
+CREATE INDEX appointment_client_time_idx ON appointment(client_id, appointment_time, length, employee_id);
+
+-- PURPOSE: Creates a new table to store every 15 minute slot claimed by an appointment
+CREATE TABLE appointment_slot(
+    user_id BIGINT NOT NULL,
+    FOREIGN KEY (user_id) REFERENCES user_account (user_id) ON DELETE CASCADE,
+    slot_time TIMESTAMP NOT NULL,
+    appointment_id BIGINT NOT NULL,
+    FOREIGN KEY (appointment_id) REFERENCES appointment (appointment_id) ON DELETE CASCADE,
+    PRIMARY KEY (user_id, slot_time)
+);
+
 
 -- AUTHOR: William A. Morris
 -- DATE CREATED: 2024-02-23
@@ -127,3 +145,16 @@ CREATE TABLE provided_service_content(
     FOREIGN KEY (service_id) REFERENCES provided_service (service_id) ON DELETE CASCADE
 );
 
+-- PURPOSE: Creates a table recording the progress of images scaled and uploaded in the background
+CREATE TABLE image_upload_job(
+    job_id VARCHAR(36) PRIMARY KEY,
+    owner_id BIGINT NOT NULL,
+    FOREIGN KEY (owner_id) REFERENCES user_account (user_id) ON DELETE CASCADE,
+    content_id VARCHAR(64) NOT NULL,
+    status VARCHAR(10) NOT NULL,
+    CONSTRAINT upload_status_values CHECK ( status IN ('Queued', 'Processing', 'Complete', 'Failed') ),
+    error VARCHAR(128),
+    updated_at TIMESTAMP(3) NOT NULL
+);
+
+CREATE INDEX image_upload_job_updated_idx ON image_upload_job(updated_at);